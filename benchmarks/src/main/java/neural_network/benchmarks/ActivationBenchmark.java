@@ -0,0 +1,68 @@
+package neural_network.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.Activation;
+
+/**
+ * Measures the transfer functions on their own, against the Math.pow sigmoid
+ * perceptrons originally used.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivationBenchmark {
+
+	private static final int NUM_VALUES = 1024;
+
+	@Param({"EXACT", "FAST"})
+	public Activation activation;
+
+	private final double[] values = new double[NUM_VALUES];
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		// aggregated inputs are means of weighted inputs, so mostly small
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < NUM_VALUES; i++) {
+			values[i] = random.nextDouble(-8, 8);
+		}
+	}
+
+	@Benchmark
+	public double activation() {
+		double sum = 0;
+		for (double value : values) {
+			sum += activation.apply(value);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double mathPowSigmoid() {
+		double sum = 0;
+		for (double value : values) {
+			sum += 1 / (1 + Math.pow(Math.E, -value));
+		}
+		return sum;
+	}
+}
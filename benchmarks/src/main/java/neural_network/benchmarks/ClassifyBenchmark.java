@@ -0,0 +1,105 @@
+package neural_network.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.Activation;
+import neural_network.Data;
+import neural_network.InferenceModel;
+import neural_network.InferenceNetwork;
+import neural_network.ModelCompiler;
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+
+/**
+ * Measures single-sample classification and batch scoring of the validation file,
+ * with the generic networks and with a network compiled by ModelCompiler.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassifyBenchmark {
+
+	@Param({"EXACT", "FAST"})
+	public Activation activation;
+
+	private NeuralNetwork nnet;
+	private InferenceNetwork inferenceNetwork;
+	private InferenceModel compiledNetwork;
+	private Data[] samples;
+	private double[] packedValidation;
+	private double[][] activationBuffers;
+	private double[] outputs;
+	private int sample;
+
+	@Setup(Level.Trial)
+	public void setUp(SpambaseData data) throws NeuralNetworkException {
+		nnet = data.createNetwork();
+		nnet.setActivation(activation);
+		inferenceNetwork = new InferenceNetwork(nnet);
+		compiledNetwork = ModelCompiler.compile(nnet);
+		samples = data.validation.toArray(new Data[0]);
+		packedValidation = Data.packInputs(data.validation);
+		activationBuffers = nnet.createActivationBuffers();
+		outputs = new double[nnet.NUM_OUTPUT_PERCEPTRONS];
+	}
+
+	/**
+	 * Returns the next validation sample, cycling through the file.
+	 */
+	private Data nextSample() {
+		sample = sample + 1 == samples.length ? 0 : sample + 1;
+		return samples[sample];
+	}
+
+	@Benchmark
+	public double[] neuralNetworkClassify() {
+		return nnet.classify(nextSample());
+	}
+
+	@Benchmark
+	public double[] neuralNetworkClassifyBuffered() {
+		return nnet.classify(nextSample().getInputs(), activationBuffers);
+	}
+
+	@Benchmark
+	public double[] inferenceNetworkClassify() {
+		inferenceNetwork.classify(nextSample().getInputs(), outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	public double[] compiledClassify() {
+		compiledNetwork.classify(nextSample().getInputs(), outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public double[] batchClassifyValidation() {
+		return inferenceNetwork.classifyBatch(packedValidation, samples.length);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public double[] compiledBatchClassifyValidation() {
+		return compiledNetwork.classifyBatch(packedValidation, samples.length);
+	}
+}
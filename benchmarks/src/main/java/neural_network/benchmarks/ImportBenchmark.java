@@ -0,0 +1,75 @@
+package neural_network.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+import neural_network.io.BinaryDataset;
+import neural_network.io.CSVParser;
+import neural_network.runners.EmailSpamClassifier;
+
+/**
+ * Measures importing the spambase training file with the original String.split
+ * importer, the streaming CSV parser and a memory-mapped binary dataset.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportBenchmark {
+
+	private String csvFile;
+	private File binaryFile;
+
+	@Setup(Level.Trial)
+	public void setUp(SpambaseData data) throws IOException, NeuralNetworkException {
+		csvFile = data.trainingFile;
+		binaryFile = File.createTempFile("spambase", ".bin");
+		BinaryDataset.write(data.training, binaryFile.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		binaryFile.delete();
+	}
+
+	@Benchmark
+	public ArrayList<Data> importCSVData() throws NeuralNetworkException {
+		return EmailSpamClassifier.importCSVData(csvFile);
+	}
+
+	@Benchmark
+	public ArrayList<Data> csvParser() throws NeuralNetworkException {
+		return CSVParser.readData(csvFile);
+	}
+
+	@Benchmark
+	public BinaryDataset binaryDatasetOpen() throws NeuralNetworkException {
+		return BinaryDataset.open(binaryFile.getPath());
+	}
+
+	@Benchmark
+	public ArrayList<Data> binaryDatasetToDataList() throws NeuralNetworkException {
+		return BinaryDataset.open(binaryFile.getPath()).toDataList();
+	}
+}
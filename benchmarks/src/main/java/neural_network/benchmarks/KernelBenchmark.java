@@ -0,0 +1,72 @@
+package neural_network.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.Kernels;
+
+/**
+ * Measures the scalar and Vector API kernels on their own, at the width of
+ * a spambase input layer and at a width where SIMD has room to pay off.
+ *
+ * To compare whole networks, run the other benchmarks with
+ * -jvmArgsAppend "--add-modules=jdk.incubator.vector -Dneural_network.kernels=vector".
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBenchmark {
+
+	@Param({"scalar", "vector"})
+	public String kernels;
+
+	@Param({"57", "1024"})
+	public int length;
+
+	private Kernels selected;
+	private double[] x;
+	private double[] y;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		selected = Kernels.forName(kernels);
+		SplittableRandom random = new SplittableRandom(42);
+		x = new double[length];
+		y = new double[length];
+		for (int i = 0; i < length; i++) {
+			x[i] = random.nextDouble(-1, 1);
+			y[i] = random.nextDouble(-1, 1);
+		}
+	}
+
+	@Benchmark
+	public double dot() {
+		return selected.dot(0, x, 0, y, 0, length);
+	}
+
+	@Benchmark
+	public double[] axpy() {
+		// alternate signs so y stays bounded across invocations
+		selected.axpy(1e-3, x, 0, y, 0, length);
+		selected.axpy(-1e-3, x, 0, y, 0, length);
+		return y;
+	}
+}
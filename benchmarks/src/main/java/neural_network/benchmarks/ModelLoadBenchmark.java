@@ -0,0 +1,73 @@
+package neural_network.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.io.ModelFormat;
+
+/**
+ * Measures loading a saved network from the binary model format and from
+ * the Java serialization format used by older versions.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelLoadBenchmark {
+
+	private File modelFile;
+	private File serializedFile;
+
+	@Setup(Level.Trial)
+	public void setUp(SpambaseData data) throws IOException, NeuralNetworkException {
+		NeuralNetwork nnet = data.createNetwork();
+		modelFile = File.createTempFile("nnet", ".save");
+		ModelFormat.write(nnet, modelFile.getPath());
+		serializedFile = File.createTempFile("nnet", ".ser");
+		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(serializedFile))) {
+			oos.writeObject(nnet);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		modelFile.delete();
+		serializedFile.delete();
+	}
+
+	@Benchmark
+	public NeuralNetwork modelFormat() throws NeuralNetworkException {
+		return ModelFormat.read(modelFile.getPath());
+	}
+
+	@Benchmark
+	public NeuralNetwork javaSerialization() throws IOException, ClassNotFoundException {
+		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(serializedFile))) {
+			return (NeuralNetwork) ois.readObject();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package neural_network.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.Data;
+import neural_network.InferenceModel;
+import neural_network.InferenceNetwork;
+import neural_network.NeuralNetwork;
+import neural_network.Precision;
+import neural_network.QuantizedNetwork;
+
+/**
+ * Measures classification with double, float32 and int8 weights.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuantizedBenchmark {
+
+	@Param({"DOUBLE", "FLOAT32", "INT8"})
+	public String precision;
+
+	private InferenceModel model;
+	private Data[] samples;
+	private double[] packedValidation;
+	private double[] outputs;
+	private int sample;
+
+	@Setup(Level.Trial)
+	public void setUp(SpambaseData data) {
+		NeuralNetwork nnet = data.createNetwork();
+		model = precision.equals("DOUBLE") ? new InferenceNetwork(nnet)
+				: new QuantizedNetwork(nnet, Precision.valueOf(precision));
+		samples = data.validation.toArray(new Data[0]);
+		packedValidation = Data.packInputs(data.validation);
+		outputs = new double[model.getNumOutputs()];
+	}
+
+	@Benchmark
+	public double[] classify() {
+		sample = sample + 1 == samples.length ? 0 : sample + 1;
+		model.classify(samples[sample].getInputs(), outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public double[] batchClassifyValidation() {
+		return model.classifyBatch(packedValidation, samples.length);
+	}
+}
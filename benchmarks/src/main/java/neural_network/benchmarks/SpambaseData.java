@@ -0,0 +1,58 @@
+package neural_network.benchmarks;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import neural_network.Data;
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.io.CSVParser;
+
+/**
+ * The spambase training and validation files, shared by every benchmark.
+ *
+ * The files are read from the directory given by the dataDir parameter,
+ * which is where data.zip should be extracted.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Benchmark)
+public class SpambaseData {
+
+	// the Runner defaults
+	public static final int NUM_HIDDEN_LAYERS = 1;
+	public static final int NUM_HIDDEN_PERCEPTRONS = 5;
+	public static final int NUM_OUTPUT_PERCEPTRONS = 1;
+
+	@Param("data")
+	public String dataDir;
+
+	public String trainingFile;
+	public String validationFile;
+	public ArrayList<Data> training;
+	public ArrayList<Data> validation;
+
+	@Setup(Level.Trial)
+	public void load() throws NeuralNetworkException {
+		trainingFile = Paths.get(dataDir, "spambase-random.data").toString();
+		validationFile = Paths.get(dataDir, "spambase-validation.data").toString();
+		training = CSVParser.readData(trainingFile);
+		validation = CSVParser.readData(validationFile);
+	}
+
+	/**
+	 * Creates a randomly initialized network shaped like the ones the Trainer builds.
+	 *
+	 * @return: A new neural network.
+	 */
+	public NeuralNetwork createNetwork() {
+		return new NeuralNetwork(training.get(0).getInputs().length, NUM_HIDDEN_LAYERS,
+				NUM_HIDDEN_PERCEPTRONS, NUM_OUTPUT_PERCEPTRONS);
+	}
+}
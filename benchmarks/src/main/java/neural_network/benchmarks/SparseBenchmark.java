@@ -0,0 +1,97 @@
+package neural_network.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.DenseLayer;
+import neural_network.NeuralNetwork;
+import neural_network.SparseInputs;
+
+/**
+ * Measures the first layer of a spambase network over every datapoint of the
+ * training file, with the inputs dense and as SparseInputs.
+ *
+ * Datapoints are used as they are, whatever their density, so the sparse
+ * results show the gain on the real spambase mix of mostly-zero inputs.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SparseBenchmark {
+
+	private static final double LEARNING_RATE = .1;
+
+	@Param({"dense", "sparse"})
+	public String inputs;
+
+	private boolean sparse;
+	private DenseLayer layer;
+	private double[][] denseInputs;
+	private SparseInputs[] sparseInputs;
+	private double[] outputs;
+	private double[] deltas;
+
+	@Setup(Level.Trial)
+	public void setUp(SpambaseData data) {
+		sparse = inputs.equals("sparse");
+		NeuralNetwork nnet = data.createNetwork();
+		layer = new DenseLayer(nnet.getHiddenLayers()[0].getHiddenPerceptrons(), nnet.getActivation());
+		denseInputs = new double[data.training.size()][];
+		sparseInputs = new SparseInputs[data.training.size()];
+		for (int datapoint = 0; datapoint < denseInputs.length; datapoint++) {
+			denseInputs[datapoint] = data.training.get(datapoint).getInputs();
+			sparseInputs[datapoint] = data.training.get(datapoint).getSparseInputs();
+		}
+		outputs = new double[layer.NUM_PERCEPTRONS];
+		deltas = new double[layer.NUM_PERCEPTRONS];
+		for (int perceptron = 0; perceptron < deltas.length; perceptron++) {
+			deltas[perceptron] = 1e-3 * (perceptron + 1);
+		}
+	}
+
+	@Benchmark
+	public double forwardEpoch() {
+		double total = 0;
+		for (int datapoint = 0; datapoint < denseInputs.length; datapoint++) {
+			if (sparse) {
+				layer.forward(sparseInputs[datapoint], outputs);
+			} else {
+				layer.forward(denseInputs[datapoint], outputs);
+			}
+			total += outputs[0];
+		}
+		return total;
+	}
+
+	@Benchmark
+	public DenseLayer backwardEpoch() {
+		// alternate signs so the weights stay bounded across invocations
+		double learningRate = LEARNING_RATE;
+		for (int datapoint = 0; datapoint < denseInputs.length; datapoint++) {
+			if (sparse) {
+				layer.backward(sparseInputs[datapoint], deltas, null, learningRate);
+			} else {
+				layer.backward(denseInputs[datapoint], deltas, null, learningRate);
+			}
+			learningRate = -learningRate;
+		}
+		return layer;
+	}
+}
@@ -0,0 +1,67 @@
+package neural_network.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import neural_network.Data;
+import neural_network.FlatNeuralNetwork;
+import neural_network.GradientBuffer;
+
+/**
+ * Measures one training epoch over the spambase training file, the unit of
+ * work the Trainer repeats for every fold.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingBenchmark {
+
+	private static final double LEARNING_RATE = .1;
+
+	@Param({"1", "32"})
+	public int batchSize;
+
+	private SpambaseData data;
+	private FlatNeuralNetwork flatNet;
+	private GradientBuffer gradientBuffer;
+
+	@Setup(Level.Iteration)
+	public void setUp(SpambaseData data) {
+		this.data = data;
+		flatNet = new FlatNeuralNetwork(data.createNetwork());
+		gradientBuffer = flatNet.createGradientBuffer();
+	}
+
+	@Benchmark
+	public FlatNeuralNetwork trainEpoch() {
+		if (batchSize == 1) {
+			for (Data datapoint : data.training) {
+				flatNet.train(datapoint, LEARNING_RATE);
+			}
+		} else {
+			for (int batchStart = 0; batchStart < data.training.size(); batchStart += batchSize) {
+				int batchEnd = Math.min(batchStart + batchSize, data.training.size());
+				flatNet.computeGradients(data.training.subList(batchStart, batchEnd), gradientBuffer);
+				flatNet.applyGradients(gradientBuffer, LEARNING_RATE, batchEnd - batchStart);
+			}
+		}
+		return flatNet;
+	}
+}
@@ -0,0 +1,57 @@
+package neural_network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the fast sigmoid against the exact one.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class ActivationTest {
+
+	private static final double MAX_FAST_ERROR = 1e-6;
+
+	@Test
+	void fastIsWithinItsErrorBoundOfExact() {
+		for (int i = -40000; i <= 40000; i++) {
+			double x = i / 1000.;
+			double exact = Activation.EXACT.apply(x);
+			double fast = Activation.FAST.apply(x);
+			assertEquals(exact, fast, MAX_FAST_ERROR, "sigmoid(" + x + ")");
+		}
+	}
+
+	@Test
+	void outputsStayBetweenZeroAndOne() {
+		double[] inputs = { Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1e9, -16, -1, 0, 1, 16, 1e9,
+				Double.MAX_VALUE, Double.POSITIVE_INFINITY };
+		for (Activation activation : Activation.values()) {
+			for (double x : inputs) {
+				double y = activation.apply(x);
+				assertTrue(y >= 0 && y <= 1, activation + "(" + x + ") = " + y);
+			}
+		}
+	}
+
+	@Test
+	void fastHandlesTheEdgesOfTheTable() {
+		double[] edges = { -16, 16 };
+		for (double edge : edges) {
+			for (double x : new double[] { Math.nextDown(edge), edge, Math.nextUp(edge) }) {
+				double fast = Activation.FAST.apply(x);
+				assertEquals(Activation.EXACT.apply(x), fast, MAX_FAST_ERROR, "sigmoid(" + x + ")");
+				assertTrue(fast >= 0 && fast <= 1, "sigmoid(" + x + ") = " + fast);
+			}
+		}
+	}
+
+	@Test
+	void fastIsExactAtZeroAndSaturatesOutsideTheTable() {
+		assertEquals(.5, Activation.FAST.apply(0));
+		assertEquals(0, Activation.FAST.apply(-16));
+		assertEquals(1, Activation.FAST.apply(16));
+	}
+}
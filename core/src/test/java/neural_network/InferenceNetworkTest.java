@@ -0,0 +1,80 @@
+package neural_network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Hammers one InferenceNetwork from a thread pool and checks every result
+ * against single-threaded NeuralNetwork.classify.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class InferenceNetworkTest {
+
+	private static final int NUM_FEATURES = 20;
+	private static final int NUM_THREADS = 8;
+	private static final int NUM_SAMPLES = 500;
+	private static final int PASSES = 20;
+
+	@Test
+	void concurrentClassifyMatchesSingleThreaded() throws Exception {
+		NeuralNetwork nnet = TestData.createNetwork(NUM_FEATURES, 2, 14);
+		List<Data> data = TestData.createData(NUM_SAMPLES, NUM_FEATURES, 15);
+		double[][] expected = new double[NUM_SAMPLES][];
+		for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+			expected[sample] = nnet.classify(data.get(sample));
+		}
+
+		InferenceNetwork model = new InferenceNetwork(nnet);
+		double[] packed = Data.packInputs(data);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (int thread = 0; thread < NUM_THREADS; thread++) {
+			int offset = thread;
+			tasks.add(() -> {
+				start.await();
+				double[] outputs = new double[1];
+				int checked = 0;
+				for (int pass = 0; pass < PASSES; pass++) {
+					// each thread walks the samples from a different place, through every entry point
+					for (int i = 0; i < NUM_SAMPLES; i++) {
+						int sample = (i + offset * NUM_SAMPLES / NUM_THREADS) % NUM_SAMPLES;
+						model.classify(data.get(sample).getInputs(), outputs);
+						assertArrayEquals(expected[sample], outputs);
+						assertArrayEquals(expected[sample], model.classify(data.get(sample)));
+						checked++;
+					}
+					double[] batch = model.classifyBatch(packed, NUM_SAMPLES);
+					for (int sample = 0; sample < NUM_SAMPLES; sample++) {
+						assertEquals(expected[sample][0], batch[sample]);
+					}
+				}
+				return checked;
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(NUM_THREADS);
+		try {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (Callable<Integer> task : tasks) {
+				results.add(pool.submit(task));
+			}
+			start.countDown();
+			for (Future<Integer> result : results) {
+				assertEquals(PASSES * NUM_SAMPLES, result.get());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
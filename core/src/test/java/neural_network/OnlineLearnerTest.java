@@ -0,0 +1,65 @@
+package neural_network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks what an online learner learns and what it refuses to.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class OnlineLearnerTest {
+
+	private static final int NUM_FEATURES = 6;
+
+	private static OnlineLearner createLearner() {
+		return new OnlineLearner(TestData.createNetwork(NUM_FEATURES, 1, 13));
+	}
+
+	private static Data createDatapoint(double value, int classification) {
+		double[] inputs = new double[NUM_FEATURES];
+		for (int i = 0; i < NUM_FEATURES; i++) {
+			inputs[i] = value * (i % 3);
+		}
+		return new Data(inputs, new int[] { classification });
+	}
+
+	@Test
+	void publishesANewSnapshotAfterLearning() {
+		OnlineLearner learner = createLearner();
+		InferenceNetwork before = learner.getSnapshot();
+		double[] inputs = createDatapoint(1, 1).getInputs();
+		double[] outputBefore = before.classify(createDatapoint(1, 1));
+
+		learner.learn(List.of(createDatapoint(1, 1), createDatapoint(2, 0)));
+		assertEquals(2, learner.getUpdates());
+		assertNotSame(before, learner.getSnapshot());
+		double[] outputAfter = new double[1];
+		learner.classify(inputs, outputAfter);
+		assertFalse(outputBefore[0] == outputAfter[0]);
+		// the old snapshot keeps the old weights
+		assertArrayEquals(outputBefore, before.classify(createDatapoint(1, 1)));
+	}
+
+	@Test
+	void rejectsNonFiniteInputsWithoutLearningAnything() {
+		OnlineLearner learner = createLearner();
+		InferenceNetwork before = learner.getSnapshot();
+		for (double bad : new double[] { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY }) {
+			Data datapoint = createDatapoint(1, 1);
+			datapoint.getInputs()[NUM_FEATURES - 1] = bad;
+			assertThrows(IllegalArgumentException.class, () -> learner.learn(List.of(createDatapoint(1, 0), datapoint)));
+		}
+		assertThrows(IllegalArgumentException.class, () -> learner.learn(createDatapoint(1, 2)));
+		assertEquals(0, learner.getUpdates());
+		assertSame(before, learner.getSnapshot());
+	}
+}
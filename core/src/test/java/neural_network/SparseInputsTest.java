@@ -0,0 +1,73 @@
+package neural_network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the sparse first-layer passes give exactly the dense results.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class SparseInputsTest {
+
+	private static final int NUM_INPUTS = 57;
+	private static final int NUM_PERCEPTRONS = TestData.NUM_HIDDEN_PERCEPTRONS;
+
+	private static DenseLayer createLayer() {
+		NeuralNetwork nnet = TestData.createNetwork(NUM_INPUTS, 1, 1);
+		return new DenseLayer(nnet.getHiddenLayers()[0].getHiddenPerceptrons(), Activation.EXACT);
+	}
+
+	@Test
+	void keepsOnlyTheNonzeroInputs() {
+		double[] inputs = new double[10];
+		inputs[2] = 3;
+		inputs[7] = -1.5;
+		SparseInputs sparse = new SparseInputs(inputs);
+		assertEquals(2, sparse.size());
+		assertArrayEquals(new int[] { 2, 7 }, sparse.getIndices());
+		assertArrayEquals(new double[] { 3, -1.5 }, sparse.getValues());
+		assertEquals(.2, sparse.getDensity());
+	}
+
+	@Test
+	void forwardMatchesDense() {
+		DenseLayer layer = createLayer();
+		SplittableRandom random = new SplittableRandom(2);
+		double[] denseOutputs = new double[NUM_PERCEPTRONS];
+		double[] sparseOutputs = new double[NUM_PERCEPTRONS];
+		for (int sample = 0; sample < 200; sample++) {
+			double[] inputs = TestData.createInputs(random, NUM_INPUTS, sample % 10 / 10.);
+			layer.forward(inputs, denseOutputs);
+			layer.forward(new SparseInputs(inputs), sparseOutputs);
+			assertArrayEquals(denseOutputs, sparseOutputs);
+		}
+	}
+
+	@Test
+	void backwardAndGradientMatchDense() {
+		DenseLayer dense = createLayer();
+		DenseLayer sparse = createLayer();
+		SplittableRandom random = new SplittableRandom(3);
+		double[] deltas = new double[NUM_PERCEPTRONS];
+		double[] denseGradient = new double[NUM_PERCEPTRONS * NUM_INPUTS];
+		double[] sparseGradient = new double[NUM_PERCEPTRONS * NUM_INPUTS];
+		for (int sample = 0; sample < 200; sample++) {
+			double[] inputs = TestData.createInputs(random, NUM_INPUTS, .25);
+			for (int perceptron = 0; perceptron < NUM_PERCEPTRONS; perceptron++) {
+				deltas[perceptron] = random.nextDouble(-.01, .01);
+			}
+			dense.backward(inputs, deltas, null, .1);
+			sparse.backward(new SparseInputs(inputs), deltas, null, .1);
+			assertArrayEquals(dense.getWeights(), sparse.getWeights());
+
+			dense.accumulateGradient(inputs, deltas, null, denseGradient);
+			sparse.accumulateGradient(new SparseInputs(inputs), deltas, null, sparseGradient);
+			assertArrayEquals(denseGradient, sparseGradient);
+		}
+	}
+}
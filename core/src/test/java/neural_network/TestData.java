@@ -0,0 +1,84 @@
+package neural_network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Random datapoints and networks shared by the tests. Everything is drawn
+ * from a seed, so every run of a test sees the same data; each test passes
+ * the shape it needs.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class TestData {
+
+	public static final int NUM_HIDDEN_PERCEPTRONS = 5;
+	private static final double MAX_FEATURE = 10;
+
+	private TestData() {
+	}
+
+	/**
+	 * Draws the features of one datapoint.
+	 *
+	 * @param random: The generator to draw them from.
+	 * @param numFeatures: The number of features.
+	 * @param density: The chance of each feature being nonzero. Nonzero ones are between 0 and 10.
+	 * @return: The features.
+	 */
+	public static double[] createInputs(SplittableRandom random, int numFeatures, double density) {
+		double[] inputs = new double[numFeatures];
+		for (int i = 0; i < numFeatures; i++) {
+			if (density >= 1 || random.nextDouble() < density) {
+				inputs[i] = random.nextDouble(0, MAX_FEATURE);
+			}
+		}
+		return inputs;
+	}
+
+	/**
+	 * Creates datapoints with dense features and one random 0/1 classification each.
+	 *
+	 * @param numRows: The number of datapoints.
+	 * @param numFeatures: The number of features of each.
+	 * @param seed: The seed to draw them from.
+	 * @return: The datapoints.
+	 */
+	public static List<Data> createData(int numRows, int numFeatures, long seed) {
+		return createData(numRows, numFeatures, 1, seed);
+	}
+
+	/**
+	 * Creates datapoints with one random 0/1 classification each.
+	 *
+	 * @param numRows: The number of datapoints.
+	 * @param numFeatures: The number of features of each.
+	 * @param density: The chance of each feature being nonzero.
+	 * @param seed: The seed to draw them from.
+	 * @return: The datapoints.
+	 */
+	public static List<Data> createData(int numRows, int numFeatures, double density, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Data> data = new ArrayList<>(numRows);
+		for (int row = 0; row < numRows; row++) {
+			double[] inputs = createInputs(random, numFeatures, density);
+			data.add(new Data(inputs, new int[] { random.nextInt(2) }));
+		}
+		return data;
+	}
+
+	/**
+	 * Creates a network with hidden layers of NUM_HIDDEN_PERCEPTRONS, one output
+	 * and Xavier weights.
+	 *
+	 * @param numInputs: The number of inputs.
+	 * @param numHiddenLayers: The number of hidden layers.
+	 * @param seed: The seed to draw the weights from.
+	 * @return: The network.
+	 */
+	public static NeuralNetwork createNetwork(int numInputs, int numHiddenLayers, long seed) {
+		return new NeuralNetwork(numInputs, numHiddenLayers, NUM_HIDDEN_PERCEPTRONS, 1,
+				WeightInitializer.XAVIER, new SplittableRandom(seed));
+	}
+}
@@ -0,0 +1,105 @@
+package neural_network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the vector kernels against the scalar ones. The build runs the tests
+ * with --add-modules jdk.incubator.vector; without the module they are skipped.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class VectorKernelsTest {
+
+	// every length up to it is tried, so each tail shorter than a register of
+	// doubles (at most 8 with AVX-512) is reached from several whole registers
+	private static final int MAX_SHORT_LENGTH = 40;
+	private static final int MAX_OFFSET = 9;
+	// the vector kernels reorder the sum and round fused multiply-adds once, so
+	// they may differ from the scalar ones by a few ulps of the summed magnitudes
+	private static final double RELATIVE_ERROR = 1e-13;
+
+	private final Kernels scalar = Kernels.forName("scalar");
+	private Kernels vector;
+
+	@BeforeEach
+	void loadVectorKernels() {
+		try {
+			vector = Kernels.forName("vector");
+		} catch (IllegalArgumentException e) {
+			vector = null;
+		}
+		assumeTrue(vector != null, "The Vector API is not available");
+	}
+
+	private static double[] createValues(SplittableRandom random, int length) {
+		double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextDouble(-10, 10);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the lengths to try: every short one, then some long ones.
+	 */
+	private static int[] createLengths(SplittableRandom random) {
+		int[] lengths = new int[MAX_SHORT_LENGTH + 1 + 20];
+		for (int length = 0; length <= MAX_SHORT_LENGTH; length++) {
+			lengths[length] = length;
+		}
+		for (int i = MAX_SHORT_LENGTH + 1; i < lengths.length; i++) {
+			lengths[i] = random.nextInt(MAX_SHORT_LENGTH, 2000);
+		}
+		return lengths;
+	}
+
+	@Test
+	void dotMatchesScalar() {
+		SplittableRandom random = new SplittableRandom(13);
+		for (int length : createLengths(random)) {
+			int aOffset = random.nextInt(MAX_OFFSET);
+			int bOffset = random.nextInt(MAX_OFFSET);
+			double[] a = createValues(random, aOffset + length + random.nextInt(MAX_OFFSET));
+			double[] b = createValues(random, bOffset + length + random.nextInt(MAX_OFFSET));
+			double sum = random.nextDouble(-10, 10);
+
+			double magnitude = Math.abs(sum);
+			for (int i = 0; i < length; i++) {
+				magnitude += Math.abs(a[aOffset + i] * b[bOffset + i]);
+			}
+			assertEquals(scalar.dot(sum, a, aOffset, b, bOffset, length),
+					vector.dot(sum, a, aOffset, b, bOffset, length), magnitude * RELATIVE_ERROR,
+					"length " + length + ", offsets " + aOffset + " and " + bOffset);
+		}
+	}
+
+	@Test
+	void axpyMatchesScalar() {
+		SplittableRandom random = new SplittableRandom(14);
+		for (int length : createLengths(random)) {
+			int xOffset = random.nextInt(MAX_OFFSET);
+			int yOffset = random.nextInt(MAX_OFFSET);
+			double[] x = createValues(random, xOffset + length + random.nextInt(MAX_OFFSET));
+			double[] y = createValues(random, yOffset + length + random.nextInt(MAX_OFFSET));
+			double alpha = random.nextDouble(-2, 2);
+
+			double[] expected = y.clone();
+			double[] actual = y.clone();
+			scalar.axpy(alpha, x, xOffset, expected, yOffset, length);
+			vector.axpy(alpha, x, xOffset, actual, yOffset, length);
+			for (int i = 0; i < y.length; i++) {
+				boolean updated = i >= yOffset && i < yOffset + length;
+				// values outside of the range must not be touched at all
+				double magnitude = updated ? Math.abs(alpha * x[xOffset + i - yOffset]) + Math.abs(y[i]) : 0;
+				assertEquals(expected[i], actual[i], magnitude * RELATIVE_ERROR,
+						"length " + length + ", offsets " + xOffset + " and " + yOffset + ", index " + i);
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package neural_network.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+import neural_network.TestData;
+
+/**
+ * Checks that datasets survive a write and memory-mapped read unchanged.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class BinaryDatasetTest {
+
+	private static final int NUM_FEATURES = 12;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripKeepsEveryRow() throws NeuralNetworkException {
+		List<Data> data = TestData.createData(301, NUM_FEATURES, 6);
+		String filepath = dir.resolve("data.bin").toString();
+		BinaryDataset.write(data, filepath);
+		assertTrue(BinaryDataset.isBinaryDataset(filepath));
+
+		BinaryDataset dataset = BinaryDataset.open(filepath);
+		assertEquals(data.size(), dataset.size());
+		assertEquals(NUM_FEATURES, dataset.NUM_FEATURES);
+		assertEquals(1, dataset.NUM_OUTPUTS);
+
+		double[] inputs = new double[NUM_FEATURES];
+		for (int row = 0; row < data.size(); row++) {
+			dataset.getInputs(row, row + 1, inputs);
+			assertArrayEquals(data.get(row).getInputs(), inputs);
+			assertEquals(data.get(row).getClassification()[0], dataset.getClassification(row, 0));
+		}
+
+		double[] packed = new double[10 * NUM_FEATURES];
+		dataset.getInputs(100, 110, packed);
+		assertArrayEquals(Data.packInputs(data.subList(100, 110)), packed);
+
+		List<Data> copied = dataset.toDataList();
+		for (int row = 0; row < data.size(); row++) {
+			assertArrayEquals(data.get(row).getInputs(), copied.get(row).getInputs());
+			assertArrayEquals(data.get(row).getClassification(), copied.get(row).getClassification());
+		}
+	}
+
+	@Test
+	void viewReadsTheSameRowsAsTheCopy() throws NeuralNetworkException {
+		List<Data> data = TestData.createData(57, NUM_FEATURES, 6);
+		String filepath = dir.resolve("data.bin").toString();
+		BinaryDataset.write(data, filepath);
+
+		List<Data> view = BinaryDataset.open(filepath).asDataList();
+		assertEquals(data.size(), view.size());
+		for (int row = 0; row < data.size(); row++) {
+			assertArrayEquals(data.get(row).getInputs(), view.get(row).getInputs());
+			assertArrayEquals(data.get(row).getClassification(), view.get(row).getClassification());
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> view.get(data.size()));
+		assertThrows(UnsupportedOperationException.class, () -> view.remove(0));
+	}
+
+	@Test
+	void viewReadsEachRowOnceIntoItsSparseForm() throws NeuralNetworkException {
+		SplittableRandom random = new SplittableRandom(7);
+		List<Data> data = new ArrayList<>();
+		for (int row = 0; row < 20; row++) {
+			double[] inputs = new double[NUM_FEATURES];
+			// odd rows are dense, so both kinds of row are read
+			for (int i = 0; i < NUM_FEATURES; i += row % 2 == 0 ? 5 : 1) {
+				inputs[i] = random.nextDouble(1, 100);
+			}
+			data.add(new Data(inputs, new int[] { row % 2 }));
+		}
+		String filepath = dir.resolve("data.bin").toString();
+		BinaryDataset.write(data, filepath);
+
+		List<Data> view = BinaryDataset.open(filepath).asDataList();
+		for (int pass = 0; pass < 2; pass++) {
+			for (int row = 0; row < data.size(); row++) {
+				Data datapoint = view.get(row);
+				assertEquals(row % 2 == 0, datapoint.getSparseInputs().isSparse());
+				assertArrayEquals(data.get(row).getInputs(), datapoint.getInputs());
+				assertArrayEquals(data.get(row).getClassification(), datapoint.getClassification());
+			}
+		}
+		assertSame(view.get(0).getSparseInputs(), view.get(0).getSparseInputs());
+		assertSame(view.get(1).getSparseInputs(), view.get(1).getSparseInputs());
+	}
+
+	@Test
+	void doesNotMistakeCsvForBinary() throws Exception {
+		Path file = dir.resolve("data.csv");
+		Files.writeString(file, "1,2,3,0\n");
+		assertFalse(BinaryDataset.isBinaryDataset(file.toString()));
+	}
+}
@@ -0,0 +1,105 @@
+package neural_network.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+
+/**
+ * Checks that the CSV parser gives exactly the values of Double.parseDouble.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class CSVParserTest {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Formats a number the ways data files write them, including ones the fast path rejects.
+	 */
+	private static String format(SplittableRandom random) {
+		double value = random.nextDouble(-1000, 1000);
+		switch (random.nextInt(8)) {
+			case 0:
+				return Double.toString(value);
+			case 1:
+				return String.format(Locale.ROOT, "%.3f", value);
+			case 2:
+				return String.format(Locale.ROOT, "%.6e", value);
+			case 3:
+				return Integer.toString(random.nextInt(-100000, 100000));
+			case 4:
+				return "0";
+			case 5:
+				return String.format(Locale.ROOT, "%.20f", value / 1e6);
+			case 6:
+				return Double.toString(random.nextDouble() * 1e-30);
+			default:
+				return String.format(Locale.ROOT, "%.17g", value * 1e15);
+		}
+	}
+
+	@Test
+	void parsesFieldsLikeParseDouble() throws Exception {
+		SplittableRandom random = new SplittableRandom(5);
+		List<String[]> rows = new ArrayList<>();
+		StringBuilder csv = new StringBuilder();
+		for (int row = 0; row < 2000; row++) {
+			String[] fields = new String[1 + random.nextInt(60)];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = format(random);
+			}
+			rows.add(fields);
+			csv.append(String.join(",", fields)).append(row % 3 == 0 ? "\r\n" : "\n");
+		}
+		Path file = dir.resolve("fields.csv");
+		Files.writeString(file, csv);
+
+		double[] parsed = new double[64];
+		try (CSVParser parser = new CSVParser(file.toString())) {
+			for (String[] fields : rows) {
+				assertEquals(fields.length, parser.readRow(parsed));
+				for (int i = 0; i < fields.length; i++) {
+					assertEquals(Double.parseDouble(fields[i]), parsed[i], fields[i]);
+				}
+			}
+			assertEquals(-1, parser.readRow(parsed));
+		}
+	}
+
+	@Test
+	void readsDataWithTheClassificationLast() throws Exception {
+		Path file = dir.resolve("data.csv");
+		Files.writeString(file, "0.5,1e2,3,1\n\n-2,0,.25,0");
+		ArrayList<Data> data = CSVParser.readData(file.toString());
+		assertEquals(2, data.size());
+		assertArrayEquals(new double[] { .5, 100, 3 }, data.get(0).getInputs());
+		assertArrayEquals(new int[] { 1 }, data.get(0).getClassification());
+		assertArrayEquals(new double[] { -2, 0, .25 }, data.get(1).getInputs());
+		assertArrayEquals(new int[] { 0 }, data.get(1).getClassification());
+	}
+
+	@Test
+	void rejectsInvalidNumbersAndClassifications() throws Exception {
+		Path numbers = dir.resolve("numbers.csv");
+		Files.writeString(numbers, "1,2,x,0\n");
+		assertThrows(NeuralNetworkException.class, () -> CSVParser.readData(numbers.toString()));
+
+		Path classifications = dir.resolve("classifications.csv");
+		Files.writeString(classifications, "1,2,3,0.5\n");
+		assertThrows(NeuralNetworkException.class, () -> CSVParser.readData(classifications.toString()));
+	}
+}
@@ -0,0 +1,110 @@
+package neural_network.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import neural_network.Activation;
+import neural_network.HiddenLayer;
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.Perceptron;
+import neural_network.TestData;
+import neural_network.WeightInitializer;
+
+/**
+ * Checks that networks survive a write and read of the model format unchanged.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class ModelFormatTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripKeepsWeightsAndActivation() throws NeuralNetworkException {
+		NeuralNetwork nnet = new NeuralNetwork(57, 2, 7, 1, WeightInitializer.XAVIER, new SplittableRandom(4));
+		nnet.setActivation(Activation.FAST);
+		String filepath = dir.resolve("nnet.model").toString();
+		ModelFormat.write(nnet, filepath);
+		assertTrue(ModelFormat.isModelFile(filepath));
+
+		NeuralNetwork loaded = ModelFormat.read(filepath);
+		assertEquals(nnet.NUM_INPUTS, loaded.NUM_INPUTS);
+		assertEquals(nnet.NUM_HIDDEN_LAYERS, loaded.NUM_HIDDEN_LAYERS);
+		assertEquals(nnet.NUM_OUTPUT_PERCEPTRONS, loaded.NUM_OUTPUT_PERCEPTRONS);
+		assertEquals(Activation.FAST, loaded.getActivation());
+		for (int layer = 0; layer < nnet.NUM_HIDDEN_LAYERS; layer++) {
+			HiddenLayer expected = nnet.getHiddenLayers()[layer];
+			HiddenLayer actual = loaded.getHiddenLayers()[layer];
+			for (int perceptron = 0; perceptron < expected.getNumPerceptrons(); perceptron++) {
+				assertArrayEquals(expected.getHiddenPerceptrons()[perceptron].getWeights(),
+						actual.getHiddenPerceptrons()[perceptron].getWeights());
+			}
+		}
+		assertArrayEquals(nnet.getOutputPerceptrons()[0].getWeights(), loaded.getOutputPerceptrons()[0].getWeights());
+	}
+
+	@Test
+	void resetReturnsToTheLoadedWeights() throws NeuralNetworkException {
+		NeuralNetwork nnet = new NeuralNetwork(57, 2, 7, 1, WeightInitializer.XAVIER, new SplittableRandom(5));
+		String filepath = dir.resolve("nnet.model").toString();
+		ModelFormat.write(nnet, filepath);
+
+		NeuralNetwork loaded = ModelFormat.read(filepath);
+		for (HiddenLayer layer : loaded.getHiddenLayers()) {
+			for (Perceptron perceptron : layer.getHiddenPerceptrons()) {
+				perceptron.updateWeights(perceptron.getWeights());
+			}
+		}
+		loaded.getOutputPerceptrons()[0].updateWeights(loaded.getOutputPerceptrons()[0].getWeights());
+		loaded.reset();
+
+		for (int layer = 0; layer < nnet.NUM_HIDDEN_LAYERS; layer++) {
+			Perceptron[] expected = nnet.getHiddenLayers()[layer].getHiddenPerceptrons();
+			Perceptron[] actual = loaded.getHiddenLayers()[layer].getHiddenPerceptrons();
+			for (int perceptron = 0; perceptron < expected.length; perceptron++) {
+				assertArrayEquals(expected[perceptron].getWeights(), actual[perceptron].getWeights());
+			}
+		}
+		assertArrayEquals(nnet.getOutputPerceptrons()[0].getWeights(), loaded.getOutputPerceptrons()[0].getWeights());
+	}
+
+	@Test
+	void rejectsCorruptHeaders() throws Exception {
+		NeuralNetwork nnet = TestData.createNetwork(8, 1, 4);
+		Path file = dir.resolve("nnet.model");
+		ModelFormat.write(nnet, file.toString());
+		byte[] valid = Files.readAllBytes(file);
+
+		// a layer count whose size in bytes overflows an int, then layers larger than the file
+		int[][] corruptions = { { 16, 0x40000001 }, { 16, Integer.MAX_VALUE }, { 20, Integer.MAX_VALUE },
+				{ 24, 0x20000000 } };
+		for (int[] corruption : corruptions) {
+			ByteBuffer corrupt = ByteBuffer.wrap(valid.clone()).order(ByteOrder.LITTLE_ENDIAN);
+			corrupt.putInt(corruption[0], corruption[1]);
+			Files.write(file, corrupt.array());
+			assertThrows(NeuralNetworkException.class, () -> ModelFormat.read(file.toString()),
+					Integer.toHexString(corruption[1]));
+		}
+	}
+
+	@Test
+	void rejectsOtherFiles() throws Exception {
+		Path file = dir.resolve("not.model");
+		Files.writeString(file, "1,2,3,0\n");
+		assertTrue(!ModelFormat.isModelFile(file.toString()));
+		assertThrows(NeuralNetworkException.class, () -> ModelFormat.read(file.toString()));
+	}
+}
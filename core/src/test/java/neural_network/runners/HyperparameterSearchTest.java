@@ -0,0 +1,75 @@
+package neural_network.runners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import neural_network.TestData;
+
+/**
+ * Runs small searches end to end on random data.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class HyperparameterSearchTest {
+
+	@TempDir
+	Path dir;
+
+	private Map<String, String> createOptions() {
+		Map<String, String> options = new LinkedHashMap<>();
+		options.put("workers", "2");
+		options.put("repeats", "1");
+		options.put("max_epochs", "1");
+		options.put("seed", "1");
+		options.put("leaderboard", dir.resolve("leaderboard.tsv").toString());
+		options.put("output", dir.resolve("best.model").toString());
+		return options;
+	}
+
+	/**
+	 * Returns the status column of every leaderboard row.
+	 */
+	private List<String> readStatuses() throws Exception {
+		List<String> lines = Files.readAllLines(dir.resolve("leaderboard.tsv"));
+		int column = List.of(lines.get(0).split("\t")).indexOf("status");
+		List<String> statuses = new ArrayList<>();
+		for (String line : lines.subList(1, lines.size())) {
+			statuses.add(line.split("\t")[column]);
+		}
+		return statuses;
+	}
+
+	@Test
+	void sharesTheValueOfASingleValueListOrRange() throws Exception {
+		Map<String, String> options = createOptions();
+		options.put("hidden_layers", "2..2");
+		options.put("learning_rate", "0.01,");
+		options.put("optimizer", "adam,sgd");
+		new HyperparameterSearch(TestData.createData(100, 8, 12), TestData.createData(20, 8, 13), options).run();
+
+		assertEquals(List.of("done", "done"), readStatuses());
+		assertTrue(Files.exists(dir.resolve("best.model")));
+	}
+
+	@Test
+	void ranksFailedCandidatesInsteadOfAborting() throws Exception {
+		Map<String, String> options = createOptions();
+		options.put("learning_rate", "0.01,0.02");
+		// the validation data does not fit the networks, so every candidate fails
+		new HyperparameterSearch(TestData.createData(100, 8, 12), TestData.createData(20, 3, 13), options).run();
+
+		assertEquals(List.of("failed", "failed"), readStatuses());
+		assertFalse(Files.exists(dir.resolve("best.model")));
+	}
+}
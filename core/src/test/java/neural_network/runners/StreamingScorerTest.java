@@ -0,0 +1,174 @@
+package neural_network.runners;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import neural_network.Data;
+import neural_network.InferenceModel;
+import neural_network.InferenceNetwork;
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.TestData;
+import neural_network.features.FeatureExtractor;
+import neural_network.features.Message;
+import neural_network.io.BinaryDataset;
+
+/**
+ * Checks that streamed scores come out in input order and equal the model's.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class StreamingScorerTest {
+
+	private static final int NUM_FEATURES = 10;
+	private static final double DENSITY = .25;
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Scores a file with small batches and several workers, so batches finish out of order.
+	 */
+	private static void assertScoredInOrder(String filepath, List<Data> data, InferenceNetwork model) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StreamingScorer scorer = new StreamingScorer(model, 7, 4);
+		double error;
+		try (PrintStream scores = new PrintStream(out, false, StandardCharsets.UTF_8)) {
+			error = scorer.score(filepath, null, scores);
+		}
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(data.size(), lines.length);
+		int wrong = 0;
+		for (int row = 0; row < data.size(); row++) {
+			double[] expected = model.classify(data.get(row));
+			int actual = data.get(row).getClassification()[0];
+			assertArrayEquals(new String[] { Integer.toString(row + 1), Double.toString(expected[0]),
+					Integer.toString(actual) }, lines[row].split("\t"));
+			if (Math.round(expected[0]) != actual) {
+				wrong++;
+			}
+		}
+		assertEquals((double) wrong / data.size(), error);
+	}
+
+	@Test
+	void scoresCsvInInputOrder() throws Exception {
+		List<Data> data = TestData.createData(1000, NUM_FEATURES, DENSITY, 7);
+		StringBuilder csv = new StringBuilder();
+		for (Data datapoint : data) {
+			for (double input : datapoint.getInputs()) {
+				csv.append(input).append(',');
+			}
+			csv.append(datapoint.getClassification()[0]).append('\n');
+		}
+		Path file = dir.resolve("data.csv");
+		Files.writeString(file, csv);
+
+		NeuralNetwork nnet = TestData.createNetwork(NUM_FEATURES, 1, 8);
+		assertScoredInOrder(file.toString(), data, new InferenceNetwork(nnet));
+	}
+
+	@Test
+	void scoresBinaryDatasetInInputOrder() throws Exception {
+		List<Data> data = TestData.createData(999, NUM_FEATURES, DENSITY, 7);
+		String filepath = dir.resolve("data.bin").toString();
+		BinaryDataset.write(data, filepath);
+
+		NeuralNetwork nnet = TestData.createNetwork(NUM_FEATURES, 2, 9);
+		assertScoredInOrder(filepath, data, new InferenceNetwork(nnet));
+	}
+
+	@Test
+	void rejectsLabelsOtherThanZeroAndOne() throws Exception {
+		NeuralNetwork nnet = TestData.createNetwork(NUM_FEATURES, 1, 12);
+		StreamingScorer scorer = new StreamingScorer(new InferenceNetwork(nnet), 7, 4);
+		for (String label : new String[] { "2", "0.5", "-1" }) {
+			StringBuilder row = new StringBuilder();
+			for (int i = 0; i < NUM_FEATURES; i++) {
+				row.append("1,");
+			}
+			Path file = dir.resolve("data.csv");
+			Files.writeString(file, row + "0\n" + row + label + "\n");
+			assertThrows(NeuralNetworkException.class,
+					() -> scorer.score(file.toString(), null, new PrintStream(new ByteArrayOutputStream())), label);
+		}
+
+		// a binary dataset converted from a file with such labels
+		List<Data> data = TestData.createData(10, NUM_FEATURES, DENSITY, 7);
+		data.set(5, new Data(data.get(5).getInputs(), new int[] { 2 }));
+		String filepath = dir.resolve("data.bin").toString();
+		BinaryDataset.write(data, filepath);
+		assertThrows(NeuralNetworkException.class,
+				() -> scorer.score(filepath, null, new PrintStream(new ByteArrayOutputStream())));
+	}
+
+	@Test
+	void rethrowsAnErrorFromAWorker() throws Exception {
+		List<Data> data = TestData.createData(100, NUM_FEATURES, DENSITY, 7);
+		String filepath = dir.resolve("data.bin").toString();
+		BinaryDataset.write(data, filepath);
+
+		NeuralNetwork nnet = TestData.createNetwork(NUM_FEATURES, 1, 10);
+		AtomicInteger numBatches = new AtomicInteger();
+		InferenceNetwork network = new InferenceNetwork(nnet);
+		InferenceModel model = new InferenceModel() {
+			@Override
+			public int getNumInputs() {
+				return network.getNumInputs();
+			}
+
+			@Override
+			public int getNumOutputs() {
+				return network.getNumOutputs();
+			}
+
+			@Override
+			public void classify(double[] inputs, double[] outputs) {
+				network.classify(inputs, outputs);
+			}
+
+			@Override
+			public double[] classifyBatch(double[] inputs, int numSamples) {
+				if (numBatches.incrementAndGet() == 3) {
+					throw new StackOverflowError();
+				}
+				return network.classifyBatch(inputs, numSamples);
+			}
+		};
+		StreamingScorer scorer = new StreamingScorer(model, 7, 4);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(StackOverflowError.class,
+				() -> scorer.score(filepath, null, new PrintStream(new ByteArrayOutputStream()))));
+	}
+
+	@Test
+	void rethrowsAnErrorFromTheReader() throws Exception {
+		Path file = dir.resolve("message.eml");
+		Files.writeString(file, "Subject: hello\n\nfree money\n");
+		FeatureExtractor extractor = new FeatureExtractor() {
+			@Override
+			public void extract(Message message, double[] features) {
+				throw new OutOfMemoryError();
+			}
+		};
+
+		NeuralNetwork nnet = TestData.createNetwork(extractor.getNumFeatures(), 1, 11);
+		StreamingScorer scorer = new StreamingScorer(new InferenceNetwork(nnet), 7, 4);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(OutOfMemoryError.class,
+				() -> scorer.score(file.toString(), extractor, new PrintStream(new ByteArrayOutputStream()))));
+	}
+}
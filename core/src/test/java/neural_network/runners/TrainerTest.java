@@ -0,0 +1,74 @@
+package neural_network.runners;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+import neural_network.TestData;
+
+/**
+ * Checks that a resumed run trains the networks an uninterrupted run would.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class TrainerTest {
+
+	@TempDir
+	Path dir;
+
+	private TrainingConfig createConfig(int maxRounds, String output) {
+		return new TrainingConfig()
+				.setOption("max_rounds", Integer.toString(maxRounds))
+				.setOption("max_epochs", "2")
+				.setOption("parallelism", "1")
+				.setOption("checkpoint", dir.resolve("run.checkpoint").toString())
+				.setOption("resume", "true")
+				.setOption("output", dir.resolve(output).toString());
+	}
+
+	@Test
+	void resumesWithTheSeedOfTheCheckpoint() throws Exception {
+		List<Data> data = TestData.createData(100, 8, 8);
+		List<Data> validationData = TestData.createData(20, 8, 9);
+		new Trainer(data, validationData, createConfig(1, "first.save").setSeed(5)).run();
+		TrainingCheckpoint stored = TrainingCheckpoint.read(dir.resolve("run.checkpoint").toString());
+		// no seed is given, so only the checkpoint's can continue the run
+		new Trainer(data, validationData, createConfig(2, "resumed.save")).run();
+
+		TrainingConfig uninterrupted = createConfig(2, "uninterrupted.save").setSeed(5)
+				.setOption("checkpoint", dir.resolve("other.checkpoint").toString());
+		new Trainer(data, validationData, uninterrupted).run();
+
+		TrainingCheckpoint resumed = TrainingCheckpoint.read(dir.resolve("run.checkpoint").toString());
+		TrainingCheckpoint expected = TrainingCheckpoint.read(dir.resolve("other.checkpoint").toString());
+		assertEquals(5, stored.SEED);
+		assertEquals(stored.SEED, resumed.SEED);
+		assertEquals(stored.ROUNDS + 1, resumed.ROUNDS);
+		// whichever round was best, the resumed run must have found the same one
+		assertEquals(expected.BEST_ROUND, resumed.BEST_ROUND);
+		assertEquals(expected.BEST_FOLD, resumed.BEST_FOLD);
+		assertEquals(expected.BEST_VALIDATION_ERROR, resumed.BEST_VALIDATION_ERROR);
+		assertArrayEquals(Files.readAllBytes(dir.resolve("uninterrupted.save")),
+				Files.readAllBytes(dir.resolve("resumed.save")));
+	}
+
+	@Test
+	void refusesToResumeWithAnotherSeed() throws NeuralNetworkException {
+		List<Data> data = TestData.createData(100, 8, 8);
+		List<Data> validationData = TestData.createData(20, 8, 9);
+		new Trainer(data, validationData, createConfig(1, "first.save").setSeed(5)).run();
+		new Trainer(data, validationData, createConfig(2, "resumed.save").setSeed(6)).run();
+
+		assertFalse(Files.exists(dir.resolve("resumed.save")));
+		assertEquals(1, TrainingCheckpoint.read(dir.resolve("run.checkpoint").toString()).ROUNDS);
+	}
+}
@@ -0,0 +1,202 @@
+package neural_network.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import neural_network.Data;
+import neural_network.InferenceModel;
+import neural_network.InferenceNetwork;
+import neural_network.OnlineLearner;
+import neural_network.TestData;
+
+/**
+ * Runs the scoring server on a free loopback port and talks to it over HTTP.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class ScoringServerTest {
+
+	private static final int NUM_FEATURES = 10;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+	private InferenceNetwork model;
+	private ScoringServer server;
+
+	@BeforeEach
+	void startServer() throws Exception {
+		model = new InferenceNetwork(TestData.createNetwork(NUM_FEATURES, 1, 10));
+		server = new ScoringServer(model, 0);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	private HttpResponse<String> send(String path, String body) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+		if (body != null) {
+			request.POST(HttpRequest.BodyPublishers.ofString(body));
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static OnlineLearner createLearner() {
+		return new OnlineLearner(TestData.createNetwork(NUM_FEATURES, 1, 10));
+	}
+
+	/**
+	 * Formats the features of datapoints as a request body, each followed by its label if labeled.
+	 */
+	private static String toBody(List<Data> data, boolean labeled) {
+		StringBuilder body = new StringBuilder();
+		for (Data datapoint : data) {
+			for (int i = 0; i < NUM_FEATURES; i++) {
+				body.append(i > 0 ? "," : "").append(datapoint.getInputs()[i]);
+			}
+			if (labeled) {
+				body.append(',').append(datapoint.getClassification()[0]);
+			}
+			body.append('\n');
+		}
+		return body.toString();
+	}
+
+	/**
+	 * Scores feature vectors over HTTP and checks each line against a model's outputs.
+	 *
+	 * @return: The scores the server answered with.
+	 */
+	private double[] assertScoredLike(InferenceModel expectedModel, List<Data> data) throws Exception {
+		HttpResponse<String> response = send("/score", toBody(data, false));
+		assertEquals(200, response.statusCode());
+		String[] lines = response.body().split("\n");
+		assertEquals(data.size(), lines.length);
+		double[] scores = new double[data.size()];
+		double[] expected = new double[1];
+		for (int row = 0; row < data.size(); row++) {
+			expectedModel.classify(data.get(row).getInputs(), expected);
+			scores[row] = Double.parseDouble(lines[row]);
+			assertEquals(expected[0], scores[row]);
+		}
+		return scores;
+	}
+
+	/**
+	 * Returns one value of the /stats report.
+	 */
+	private String getStat(String name) throws Exception {
+		HttpResponse<String> stats = send("/stats", null);
+		assertEquals(200, stats.statusCode());
+		for (String line : stats.body().split("\n")) {
+			String[] pair = line.split(" ");
+			if (pair[0].equals(name)) {
+				return pair[1];
+			}
+		}
+		throw new AssertionError("No " + name + " in: " + stats.body());
+	}
+
+	@Test
+	void bindsAFreePortAndReportsStats() throws Exception {
+		assertTrue(server.getPort() > 0);
+		HttpResponse<String> stats = send("/stats", null);
+		assertEquals(200, stats.statusCode());
+		assertTrue(stats.body().contains("requests 0\n"), stats.body());
+	}
+
+	@Test
+	void scoresLikeTheModel() throws Exception {
+		assertScoredLike(model, TestData.createData(20, NUM_FEATURES, 11));
+	}
+
+	@Test
+	void roundTripsScoresStatsAndFeedback() throws Exception {
+		server.stop(0);
+		OnlineLearner learner = createLearner();
+		server = new ScoringServer(learner, 0);
+		server.start();
+
+		List<Data> vectors = TestData.createData(20, NUM_FEATURES, 12);
+		double[] before = assertScoredLike(model, vectors);
+
+		List<Data> feedback = TestData.createData(30, NUM_FEATURES, 13);
+		HttpResponse<String> learned = send("/feedback", toBody(feedback, true));
+		assertEquals(200, learned.statusCode());
+		assertEquals("learned 30\nupdates 30\n", learned.body());
+		assertEquals(30, learner.getUpdates());
+
+		// the server learns exactly what a learner given the same feedback directly does
+		OnlineLearner expected = createLearner();
+		expected.learn(feedback);
+		double[] after = assertScoredLike(expected.getSnapshot(), vectors);
+		assertScoredLike(learner.getSnapshot(), vectors);
+		assertNotEquals(before[0], after[0]);
+
+		assertEquals("3", getStat("requests"));
+		assertEquals("0", getStat("failed_requests"));
+		assertEquals("60", getStat("samples"));
+		assertEquals("1", getStat("feedback_requests"));
+		assertEquals("30", getStat("feedback_samples"));
+	}
+
+	@Test
+	void rejectsBadRequests() throws Exception {
+		HttpResponse<String> get = send("/score", null);
+		assertEquals(405, get.statusCode());
+		assertEquals("POST", get.headers().firstValue("Allow").orElse(null));
+		assertEquals(400, send("/score", "1,2,3\n").statusCode());
+		assertEquals(400, send("/score", "\n").statusCode());
+		// a server without a learner does not take feedback
+		assertEquals(404, send("/feedback", toBody(TestData.createData(1, NUM_FEATURES, 14), true)).statusCode());
+
+		assertEquals("3", getStat("requests"));
+		assertEquals("3", getStat("failed_requests"));
+		assertEquals("0", getStat("samples"));
+	}
+
+	@Test
+	void refusesTooManyLines() throws Exception {
+		String blankLines = "\n".repeat(ScoringServer.MAX_REQUEST_LINES + 1);
+		assertEquals(413, send("/score", blankLines).statusCode());
+		assertEquals(413, send("/score", blankLines + toBody(TestData.createData(1, NUM_FEATURES, 15), false)).statusCode());
+		// blank lines under the limit are skipped and take no room in the batch
+		String body = "\n".repeat(ScoringServer.MAX_REQUEST_LINES - 2) + toBody(TestData.createData(2, NUM_FEATURES, 15), false);
+		HttpResponse<String> response = send("/score", body);
+		assertEquals(200, response.statusCode());
+		assertEquals(2, response.body().split("\n").length);
+
+		assertEquals("2", getStat("failed_requests"));
+		assertEquals("2", getStat("samples"));
+	}
+
+	@Test
+	void rejectsFeedbackThatIsNotFinite() throws Exception {
+		server.stop(0);
+		OnlineLearner learner = createLearner();
+		server = new ScoringServer(learner, 0);
+		server.start();
+
+		for (String bad : new String[] { "NaN", "Infinity", "-Infinity", "1e400" }) {
+			StringBuilder line = new StringBuilder(bad);
+			for (int i = 1; i < NUM_FEATURES; i++) {
+				line.append(",1");
+			}
+			HttpResponse<String> response = send("/feedback", line.append(",1\n").toString());
+			assertEquals(400, response.statusCode(), bad);
+		}
+		assertEquals(0, learner.getUpdates());
+	}
+}
@@ -1,5 +1,7 @@
 package neural_network;
 
+import java.util.List;
+
 /**
  * Represents a datapoint to be used with this artificial neural network.
  * 
@@ -8,6 +10,7 @@ package neural_network;
 public class Data {
 	private double[] inputs;
 	private int[] classification;
+	private SparseInputs sparseInputs;
 	
 	/**
 	 * Construct a datapoint.
@@ -21,13 +24,64 @@ public class Data {
 		this.classification = classification;
 	}
 	
+	/**
+	 * Construct a datapoint whose sparse inputs are already known, e.g. kept
+	 * from an earlier read of the same row.
+	 * 
+	 * @param inputs: An array of features to be used as inputs.
+	 * @param classification: An array representing the bitwise 
+	 * classification of this datapoint.
+	 * @param sparseInputs: The sparse form of the inputs.
+	 */
+	public Data(double[] inputs, int[] classification, SparseInputs sparseInputs) {
+		this.inputs = inputs;
+		this.classification = classification;
+		this.sparseInputs = sparseInputs;
+	}
+	
+	/**
+	 * Construct a datapoint from the sparse form of its inputs. The dense inputs
+	 * are only built if they are asked for, so a datapoint read for the sparse
+	 * passes costs no more than its nonzero inputs.
+	 * 
+	 * @param sparseInputs: The nonzero inputs of this datapoint.
+	 * @param classification: An array representing the bitwise 
+	 * classification of this datapoint.
+	 */
+	public Data(SparseInputs sparseInputs, int[] classification) {
+		this.sparseInputs = sparseInputs;
+		this.classification = classification;
+	}
+	
 	/**
 	 * Returns the inputs given by this datapoint.
 	 * 
 	 * @return: The inputs given by this datapoint.
 	 */
 	public double[] getInputs() {
-		return inputs;
+		double[] dense = inputs;
+		if (dense == null) {
+			dense = sparseInputs.toDense();
+			inputs = dense;
+		}
+		return dense;
+	}
+	
+	/**
+	 * Returns the nonzero inputs of this datapoint as index/value pairs.
+	 * They are found the first time this is called and kept, since datapoints
+	 * are trained on every epoch. Threads racing on the first call each build
+	 * an equal, immutable copy, so no locking is needed.
+	 * 
+	 * @return: The sparse form of the inputs given by this datapoint.
+	 */
+	public SparseInputs getSparseInputs() {
+		SparseInputs sparse = sparseInputs;
+		if (sparse == null) {
+			sparse = new SparseInputs(inputs);
+			sparseInputs = sparse;
+		}
+		return sparse;
 	}
 	
 	/**
@@ -38,4 +92,22 @@ public class Data {
 	public int[] getClassification() {
 		return classification;
 	}
+	
+	/**
+	 * Packs the inputs of many datapoints into one row-major matrix.
+	 * 
+	 * @param data: The datapoints to pack. All must have the same number of inputs.
+	 * @return: A matrix of one row of inputs per datapoint.
+	 */
+	public static double[] packInputs(List<Data> data) {
+		if (data.isEmpty()) {
+			return new double[0];
+		}
+		int numInputs = data.get(0).getInputs().length;
+		double[] packed = new double[data.size() * numInputs];
+		for (int datapoint = 0; datapoint < data.size(); datapoint++) {
+			System.arraycopy(data.get(datapoint).getInputs(), 0, packed, datapoint * numInputs, numInputs);
+		}
+		return packed;
+	}
 }
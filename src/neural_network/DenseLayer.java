@@ -0,0 +1,269 @@
+package neural_network;
+
+/**
+ * Represents a fully connected layer of perceptrons whose weights are stored
+ * in a single row-major matrix.
+ *
+ * Rationale: the weights of perceptron j live at indices
+ * [j * NUM_INPUTS, (j + 1) * NUM_INPUTS) of one contiguous array, so a
+ * forward or backward pass over the layer is a tight matrix-vector loop
+ * instead of a walk over Perceptron objects scattered across the heap.
+ * The loops themselves are Kernels, so they can run on the Vector API.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class DenseLayer {
+
+	// tile sizes for batched forward passes, chosen so a tile of samples,
+	// weights and outputs stays resident in L1/L2 cache
+	private static final int SAMPLE_BLOCK = 64;
+	private static final int PERCEPTRON_BLOCK = 32;
+	private static final int INPUT_BLOCK = 256;
+	private static final Kernels KERNELS = Kernels.get();
+
+	public final int NUM_INPUTS;
+	public final int NUM_PERCEPTRONS;
+	private final double[] weights;
+	private final Activation activation;
+
+	/**
+	 * Construct a dense layer from the weights of existing perceptrons.
+	 *
+	 * @param perceptrons: The perceptrons whose weights are copied into this layer.
+	 * @param activation: The transfer function of the perceptrons.
+	 */
+	public DenseLayer(Perceptron[] perceptrons, Activation activation) {
+		this.activation = activation;
+		NUM_PERCEPTRONS = perceptrons.length;
+		NUM_INPUTS = perceptrons[0].getWeights().length;
+		weights = new double[NUM_PERCEPTRONS * NUM_INPUTS];
+		for (int perceptron = 0; perceptron < NUM_PERCEPTRONS; perceptron++) {
+			System.arraycopy(perceptrons[perceptron].getWeights(), 0, weights, perceptron * NUM_INPUTS, NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Returns the row-major weight matrix of this layer.
+	 *
+	 * @return: The weights of this layer, one row of NUM_INPUTS per perceptron.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Runs inputs through every perceptron in this layer.
+	 * Each output is the activation of the mean weighted input, as in Perceptron.
+	 *
+	 * @param inputs: An array of NUM_INPUTS inputs.
+	 * @param outputs: An array of NUM_PERCEPTRONS values to write the outputs to.
+	 */
+	public void forward(double[] inputs, double[] outputs) {
+		if (inputs.length != NUM_INPUTS) {
+			String errorStr = "The number of given inputs is not equal to the number of expected inputs.";
+			throw new IllegalArgumentException(errorStr);
+		}
+
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			double sum = KERNELS.dot(0, inputs, 0, weights, row, NUM_INPUTS);
+			outputs[perceptron] = activation.apply(sum / NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Runs sparse inputs through every perceptron in this layer, skipping the
+	 * zero inputs. Each sum adds the remaining terms in input order, so the
+	 * outputs are identical to those of forward with the scalar kernels.
+	 *
+	 * @param inputs: The nonzero values of NUM_INPUTS inputs.
+	 * @param outputs: An array of NUM_PERCEPTRONS values to write the outputs to.
+	 */
+	public void forward(SparseInputs inputs, double[] outputs) {
+		if (inputs.NUM_INPUTS != NUM_INPUTS) {
+			String errorStr = "The number of given inputs is not equal to the number of expected inputs.";
+			throw new IllegalArgumentException(errorStr);
+		}
+
+		int[] indices = inputs.getIndices();
+		double[] values = inputs.getValues();
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			double sum = 0;
+			for (int i = 0; i < indices.length; i++) {
+				sum += values[i] * weights[row + indices[i]];
+			}
+			outputs[perceptron] = activation.apply(sum / NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Runs a batch of samples through every perceptron in this layer.
+	 * Computes outputs = activation(inputs * weights^T / NUM_INPUTS) as a cache-blocked
+	 * matrix multiplication. With the scalar kernels every sum is accumulated in
+	 * input order, so each output is identical to the one forward would produce
+	 * for that sample.
+	 *
+	 * @param inputs: A row-major matrix of numSamples rows of NUM_INPUTS inputs.
+	 * @param numSamples: The number of samples in the batch.
+	 * @param outputs: A row-major matrix of numSamples rows of NUM_PERCEPTRONS values
+	 * to write the outputs to.
+	 */
+	public void forwardBatch(double[] inputs, int numSamples, double[] outputs) {
+		if (inputs.length < numSamples * NUM_INPUTS || outputs.length < numSamples * NUM_PERCEPTRONS) {
+			throw new IllegalArgumentException("The batch does not hold the given number of samples.");
+		}
+
+		for (int i = 0; i < numSamples * NUM_PERCEPTRONS; i++) {
+			outputs[i] = 0;
+		}
+
+		for (int sampleStart = 0; sampleStart < numSamples; sampleStart += SAMPLE_BLOCK) {
+			int sampleEnd = Math.min(sampleStart + SAMPLE_BLOCK, numSamples);
+			for (int perceptronStart = 0; perceptronStart < NUM_PERCEPTRONS; perceptronStart += PERCEPTRON_BLOCK) {
+				int perceptronEnd = Math.min(perceptronStart + PERCEPTRON_BLOCK, NUM_PERCEPTRONS);
+				for (int inputStart = 0; inputStart < NUM_INPUTS; inputStart += INPUT_BLOCK) {
+					int inputEnd = Math.min(inputStart + INPUT_BLOCK, NUM_INPUTS);
+
+					// multiply one tile of samples by one tile of weights
+					for (int sample = sampleStart; sample < sampleEnd; sample++) {
+						int inputRow = sample * NUM_INPUTS;
+						int outputRow = sample * NUM_PERCEPTRONS;
+						for (int perceptron = perceptronStart; perceptron < perceptronEnd; perceptron++) {
+							int weightRow = perceptron * NUM_INPUTS;
+							outputs[outputRow + perceptron] = KERNELS.dot(outputs[outputRow + perceptron],
+									inputs, inputRow + inputStart, weights, weightRow + inputStart, inputEnd - inputStart);
+						}
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < numSamples * NUM_PERCEPTRONS; i++) {
+			outputs[i] = activation.apply(outputs[i] / NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Propagates error terms back through this layer and updates its weights.
+	 *
+	 * @param inputs: The inputs this layer was last run with.
+	 * @param deltas: The error term of each perceptron in this layer.
+	 * @param inputErrors: An array of NUM_INPUTS values to write the error
+	 * attributed to each input to, or null if it is not needed.
+	 * @param learningRate: The learning rate to scale weight updates by.
+	 */
+	public void backward(double[] inputs, double[] deltas, double[] inputErrors, double learningRate) {
+		// error is attributed using the weights from before this update
+		if (inputErrors != null) {
+			propagateErrors(deltas, inputErrors);
+		}
+
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			KERNELS.axpy(learningRate * deltas[perceptron], inputs, 0, weights, row, NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Propagates error terms back through this layer and updates only the
+	 * weights of its nonzero inputs, the only ones backward would change.
+	 *
+	 * @param inputs: The sparse inputs this layer was last run with.
+	 * @param deltas: The error term of each perceptron in this layer.
+	 * @param inputErrors: An array of NUM_INPUTS values to write the error
+	 * attributed to each input to, or null if it is not needed.
+	 * @param learningRate: The learning rate to scale weight updates by.
+	 */
+	public void backward(SparseInputs inputs, double[] deltas, double[] inputErrors, double learningRate) {
+		if (inputErrors != null) {
+			propagateErrors(deltas, inputErrors);
+		}
+
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			scatterAdd(learningRate * deltas[perceptron], inputs, weights, row);
+		}
+	}
+
+	/**
+	 * Propagates error terms back through this layer and adds the resulting
+	 * weight gradient to a buffer instead of updating the weights.
+	 *
+	 * @param inputs: The inputs this layer was last run with.
+	 * @param deltas: The error term of each perceptron in this layer.
+	 * @param inputErrors: An array of NUM_INPUTS values to write the error
+	 * attributed to each input to, or null if it is not needed.
+	 * @param gradient: A row-major matrix shaped like the weights to add the gradient to.
+	 */
+	public void accumulateGradient(double[] inputs, double[] deltas, double[] inputErrors, double[] gradient) {
+		if (inputErrors != null) {
+			propagateErrors(deltas, inputErrors);
+		}
+
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			KERNELS.axpy(deltas[perceptron], inputs, 0, gradient, row, NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Propagates error terms back through this layer and adds the gradient of
+	 * the weights of its nonzero inputs to a buffer, the rest being zero.
+	 *
+	 * @param inputs: The sparse inputs this layer was last run with.
+	 * @param deltas: The error term of each perceptron in this layer.
+	 * @param inputErrors: An array of NUM_INPUTS values to write the error
+	 * attributed to each input to, or null if it is not needed.
+	 * @param gradient: A row-major matrix shaped like the weights to add the gradient to.
+	 */
+	public void accumulateGradient(SparseInputs inputs, double[] deltas, double[] inputErrors, double[] gradient) {
+		if (inputErrors != null) {
+			propagateErrors(deltas, inputErrors);
+		}
+
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			scatterAdd(deltas[perceptron], inputs, gradient, row);
+		}
+	}
+
+	/**
+	 * Adds a scaled sparse vector to one row of a matrix: y[row + index] += alpha * value.
+	 */
+	private static void scatterAdd(double alpha, SparseInputs x, double[] y, int row) {
+		int[] indices = x.getIndices();
+		double[] values = x.getValues();
+		for (int i = 0; i < indices.length; i++) {
+			y[row + indices[i]] += alpha * values[i];
+		}
+	}
+
+	/**
+	 * Adds a scaled gradient to the weights of this layer.
+	 *
+	 * @param gradient: A row-major matrix shaped like the weights.
+	 * @param scale: The factor to scale the gradient by, usually the learning rate
+	 * divided by the number of samples the gradient was accumulated over.
+	 */
+	public void applyGradient(double[] gradient, double scale) {
+		KERNELS.axpy(scale, gradient, 0, weights, 0, weights.length);
+	}
+
+	/**
+	 * Attributes the error terms of this layer to its inputs through the current weights.
+	 */
+	private void propagateErrors(double[] deltas, double[] inputErrors) {
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			inputErrors[i] = 0;
+		}
+		for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+			KERNELS.axpy(deltas[perceptron], weights, row, inputErrors, 0, NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Copies the weights of this layer back into perceptrons.
+	 *
+	 * @param perceptrons: The perceptrons to copy weights to.
+	 */
+	public void copyWeightsTo(Perceptron[] perceptrons) {
+		for (int perceptron = 0; perceptron < NUM_PERCEPTRONS; perceptron++) {
+			System.arraycopy(weights, perceptron * NUM_INPUTS, perceptrons[perceptron].getWeights(), 0, NUM_INPUTS);
+		}
+	}
+}
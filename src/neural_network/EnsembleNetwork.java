@@ -0,0 +1,265 @@
+package neural_network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents several trained neural networks, e.g. the networks of the folds
+ * of one training run, that classify together as one model.
+ *
+ * Rationale: the first layer is where nearly all the weights of a spambase
+ * network are (inputs x hidden perceptrons), so the first layers of every
+ * member are packed side by side into one input-major matrix. One pass over
+ * the inputs then adds each input to the sums of every member's perceptrons at
+ * once, a loop over independent sums the JIT can vectorize, instead of one
+ * dot product per perceptron whose additions each wait for the previous one.
+ * Every sum still adds its terms in input order, so each member's outputs are
+ * exactly those of its InferenceNetwork. The remaining layers of each member
+ * are small and run on that member's slice of the packed outputs.
+ *
+ * The members' outputs are combined by averaging or by majority vote. Like
+ * InferenceNetwork, an ensemble never modifies its weights and may be shared
+ * by any number of classifying threads.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class EnsembleNetwork implements InferenceModel {
+
+	/**
+	 * How the outputs of the members are combined into the output of the ensemble.
+	 */
+	public enum Combination {
+
+		/**
+		 * The mean of the members' outputs.
+		 */
+		AVERAGE,
+
+		/**
+		 * The fraction of members whose output rounds to 1, so the ensemble rounds
+		 * to the majority. A tie gives the mean of the members' outputs instead.
+		 */
+		VOTE
+	}
+
+	private final double[] packedWeights;
+	private final int packedWidth;
+	private final Activation activation;
+	private final int[] memberOffsets;
+	private final DenseLayer[][] memberLayers;
+	private final ThreadLocal<double[][][]> activationBuffers;
+	public final int NUM_INPUTS;
+	public final int NUM_OUTPUT_PERCEPTRONS;
+	public final int NUM_MEMBERS;
+	public final Combination COMBINATION;
+
+	/**
+	 * Construct an ensemble from read-only copies of trained neural networks.
+	 *
+	 * @param members: The neural networks to combine. They must have the same
+	 * inputs, outputs and activation, but may have different hidden layers.
+	 * @param combination: How the members' outputs are combined.
+	 */
+	public EnsembleNetwork(List<NeuralNetwork> members, Combination combination) {
+		if (members.isEmpty()) {
+			throw new IllegalArgumentException("An ensemble needs at least one member.");
+		}
+		NeuralNetwork first = members.get(0);
+		NUM_INPUTS = first.NUM_INPUTS;
+		NUM_OUTPUT_PERCEPTRONS = first.NUM_OUTPUT_PERCEPTRONS;
+		NUM_MEMBERS = members.size();
+		COMBINATION = combination;
+		activation = first.getActivation();
+
+		List<Perceptron> packedPerceptrons = new ArrayList<>();
+		memberOffsets = new int[NUM_MEMBERS + 1];
+		memberLayers = new DenseLayer[NUM_MEMBERS][];
+		for (int member = 0; member < NUM_MEMBERS; member++) {
+			NeuralNetwork nnet = members.get(member);
+			if (nnet.NUM_INPUTS != NUM_INPUTS || nnet.NUM_OUTPUT_PERCEPTRONS != NUM_OUTPUT_PERCEPTRONS) {
+				throw new IllegalArgumentException("Every member of an ensemble must have the same inputs and outputs.");
+			}
+			if (nnet.getActivation() != activation) {
+				throw new IllegalArgumentException("Every member of an ensemble must have the same activation.");
+			}
+
+			// the first hidden layer is packed, the rest of the member runs on its own
+			HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+			for (Perceptron perceptron : hiddenLayers[0].getHiddenPerceptrons()) {
+				packedPerceptrons.add(perceptron);
+			}
+			memberOffsets[member + 1] = packedPerceptrons.size();
+			memberLayers[member] = new DenseLayer[hiddenLayers.length];
+			for (int layer = 1; layer < hiddenLayers.length; layer++) {
+				memberLayers[member][layer - 1] = new DenseLayer(hiddenLayers[layer].getHiddenPerceptrons(), activation);
+			}
+			memberLayers[member][hiddenLayers.length - 1] = new DenseLayer(nnet.getOutputPerceptrons(), activation);
+		}
+		// input i's weight to packed perceptron j is at i * packedWidth + j
+		packedWidth = packedPerceptrons.size();
+		packedWeights = new double[NUM_INPUTS * packedWidth];
+		for (int perceptron = 0; perceptron < packedWidth; perceptron++) {
+			double[] weights = packedPerceptrons.get(perceptron).getWeights();
+			for (int input = 0; input < NUM_INPUTS; input++) {
+				packedWeights[input * packedWidth + perceptron] = weights[input];
+			}
+		}
+
+		activationBuffers = ThreadLocal.withInitial(this::createActivationBuffers);
+	}
+
+	/**
+	 * Allocates the buffers classify writes each layer's outputs to: per member,
+	 * its slice of the packed layer followed by one array per remaining layer.
+	 * The extra last entry holds the packed layer's outputs and the running sums
+	 * and vote counts of the members' outputs.
+	 */
+	private double[][][] createActivationBuffers() {
+		double[][][] buffers = new double[NUM_MEMBERS + 1][][];
+		for (int member = 0; member < NUM_MEMBERS; member++) {
+			DenseLayer[] layers = memberLayers[member];
+			buffers[member] = new double[layers.length + 1][];
+			buffers[member][0] = new double[memberOffsets[member + 1] - memberOffsets[member]];
+			for (int layer = 0; layer < layers.length; layer++) {
+				buffers[member][layer + 1] = new double[layers[layer].NUM_PERCEPTRONS];
+			}
+		}
+		buffers[NUM_MEMBERS] = new double[][] {
+				new double[packedWidth], new double[NUM_OUTPUT_PERCEPTRONS], new double[NUM_OUTPUT_PERCEPTRONS] };
+		return buffers;
+	}
+
+	@Override
+	public int getNumInputs() {
+		return NUM_INPUTS;
+	}
+
+	@Override
+	public int getNumOutputs() {
+		return NUM_OUTPUT_PERCEPTRONS;
+	}
+
+	/**
+	 * Runs an array of inputs through every member and combines their outputs,
+	 * using buffers owned by the calling thread.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param outputs: An array of NUM_OUTPUT_PERCEPTRONS values to write the combined outputs to.
+	 */
+	@Override
+	public void classify(double[] inputs, double[] outputs) {
+		double[][][] buffers = activationBuffers.get();
+		double[] packedOutputs = buffers[NUM_MEMBERS][0];
+		double[] sums = buffers[NUM_MEMBERS][1];
+		double[] votes = buffers[NUM_MEMBERS][2];
+		if (inputs.length != NUM_INPUTS) {
+			String errorStr = "The number of given inputs is not equal to the number of expected inputs.";
+			throw new IllegalArgumentException(errorStr);
+		}
+		forwardPacked(inputs, 0, packedOutputs, 0);
+
+		for (int i = 0; i < NUM_OUTPUT_PERCEPTRONS; i++) {
+			sums[i] = 0;
+			votes[i] = 0;
+		}
+		for (int member = 0; member < NUM_MEMBERS; member++) {
+			double[][] memberBuffers = buffers[member];
+			System.arraycopy(packedOutputs, memberOffsets[member], memberBuffers[0], 0, memberBuffers[0].length);
+			DenseLayer[] layers = memberLayers[member];
+			for (int layer = 0; layer < layers.length; layer++) {
+				layers[layer].forward(memberBuffers[layer], memberBuffers[layer + 1]);
+			}
+			double[] memberOutputs = memberBuffers[layers.length];
+			for (int i = 0; i < NUM_OUTPUT_PERCEPTRONS; i++) {
+				sums[i] += memberOutputs[i];
+				votes[i] += Math.round(memberOutputs[i]);
+			}
+		}
+		for (int i = 0; i < NUM_OUTPUT_PERCEPTRONS; i++) {
+			outputs[i] = combine(sums[i], votes[i]);
+		}
+	}
+
+	/**
+	 * Runs a batch of samples through every member and combines their outputs.
+	 *
+	 * @param inputs: A row-major matrix of numSamples rows of NUM_INPUTS inputs.
+	 * @param numSamples: The number of samples in the batch.
+	 * @return: A row-major matrix of numSamples rows of NUM_OUTPUT_PERCEPTRONS combined outputs.
+	 */
+	@Override
+	public double[] classifyBatch(double[] inputs, int numSamples) {
+		if (inputs.length < numSamples * NUM_INPUTS) {
+			throw new IllegalArgumentException("The batch does not hold the given number of samples.");
+		}
+		double[] packedOutputs = new double[numSamples * packedWidth];
+		for (int sample = 0; sample < numSamples; sample++) {
+			forwardPacked(inputs, sample * NUM_INPUTS, packedOutputs, sample * packedWidth);
+		}
+
+		int numOutputs = numSamples * NUM_OUTPUT_PERCEPTRONS;
+		double[] sums = new double[numOutputs];
+		double[] votes = new double[numOutputs];
+		for (int member = 0; member < NUM_MEMBERS; member++) {
+			// gather this member's columns of the packed outputs into its own matrix
+			int memberWidth = memberOffsets[member + 1] - memberOffsets[member];
+			double[] lastOutputs = new double[numSamples * memberWidth];
+			for (int sample = 0; sample < numSamples; sample++) {
+				System.arraycopy(packedOutputs, sample * packedWidth + memberOffsets[member],
+						lastOutputs, sample * memberWidth, memberWidth);
+			}
+			for (DenseLayer layer : memberLayers[member]) {
+				double[] nextOutputs = new double[numSamples * layer.NUM_PERCEPTRONS];
+				layer.forwardBatch(lastOutputs, numSamples, nextOutputs);
+				lastOutputs = nextOutputs;
+			}
+			for (int i = 0; i < numOutputs; i++) {
+				sums[i] += lastOutputs[i];
+				votes[i] += Math.round(lastOutputs[i]);
+			}
+		}
+
+		double[] outputs = new double[numOutputs];
+		for (int i = 0; i < numOutputs; i++) {
+			outputs[i] = combine(sums[i], votes[i]);
+		}
+		return outputs;
+	}
+
+	/**
+	 * Runs one sample through the packed first layers of every member.
+	 *
+	 * @param inputs: An array holding NUM_INPUTS inputs at inputOffset.
+	 * @param inputOffset: The index of the first input.
+	 * @param outputs: An array to write the packed outputs to at outputOffset.
+	 * @param outputOffset: The index of the first output.
+	 */
+	private void forwardPacked(double[] inputs, int inputOffset, double[] outputs, int outputOffset) {
+		for (int perceptron = 0; perceptron < packedWidth; perceptron++) {
+			outputs[outputOffset + perceptron] = 0;
+		}
+		for (int input = 0, row = 0; input < NUM_INPUTS; input++, row += packedWidth) {
+			double value = inputs[inputOffset + input];
+			for (int perceptron = 0; perceptron < packedWidth; perceptron++) {
+				outputs[outputOffset + perceptron] += value * packedWeights[row + perceptron];
+			}
+		}
+		for (int perceptron = 0; perceptron < packedWidth; perceptron++) {
+			outputs[outputOffset + perceptron] = activation.apply(outputs[outputOffset + perceptron] / NUM_INPUTS);
+		}
+	}
+
+	/**
+	 * Combines the outputs of every member for one output perceptron.
+	 *
+	 * @param sum: The sum of the members' outputs.
+	 * @param votes: The number of members whose output rounds to 1.
+	 * @return: The output of the ensemble.
+	 */
+	private double combine(double sum, double votes) {
+		if (COMBINATION == Combination.VOTE && 2 * votes != NUM_MEMBERS) {
+			return votes / NUM_MEMBERS;
+		}
+		return sum / NUM_MEMBERS;
+	}
+}
@@ -0,0 +1,325 @@
+package neural_network;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents an artificial neural network whose layers are stored as
+ * contiguous weight matrices.
+ *
+ * This is a training and classification engine for a NeuralNetwork: it copies
+ * the network's weights into one DenseLayer per layer, runs forward and
+ * backward passes over those matrices, and copies the weights back when done.
+ * Datapoints whose inputs are mostly zero run through the first layer as
+ * SparseInputs, which skips the zeros without changing any result.
+ * It keeps the activations of its last forward pass, so it must not be shared
+ * between threads, except to compute mini-batch gradients into separate
+ * GradientBuffers while no thread is updating the weights.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class FlatNeuralNetwork {
+
+	private final DenseLayer[] layers;
+	private final double[][] activations;
+	private final double[][] deltas;
+	private Optimizer optimizer = Optimizer.SGD;
+	private WeightUpdater[] updaters;
+	private double[][] sampleGradients;
+	public final int NUM_INPUTS;
+	public final int NUM_OUTPUT_PERCEPTRONS;
+
+	/**
+	 * Construct a flat copy of an artificial neural network.
+	 *
+	 * @param nnet: The neural network to copy weights from.
+	 */
+	public FlatNeuralNetwork(NeuralNetwork nnet) {
+		NUM_INPUTS = nnet.NUM_INPUTS;
+		NUM_OUTPUT_PERCEPTRONS = nnet.NUM_OUTPUT_PERCEPTRONS;
+
+		// hidden layers followed by the output layer
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		layers = new DenseLayer[hiddenLayers.length + 1];
+		for (int layer = 0; layer < hiddenLayers.length; layer++) {
+			layers[layer] = new DenseLayer(hiddenLayers[layer].getHiddenPerceptrons(), nnet.getActivation());
+		}
+		layers[hiddenLayers.length] = new DenseLayer(nnet.getOutputPerceptrons(), nnet.getActivation());
+
+		// activations[0] is the input of the last forward pass
+		activations = new double[layers.length + 1][];
+		deltas = new double[layers.length][];
+		for (int layer = 0; layer < layers.length; layer++) {
+			activations[layer + 1] = new double[layers[layer].NUM_PERCEPTRONS];
+			deltas[layer] = new double[layers[layer].NUM_PERCEPTRONS];
+		}
+		setOptimizer(Optimizer.SGD);
+	}
+
+	/**
+	 * Returns the layers of this network, the last one being the output layer.
+	 *
+	 * @return: The layers in this network.
+	 */
+	public DenseLayer[] getLayers() {
+		return layers;
+	}
+
+	/**
+	 * Returns the rule this network's weights are updated with.
+	 *
+	 * @return: The optimizer.
+	 */
+	public Optimizer getOptimizer() {
+		return optimizer;
+	}
+
+	/**
+	 * Sets the rule this network's weights are updated with, starting its per-weight state from zero.
+	 *
+	 * @param optimizer: The optimizer.
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
+		updaters = new WeightUpdater[layers.length];
+		for (int layer = 0; layer < layers.length; layer++) {
+			updaters[layer] = optimizer.newUpdater(layers[layer].getWeights().length);
+		}
+		// SGD updates weights while backpropagating, other rules need the gradient of each sample first
+		sampleGradients = null;
+		if (optimizer != Optimizer.SGD) {
+			sampleGradients = new double[layers.length][];
+			for (int layer = 0; layer < layers.length; layer++) {
+				sampleGradients[layer] = new double[layers[layer].getWeights().length];
+			}
+		}
+	}
+
+	/**
+	 * Runs inputs through every layer of this network.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param activations: Arrays to write each layer's outputs to. The inputs are
+	 * stored as the first activation.
+	 */
+	private void forward(double[] inputs, double[][] activations) {
+		activations[0] = inputs;
+		for (int layer = 0; layer < layers.length; layer++) {
+			layers[layer].forward(activations[layer], activations[layer + 1]);
+		}
+	}
+
+	/**
+	 * Runs a datapoint through every layer of this network, using the sparse
+	 * form of its inputs in the first layer when they are sparse enough.
+	 *
+	 * @param datapoint: The datapoint to use.
+	 * @param activations: Arrays to write each layer's outputs to. The dense
+	 * inputs are stored as the first activation only if they are used, since the
+	 * sparse passes never read it.
+	 */
+	private void forward(Data datapoint, double[][] activations) {
+		SparseInputs sparse = sparseInputsOf(datapoint);
+		if (sparse == null) {
+			forward(datapoint.getInputs(), activations);
+			return;
+		}
+		layers[0].forward(sparse, activations[1]);
+		for (int layer = 1; layer < layers.length; layer++) {
+			layers[layer].forward(activations[layer], activations[layer + 1]);
+		}
+	}
+
+	/**
+	 * Returns the sparse form of a datapoint's inputs if the first layer should use it.
+	 *
+	 * @return: The sparse inputs, or null if the dense passes are faster for them.
+	 */
+	private static SparseInputs sparseInputsOf(Data datapoint) {
+		SparseInputs sparse = datapoint.getSparseInputs();
+		return sparse.isSparse() ? sparse : null;
+	}
+
+	/**
+	 * Computes the error terms of the output layer for a datapoint.
+	 */
+	private void outputDeltas(Data datapoint, double[][] activations, double[][] deltas) {
+		int outputLayer = layers.length - 1;
+		double[] outputs = activations[outputLayer + 1];
+		int[] expectedOutputs = datapoint.getClassification();
+		for (int i = 0; i < NUM_OUTPUT_PERCEPTRONS; i++) {
+			double actual = outputs[i];
+			deltas[outputLayer][i] = actual * (1 - actual) * (expectedOutputs[i] - actual);
+		}
+	}
+
+	/**
+	 * Turns the error attributed to the outputs of a layer into its error terms
+	 * by applying the derivative of the sigmoid.
+	 */
+	private static void applySigmoidDerivative(double[] errors, double[] outputs) {
+		for (int j = 0; j < errors.length; j++) {
+			double transfer = outputs[j];
+			errors[j] *= transfer * (1 - transfer);
+		}
+	}
+
+	/**
+	 * Runs an array of inputs through this network and predicts a classification.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @return: The output of this neural network given an array of inputs.
+	 */
+	public double[] classify(Data inputs) {
+		forward(inputs, activations);
+		return Arrays.copyOf(activations[layers.length], NUM_OUTPUT_PERCEPTRONS);
+	}
+
+	/**
+	 * Runs an array of inputs through this network and predicts a classification
+	 * without allocating.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param outputs: An array of NUM_OUTPUT_PERCEPTRONS values to write the outputs to.
+	 */
+	public void classify(double[] inputs, double[] outputs) {
+		forward(inputs, activations);
+		System.arraycopy(activations[layers.length], 0, outputs, 0, NUM_OUTPUT_PERCEPTRONS);
+	}
+
+	/**
+	 * Runs a datapoint through this network and predicts a classification
+	 * without allocating.
+	 *
+	 * @param inputs: The datapoint to use.
+	 * @param outputs: An array of NUM_OUTPUT_PERCEPTRONS values to write the outputs to.
+	 */
+	public void classify(Data inputs, double[] outputs) {
+		forward(inputs, activations);
+		System.arraycopy(activations[layers.length], 0, outputs, 0, NUM_OUTPUT_PERCEPTRONS);
+	}
+
+	/**
+	 * Trains this network on a single datapoint with one step of backpropagation.
+	 *
+	 * Error terms follow the Trainer: the derivative of the sigmoid is applied
+	 * to the error at each perceptron, and the weights of a layer are updated
+	 * after its error has been propagated to the layer before it.
+	 *
+	 * @param datapoint: The datapoint to train on.
+	 * @param learningRate: The learning rate to scale weight updates by.
+	 */
+	public void train(Data datapoint, double learningRate) {
+		forwardPass(datapoint);
+		backwardPass(datapoint, learningRate);
+	}
+
+	/**
+	 * Runs a datapoint through this network, keeping every layer's outputs
+	 * for a following backwardPass. Together they are one call to train.
+	 *
+	 * @param datapoint: The datapoint to train on.
+	 */
+	public void forwardPass(Data datapoint) {
+		forward(datapoint, activations);
+	}
+
+	/**
+	 * Backpropagates the error of the last forwardPass and updates the weights.
+	 *
+	 * @param datapoint: The datapoint given to the last forwardPass.
+	 * @param learningRate: The learning rate to scale weight updates by.
+	 */
+	public void backwardPass(Data datapoint, double learningRate) {
+		outputDeltas(datapoint, activations, deltas);
+		SparseInputs sparse = sparseInputsOf(datapoint);
+
+		for (int layer = layers.length - 1; layer >= 0; layer--) {
+			double[] inputErrors = layer > 0 ? deltas[layer - 1] : null;
+			if (sampleGradients == null) {
+				if (layer == 0 && sparse != null) {
+					layers[layer].backward(sparse, deltas[layer], inputErrors, learningRate);
+				} else {
+					layers[layer].backward(activations[layer], deltas[layer], inputErrors, learningRate);
+				}
+			} else {
+				double[] gradient = sampleGradients[layer];
+				Arrays.fill(gradient, 0);
+				if (layer == 0 && sparse != null) {
+					layers[layer].accumulateGradient(sparse, deltas[layer], inputErrors, gradient);
+				} else {
+					layers[layer].accumulateGradient(activations[layer], deltas[layer], inputErrors, gradient);
+				}
+				updaters[layer].update(layers[layer].getWeights(), gradient, 1, learningRate);
+			}
+			if (inputErrors != null) {
+				applySigmoidDerivative(inputErrors, activations[layer]);
+			}
+		}
+	}
+
+	/**
+	 * Allocates a buffer to accumulate the gradients of this network in.
+	 *
+	 * @return: An empty gradient buffer shaped like this network.
+	 */
+	public GradientBuffer createGradientBuffer() {
+		return new GradientBuffer(layers);
+	}
+
+	/**
+	 * Computes the summed weight gradients of this network over some datapoints
+	 * without changing its weights. Several threads may do this at once,
+	 * each with its own buffer.
+	 *
+	 * @param data: The datapoints to compute gradients for.
+	 * @param buffer: The buffer to write the gradients to. It is cleared first.
+	 */
+	public void computeGradients(List<Data> data, GradientBuffer buffer) {
+		buffer.clear();
+		for (Data datapoint : data) {
+			forward(datapoint, buffer.activations);
+			outputDeltas(datapoint, buffer.activations, buffer.deltas);
+			SparseInputs sparse = sparseInputsOf(datapoint);
+
+			for (int layer = layers.length - 1; layer >= 0; layer--) {
+				double[] inputErrors = layer > 0 ? buffer.deltas[layer - 1] : null;
+				if (layer == 0 && sparse != null) {
+					layers[layer].accumulateGradient(sparse, buffer.deltas[layer], inputErrors, buffer.gradients[layer]);
+				} else {
+					layers[layer].accumulateGradient(buffer.activations[layer], buffer.deltas[layer],
+							inputErrors, buffer.gradients[layer]);
+				}
+				if (inputErrors != null) {
+					applySigmoidDerivative(inputErrors, buffer.activations[layer]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the weights of this network from accumulated gradients with its optimizer.
+	 *
+	 * @param buffer: The gradients to apply.
+	 * @param learningRate: The learning rate.
+	 * @param numSamples: The number of datapoints the gradients were accumulated over.
+	 */
+	public void applyGradients(GradientBuffer buffer, double learningRate, int numSamples) {
+		for (int layer = 0; layer < layers.length; layer++) {
+			updaters[layer].update(layers[layer].getWeights(), buffer.gradients[layer], numSamples, learningRate);
+		}
+	}
+
+	/**
+	 * Copies the weights of this network back into a neural network of the same shape.
+	 *
+	 * @param nnet: The neural network to copy weights to.
+	 */
+	public void copyWeightsTo(NeuralNetwork nnet) {
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		for (int layer = 0; layer < hiddenLayers.length; layer++) {
+			layers[layer].copyWeightsTo(hiddenLayers[layer].getHiddenPerceptrons());
+		}
+		layers[hiddenLayers.length].copyWeightsTo(nnet.getOutputPerceptrons());
+	}
+}
@@ -0,0 +1,59 @@
+package neural_network;
+
+/**
+ * Holds the weight gradients a FlatNeuralNetwork accumulates over a mini-batch,
+ * along with the activations and error terms used to compute them.
+ *
+ * Rationale: each worker thread of a mini-batch owns one buffer, so gradients
+ * can be computed for different samples concurrently and reduced afterwards.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class GradientBuffer {
+
+	final double[][] gradients;
+	final double[][] activations;
+	final double[][] deltas;
+
+	/**
+	 * Construct a gradient buffer shaped like the layers of a network.
+	 *
+	 * @param layers: The layers of the network, the last one being the output layer.
+	 */
+	GradientBuffer(DenseLayer[] layers) {
+		gradients = new double[layers.length][];
+		activations = new double[layers.length + 1][];
+		deltas = new double[layers.length][];
+		for (int layer = 0; layer < layers.length; layer++) {
+			gradients[layer] = new double[layers[layer].getWeights().length];
+			activations[layer + 1] = new double[layers[layer].NUM_PERCEPTRONS];
+			deltas[layer] = new double[layers[layer].NUM_PERCEPTRONS];
+		}
+	}
+
+	/**
+	 * Sets every gradient to zero.
+	 */
+	public void clear() {
+		for (double[] gradient : gradients) {
+			for (int i = 0; i < gradient.length; i++) {
+				gradient[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Adds the gradients of another buffer of the same shape to this one.
+	 *
+	 * @param other: The buffer to add.
+	 */
+	public void add(GradientBuffer other) {
+		for (int layer = 0; layer < gradients.length; layer++) {
+			double[] gradient = gradients[layer];
+			double[] otherGradient = other.gradients[layer];
+			for (int i = 0; i < gradient.length; i++) {
+				gradient[i] += otherGradient[i];
+			}
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package neural_network;
 
 import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a hidden layer in an artificial neural network.
@@ -24,9 +26,31 @@ public class HiddenLayer implements Serializable {
 	 * @param numInputs: The number of inputs to each perceptron.
 	 */
 	public HiddenLayer(int numPerceptrons, int numInputs) {
-		perceptrons = new Perceptron[numPerceptrons];
-		for (int perceptron = 0; perceptron < numPerceptrons; perceptron++) {
-			perceptrons[perceptron] = new Perceptron(numInputs);
+		this(numPerceptrons, numInputs, WeightInitializer.UNIFORM, ThreadLocalRandom.current());
+	}
+	
+	/**
+	 * Construct a hidden layer with weights drawn from a given distribution and generator.
+	 * 
+	 * @param numPerceptrons: The number of perceptrons in this hidden layer.
+	 * @param numInputs: The number of inputs to each perceptron.
+	 * @param initializer: The distribution to draw the weights from.
+	 * @param random: The generator to draw the weights from, perceptron by perceptron.
+	 */
+	public HiddenLayer(int numPerceptrons, int numInputs, WeightInitializer initializer, RandomGenerator random) {
+		this(initializer.initializeLayer(numPerceptrons, numInputs, random));
+	}
+	
+	/**
+	 * Construct a hidden layer with given initial weights.
+	 * 
+	 * @param weights: The initial weights of each perceptron, one per input.
+	 * The perceptrons take ownership of the arrays.
+	 */
+	public HiddenLayer(double[][] weights) {
+		perceptrons = new Perceptron[weights.length];
+		for (int perceptron = 0; perceptron < weights.length; perceptron++) {
+			perceptrons[perceptron] = new Perceptron(weights[perceptron]);
 		}
 	}
 	
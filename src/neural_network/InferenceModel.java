@@ -0,0 +1,41 @@
+package neural_network;
+
+/**
+ * Represents a trained artificial neural network that can only classify.
+ * Implementations may be shared by any number of classifying threads.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public interface InferenceModel {
+
+	/**
+	 * Returns the number of inputs this model expects.
+	 *
+	 * @return: The number of inputs.
+	 */
+	int getNumInputs();
+
+	/**
+	 * Returns the number of outputs this model produces.
+	 *
+	 * @return: The number of output perceptrons.
+	 */
+	int getNumOutputs();
+
+	/**
+	 * Runs an array of inputs through this model and predicts a classification.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param outputs: An array of getNumOutputs() values to write the outputs to.
+	 */
+	void classify(double[] inputs, double[] outputs);
+
+	/**
+	 * Runs a batch of samples through this model.
+	 *
+	 * @param inputs: A row-major matrix of numSamples rows of getNumInputs() inputs.
+	 * @param numSamples: The number of samples in the batch.
+	 * @return: A row-major matrix of numSamples rows of getNumOutputs() outputs.
+	 */
+	double[] classifyBatch(double[] inputs, int numSamples);
+}
@@ -0,0 +1,134 @@
+package neural_network;
+
+import java.util.List;
+
+/**
+ * Represents a read-only view of a trained artificial neural network
+ * that may be shared by any number of classifying threads.
+ *
+ * Rationale: Perceptron keeps the output of its last call to getOutput,
+ * so a NeuralNetwork cannot classify from several threads at once. This view
+ * copies the network's weights on construction and never modifies them, and
+ * activations live in per-call buffers instead of the perceptrons.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class InferenceNetwork implements InferenceModel {
+
+	private final DenseLayer[] layers;
+	private final ThreadLocal<double[][]> activationBuffers;
+	public final int NUM_INPUTS;
+	public final int NUM_OUTPUT_PERCEPTRONS;
+
+	/**
+	 * Construct a read-only copy of an artificial neural network.
+	 * Later changes to the neural network are not seen by this view.
+	 *
+	 * @param nnet: The neural network to copy weights from.
+	 */
+	public InferenceNetwork(NeuralNetwork nnet) {
+		NUM_INPUTS = nnet.NUM_INPUTS;
+		NUM_OUTPUT_PERCEPTRONS = nnet.NUM_OUTPUT_PERCEPTRONS;
+
+		// hidden layers followed by the output layer
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		layers = new DenseLayer[hiddenLayers.length + 1];
+		for (int layer = 0; layer < hiddenLayers.length; layer++) {
+			layers[layer] = new DenseLayer(hiddenLayers[layer].getHiddenPerceptrons(), nnet.getActivation());
+		}
+		layers[hiddenLayers.length] = new DenseLayer(nnet.getOutputPerceptrons(), nnet.getActivation());
+
+		activationBuffers = ThreadLocal.withInitial(this::createActivationBuffers);
+	}
+
+	/**
+	 * Allocates the buffers classify writes each layer's outputs to.
+	 *
+	 * @return: One array per hidden layer followed by one for the output perceptrons.
+	 */
+	public double[][] createActivationBuffers() {
+		double[][] buffers = new double[layers.length][];
+		for (int layer = 0; layer < layers.length; layer++) {
+			buffers[layer] = new double[layers[layer].NUM_PERCEPTRONS];
+		}
+		return buffers;
+	}
+
+	@Override
+	public int getNumInputs() {
+		return NUM_INPUTS;
+	}
+
+	@Override
+	public int getNumOutputs() {
+		return NUM_OUTPUT_PERCEPTRONS;
+	}
+
+	/**
+	 * Runs an array of inputs through this network and predicts a classification.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @return: The output of this neural network given an array of inputs.
+	 */
+	public double[] classify(Data inputs) {
+		return classify(inputs.getInputs(), createActivationBuffers());
+	}
+
+	/**
+	 * Runs an array of inputs through this network and predicts a classification
+	 * using buffers owned by the calling thread.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param outputs: An array of NUM_OUTPUT_PERCEPTRONS values to write the outputs to.
+	 */
+	@Override
+	public void classify(double[] inputs, double[] outputs) {
+		double[] lastOutputs = classify(inputs, activationBuffers.get());
+		System.arraycopy(lastOutputs, 0, outputs, 0, NUM_OUTPUT_PERCEPTRONS);
+	}
+
+	/**
+	 * Runs an array of inputs through this network and predicts a classification
+	 * without allocating: each layer's outputs are written to the given buffers.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param buffers: Buffers from createActivationBuffers that no other thread is using.
+	 * @return: The output of this neural network, which is the last activation buffer.
+	 */
+	public double[] classify(double[] inputs, double[][] buffers) {
+		double[] lastOutputs = inputs;
+		for (int layer = 0; layer < layers.length; layer++) {
+			layers[layer].forward(lastOutputs, buffers[layer]);
+			lastOutputs = buffers[layer];
+		}
+		return lastOutputs;
+	}
+
+	/**
+	 * Runs a batch of samples through this network, one layer at a time.
+	 *
+	 * @param inputs: A row-major matrix of numSamples rows of NUM_INPUTS inputs.
+	 * @param numSamples: The number of samples in the batch.
+	 * @return: A row-major matrix of numSamples rows of NUM_OUTPUT_PERCEPTRONS outputs.
+	 */
+	@Override
+	public double[] classifyBatch(double[] inputs, int numSamples) {
+		double[] lastOutputs = inputs;
+		for (DenseLayer layer : layers) {
+			double[] nextOutputs = new double[numSamples * layer.NUM_PERCEPTRONS];
+			layer.forwardBatch(lastOutputs, numSamples, nextOutputs);
+			lastOutputs = nextOutputs;
+		}
+		return lastOutputs;
+	}
+
+	/**
+	 * Runs a list of datapoints through this network as one batch.
+	 *
+	 * @param data: The datapoints to classify.
+	 * @return: A row-major matrix of one row of NUM_OUTPUT_PERCEPTRONS outputs per datapoint.
+	 */
+	public double[] classifyBatch(List<Data> data) {
+		return classifyBatch(Data.packInputs(data), data.size());
+	}
+}
@@ -0,0 +1,119 @@
+package neural_network;
+
+/**
+ * The vector operations dense layers are built from, with a scalar
+ * implementation and an optional one using the incubating Java Vector API.
+ *
+ * The implementation is chosen once, from the neural_network.kernels system
+ * property: "scalar" (the default), "vector", or "auto" to use the Vector API
+ * whenever it is available. The Vector API needs the JVM to be started with
+ * --add-modules jdk.incubator.vector; without it the scalar kernels are used.
+ *
+ * The scalar kernels add terms in index order, so dense layers produce exactly
+ * the same results as NeuralNetwork. The vector kernels add lanes in parallel
+ * and use fused multiply-adds, so results may differ in the last bits.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public abstract class Kernels {
+
+	public static final String PROPERTY = "neural_network.kernels";
+	private static final String VECTOR_KERNELS = "neural_network.VectorKernels";
+	private static final Kernels SCALAR = new ScalarKernels();
+	private static final Kernels SELECTED = select(System.getProperty(PROPERTY, "scalar"));
+
+	/**
+	 * Returns the kernels chosen by the neural_network.kernels system property.
+	 *
+	 * @return: The kernels dense layers use.
+	 */
+	public static Kernels get() {
+		return SELECTED;
+	}
+
+	/**
+	 * Returns the kernels with a given name.
+	 *
+	 * @param name: "scalar" or "vector".
+	 * @return: The kernels with that name.
+	 * @throws IllegalArgumentException: if the name is unknown or the Vector API is not available.
+	 */
+	public static Kernels forName(String name) {
+		switch (name.toLowerCase()) {
+			case "scalar":
+				return SCALAR;
+
+			case "vector":
+				Kernels vector = loadVectorKernels();
+				if (vector == null) {
+					throw new IllegalArgumentException("The Vector API is not available. "
+							+ "Start the JVM with --add-modules jdk.incubator.vector.");
+				}
+				return vector;
+
+			default:
+				throw new IllegalArgumentException("Unknown kernels: " + name);
+		}
+	}
+
+	/**
+	 * Chooses the kernels named by the system property, falling back to the scalar kernels.
+	 */
+	private static Kernels select(String name) {
+		if (name.equalsIgnoreCase("auto")) {
+			Kernels vector = loadVectorKernels();
+			return vector == null ? SCALAR : vector;
+		}
+		try {
+			return forName(name);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage() + " Using scalar kernels.");
+			return SCALAR;
+		}
+	}
+
+	/**
+	 * Loads the vector kernels by name, so this class never links against the Vector API itself.
+	 *
+	 * @return: The vector kernels, or null if the Vector API is not available.
+	 */
+	private static Kernels loadVectorKernels() {
+		try {
+			return (Kernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the name of these kernels.
+	 *
+	 * @return: "scalar" or "vector".
+	 */
+	public abstract String getName();
+
+	/**
+	 * Adds the dot product of two ranges of values to a sum.
+	 *
+	 * @param sum: The value to add the dot product to.
+	 * @param a: The first array.
+	 * @param aOffset: The index of the first value in a.
+	 * @param b: The second array.
+	 * @param bOffset: The index of the first value in b.
+	 * @param length: The number of values to multiply.
+	 * @return: sum + a[aOffset] * b[bOffset] + ... + a[aOffset + length - 1] * b[bOffset + length - 1].
+	 */
+	public abstract double dot(double sum, double[] a, int aOffset, double[] b, int bOffset, int length);
+
+	/**
+	 * Adds a scaled range of values to another range: y += alpha * x.
+	 *
+	 * @param alpha: The factor to scale x by.
+	 * @param x: The array to scale.
+	 * @param xOffset: The index of the first value in x.
+	 * @param y: The array to add to.
+	 * @param yOffset: The index of the first value in y.
+	 * @param length: The number of values to update.
+	 */
+	public abstract void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+}
@@ -0,0 +1,371 @@
+package neural_network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles a trained neural network into a class of its own, for classifying
+ * faster than the generic loops of InferenceNetwork.
+ *
+ * Rationale: trained networks are small and never change shape, so the
+ * compiler writes Java source in which every loop is unrolled and every weight
+ * is a double literal (in hex, so it is exact). Each group of perceptrons is a
+ * static method of straight-line code, leaving the JIT no loops, weight arrays
+ * or Perceptron objects to load from. The source is compiled in memory with the
+ * JDK's compiler and defined as a hidden class of this package, which can be
+ * unloaded once the model is no longer used.
+ *
+ * Each sum adds its terms in input order from zero and is divided by the
+ * number of inputs before the activation, as in Perceptron, so the compiled
+ * model's outputs are identical to those of NeuralNetwork.classify. Every
+ * compiled model is checked against the network before it is returned.
+ *
+ * A JRE without the java.compiler module cannot compile models; use
+ * isAvailable to fall back to an InferenceNetwork.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class ModelCompiler {
+
+	private static final String CLASS_NAME = "CompiledNetwork";
+
+	// a method interleaves the sums of up to this many perceptrons, enough
+	// independent additions to keep the floating point adders of a core busy
+	private static final int MAX_GROUP = 8;
+
+	// HotSpot does not JIT compile methods of more than 8000 bytes of bytecode,
+	// so methods are kept below that, estimating the bytecode of each input of
+	// a method and of each term of a sum
+	private static final int MAX_METHOD_BYTES = 7000;
+	private static final int BYTES_PER_INPUT = 10;
+	private static final int BYTES_PER_TERM = 10;
+
+	// every weight is a constant, and a class file holds at most 65535 (two per double)
+	private static final int MAX_WEIGHTS = 30000;
+
+	// checked against the network after compiling
+	private static final int NUM_VERIFICATION_SAMPLES = 64;
+
+	private ModelCompiler() {
+	}
+
+	/**
+	 * Returns whether models can be compiled in this JVM.
+	 *
+	 * @return: Is a Java compiler available?
+	 */
+	public static boolean isAvailable() {
+		return ToolProvider.getSystemJavaCompiler() != null;
+	}
+
+	/**
+	 * Compiles a neural network into a read-only model that may be shared by
+	 * any number of classifying threads. Later changes to the neural network
+	 * are not seen by the model.
+	 *
+	 * @param nnet: The neural network to compile.
+	 * @return: The compiled model.
+	 * @throws IllegalArgumentException: if the network is too large to compile.
+	 * @throws NeuralNetworkException: if no compiler is available or compiling fails.
+	 */
+	public static InferenceModel compile(NeuralNetwork nnet) throws NeuralNetworkException {
+		String source = generateSource(nnet);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new NeuralNetworkException("No Java compiler is available to compile the model. "
+					+ "Run on a JDK with the java.compiler module.");
+		}
+
+		byte[] classBytes = compileSource(compiler, source);
+
+		// the buffers are created here, since lambdas cannot be linked from a hidden class
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		ThreadLocal<double[][]> hiddenActivations = ThreadLocal.withInitial(() -> {
+			double[][] buffers = new double[hiddenLayers.length][];
+			for (int layer = 0; layer < hiddenLayers.length; layer++) {
+				buffers[layer] = new double[hiddenLayers[layer].getNumPerceptrons()];
+			}
+			return buffers;
+		});
+		InferenceModel model;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+			model = (InferenceModel) lookup.findConstructor(lookup.lookupClass(),
+					MethodType.methodType(void.class, ThreadLocal.class)).invoke(hiddenActivations);
+		} catch (Throwable e) {
+			throw new NeuralNetworkException("Error loading the compiled model: " + e, e);
+		}
+		verify(nnet, model);
+		return model;
+	}
+
+	/**
+	 * Writes the source of the class a neural network compiles to.
+	 *
+	 * @param nnet: The neural network to compile.
+	 * @return: The Java source of a class named CompiledNetwork in this package.
+	 * @throws IllegalArgumentException: if the network is too large to compile.
+	 */
+	public static String generateSource(NeuralNetwork nnet) {
+		Perceptron[][] layers = getLayers(nnet);
+		checkSize(layers);
+		int numOutputs = nnet.NUM_OUTPUT_PERCEPTRONS;
+
+		StringBuilder source = new StringBuilder(64 * 1024);
+		source.append("package neural_network;\n\n");
+		source.append("final class ").append(CLASS_NAME).append(" implements InferenceModel {\n\n");
+		source.append("\tprivate static final Activation ACTIVATION = Activation.")
+				.append(nnet.getActivation().name()).append(";\n");
+		source.append("\tprivate final ThreadLocal<double[][]> hiddenActivations;\n\n");
+		source.append("\t").append(CLASS_NAME).append("(ThreadLocal<double[][]> hiddenActivations) {\n");
+		source.append("\t\tthis.hiddenActivations = hiddenActivations;\n\t}\n\n");
+
+		source.append("\tpublic int getNumInputs() {\n\t\treturn ").append(nnet.NUM_INPUTS).append(";\n\t}\n\n");
+		source.append("\tpublic int getNumOutputs() {\n\t\treturn ").append(numOutputs).append(";\n\t}\n\n");
+
+		source.append("\tpublic void classify(double[] inputs, double[] outputs) {\n");
+		source.append("\t\tif (inputs.length != ").append(nnet.NUM_INPUTS).append(") {\n");
+		source.append("\t\t\tthrow new IllegalArgumentException(\"The number of given inputs is not equal to the number of expected inputs.\");\n");
+		source.append("\t\t}\n");
+		source.append("\t\tforward(inputs, 0, outputs, 0, hiddenActivations.get());\n\t}\n\n");
+
+		source.append("\tpublic double[] classifyBatch(double[] inputs, int numSamples) {\n");
+		source.append("\t\tif (inputs.length < numSamples * ").append(nnet.NUM_INPUTS).append(") {\n");
+		source.append("\t\t\tthrow new IllegalArgumentException(\"The batch does not hold the given number of samples.\");\n");
+		source.append("\t\t}\n");
+		source.append("\t\tdouble[] outputs = new double[numSamples * ").append(numOutputs).append("];\n");
+		source.append("\t\tdouble[][] hidden = hiddenActivations.get();\n");
+		source.append("\t\tfor (int sample = 0; sample < numSamples; sample++) {\n");
+		source.append("\t\t\tforward(inputs, sample * ").append(nnet.NUM_INPUTS).append(", outputs, sample * ")
+				.append(numOutputs).append(", hidden);\n");
+		source.append("\t\t}\n\t\treturn outputs;\n\t}\n\n");
+
+		// forward runs each layer as groups of perceptrons, from the inputs through
+		// a thread's hidden activations to the outputs
+		source.append("\tprivate static void forward(double[] x, int offset, double[] y, int outputOffset, double[][] hidden) {\n");
+		for (int layer = 0; layer < layers.length; layer++) {
+			String in = layer == 0 ? "x, offset" : "hidden[" + (layer - 1) + "], 0";
+			String out = layer == layers.length - 1 ? "y, outputOffset" : "hidden[" + layer + "], 0";
+			int groupSize = getGroupSize(layers[layer][0].getWeights().length);
+			for (int group = 0; group * groupSize < layers[layer].length; group++) {
+				source.append("\t\tg").append(layer).append('_').append(group).append('(').append(in).append(", ")
+						.append(out).append(");\n");
+			}
+		}
+		source.append("\t}\n");
+
+		for (int layer = 0; layer < layers.length; layer++) {
+			int groupSize = getGroupSize(layers[layer][0].getWeights().length);
+			for (int group = 0; group * groupSize < layers[layer].length; group++) {
+				int first = group * groupSize;
+				int last = Math.min(first + groupSize, layers[layer].length);
+				appendGroup(source, layer, group, Arrays.copyOfRange(layers[layer], first, last), first);
+			}
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Appends a method computing a group of perceptrons of one layer. Their sums
+	 * are interleaved, one input at a time, so the additions of different sums
+	 * can overlap while each sum still adds its terms in input order.
+	 *
+	 * @param source: The source to append to.
+	 * @param layer: The index of the layer.
+	 * @param group: The index of the group in its layer.
+	 * @param perceptrons: The perceptrons of the group.
+	 * @param first: The index of the first perceptron of the group in its layer.
+	 */
+	private static void appendGroup(StringBuilder source, int layer, int group, Perceptron[] perceptrons, int first) {
+		int numInputs = perceptrons[0].getWeights().length;
+		source.append("\n\tprivate static void g").append(layer).append('_').append(group)
+				.append("(double[] x, int offset, double[] y, int outputOffset) {\n");
+		for (int perceptron = 0; perceptron < perceptrons.length; perceptron++) {
+			source.append("\t\tdouble sum").append(perceptron).append(" = 0;\n");
+		}
+		source.append("\t\tdouble input;\n");
+		for (int input = 0; input < numInputs; input++) {
+			source.append("\t\tinput = x[offset + ").append(input).append("];\n");
+			for (int perceptron = 0; perceptron < perceptrons.length; perceptron++) {
+				source.append("\t\tsum").append(perceptron).append(" += input * ")
+						.append(literal(perceptrons[perceptron].getWeights()[input])).append(";\n");
+			}
+		}
+		for (int perceptron = 0; perceptron < perceptrons.length; perceptron++) {
+			source.append("\t\ty[outputOffset + ").append(first + perceptron).append("] = ACTIVATION.apply(sum")
+					.append(perceptron).append(" / ").append(numInputs).append(");\n");
+		}
+		source.append("\t}\n");
+	}
+
+	/**
+	 * Returns the weighted layers of a network: its hidden layers followed by its output layer.
+	 */
+	private static Perceptron[][] getLayers(NeuralNetwork nnet) {
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		Perceptron[][] layers = new Perceptron[hiddenLayers.length + 1][];
+		for (int layer = 0; layer < hiddenLayers.length; layer++) {
+			layers[layer] = hiddenLayers[layer].getHiddenPerceptrons();
+		}
+		layers[hiddenLayers.length] = nnet.getOutputPerceptrons();
+		return layers;
+	}
+
+	/**
+	 * Returns how many perceptrons of a layer one method computes: up to
+	 * MAX_GROUP, as long as the method stays small enough to be JIT compiled.
+	 *
+	 * @param numInputs: The number of inputs of each perceptron of the layer.
+	 * @return: The number of perceptrons per method, 0 if even one is too large.
+	 */
+	private static int getGroupSize(int numInputs) {
+		return Math.max(0, Math.min(MAX_GROUP, (MAX_METHOD_BYTES / numInputs - BYTES_PER_INPUT) / BYTES_PER_TERM));
+	}
+
+	/**
+	 * Checks that the generated class stays within the limits of a class file
+	 * and that every generated method is small enough to be JIT compiled.
+	 *
+	 * @throws IllegalArgumentException: if it would not.
+	 */
+	private static void checkSize(Perceptron[][] layers) {
+		int numWeights = 0;
+		for (Perceptron[] layer : layers) {
+			int numInputs = layer[0].getWeights().length;
+			if (getGroupSize(numInputs) == 0) {
+				throw new IllegalArgumentException(String.format("Perceptrons of more than %d inputs are too large to compile.",
+						MAX_METHOD_BYTES / (BYTES_PER_INPUT + BYTES_PER_TERM)));
+			}
+			numWeights += layer.length * numInputs;
+		}
+		if (numWeights > MAX_WEIGHTS) {
+			throw new IllegalArgumentException(String.format("Networks of more than %d weights are too large to compile.",
+					MAX_WEIGHTS));
+		}
+	}
+
+	/**
+	 * Formats a weight as a Java expression of exactly its value.
+	 */
+	private static String literal(double weight) {
+		if (Double.isNaN(weight)) {
+			return "Double.NaN";
+		}
+		if (Double.isInfinite(weight)) {
+			return weight > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+		}
+		String hex = Double.toHexString(weight);
+		return hex.startsWith("-") ? "(" + hex + ")" : hex;
+	}
+
+	/**
+	 * Compiles the source of one class in memory.
+	 *
+	 * @return: The class file.
+	 * @throws NeuralNetworkException: if the source does not compile.
+	 */
+	private static byte[] compileSource(JavaCompiler compiler, String source) throws NeuralNetworkException {
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null,
+				StandardCharsets.UTF_8);
+		ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+		JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+					FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension),
+						kind) {
+					@Override
+					public OutputStream openOutputStream() {
+						return classBytes;
+					}
+				};
+			}
+		};
+		JavaFileObject sourceFile = new SimpleJavaFileObject(
+				URI.create("string:///neural_network/" + CLASS_NAME + JavaFileObject.Kind.SOURCE.extension),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		List<String> options = List.of("-classpath", getClasspath(), "-g:none", "-proc:none", "-nowarn");
+		boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null, List.of(sourceFile)).call();
+		if (!compiled) {
+			StringBuilder errors = new StringBuilder("Error compiling the model:");
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+				errors.append('\n').append(diagnostic.getMessage(null));
+			}
+			throw new NeuralNetworkException(errors.toString());
+		}
+		return classBytes.toByteArray();
+	}
+
+	/**
+	 * Returns the classpath the generated source is compiled against: wherever
+	 * this package was loaded from, or else the JVM's classpath.
+	 */
+	private static String getClasspath() {
+		CodeSource codeSource = ModelCompiler.class.getProtectionDomain().getCodeSource();
+		if (codeSource != null && codeSource.getLocation() != null) {
+			try {
+				return Paths.get(codeSource.getLocation().toURI()).toString();
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// not a file, use the JVM's classpath
+			}
+		}
+		return System.getProperty("java.class.path");
+	}
+
+	/**
+	 * Checks that a compiled model gives exactly the outputs of its network,
+	 * on a zero vector and on random vectors spanning the range of spambase features.
+	 *
+	 * @throws NeuralNetworkException: if any output differs.
+	 */
+	private static void verify(NeuralNetwork nnet, InferenceModel model) throws NeuralNetworkException {
+		SplittableRandom random = new SplittableRandom(NUM_VERIFICATION_SAMPLES);
+		double[][] activationBuffers = nnet.createActivationBuffers();
+		double[] inputs = new double[nnet.NUM_INPUTS];
+		double[] outputs = new double[nnet.NUM_OUTPUT_PERCEPTRONS];
+		for (int sample = 0; sample < NUM_VERIFICATION_SAMPLES; sample++) {
+			// the first sample is all zeros, the rest are sparse with growing magnitudes
+			double scale = Math.pow(10, sample % 5 - 1);
+			for (int input = 0; sample > 0 && input < inputs.length; input++) {
+				inputs[input] = random.nextInt(4) == 0 ? random.nextDouble(scale) : 0;
+			}
+			double[] expected = nnet.classify(inputs, activationBuffers);
+			model.classify(inputs, outputs);
+			for (int output = 0; output < outputs.length; output++) {
+				if (Double.doubleToLongBits(outputs[output]) != Double.doubleToLongBits(expected[output])) {
+					throw new NeuralNetworkException(String.format(
+							"The compiled model output %s where the network output %s.", outputs[output], expected[output]));
+				}
+			}
+		}
+	}
+}
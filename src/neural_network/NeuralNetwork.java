@@ -1,6 +1,8 @@
 package neural_network;
 
 import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents an artificial neural network.
@@ -19,6 +21,7 @@ public class NeuralNetwork implements Serializable {
 	public final int NUM_INPUTS;
 	public final int NUM_HIDDEN_LAYERS;
 	public final int NUM_OUTPUT_PERCEPTRONS;
+	private Activation activation = Activation.EXACT;
 	
 	/**
 	 * Construct the artificial neural network.
@@ -29,6 +32,25 @@ public class NeuralNetwork implements Serializable {
 	 * @param numOutputPerceptrons: The number of output perceptrons.
 	 */
 	public NeuralNetwork(int numInputs, int numHiddenLayers, int numHiddenPerceptrons, int numOutputPerceptrons) {
+		this(numInputs, numHiddenLayers, numHiddenPerceptrons, numOutputPerceptrons,
+				WeightInitializer.UNIFORM, ThreadLocalRandom.current());
+	}
+	
+	/**
+	 * Construct the artificial neural network with weights drawn from a given
+	 * distribution and generator. The weights depend only on the shape, the
+	 * initializer and the generator's state, so a seeded generator, e.g. a
+	 * SplittableRandom, builds the same network every time.
+	 * 
+	 * @param numInputs: The number of inputs.
+	 * @param numHiddenLayers: The number of hidden layers in this neural network.
+	 * @param numHiddenPerceptrons: The number of perceptrons in each hidden layer.
+	 * @param numOutputPerceptrons: The number of output perceptrons.
+	 * @param initializer: The distribution to draw the weights from.
+	 * @param random: The generator to draw the weights from, layer by layer.
+	 */
+	public NeuralNetwork(int numInputs, int numHiddenLayers, int numHiddenPerceptrons, int numOutputPerceptrons,
+			WeightInitializer initializer, RandomGenerator random) {
 		if (numHiddenLayers <= 0) {
 			throw new IllegalArgumentException("The number of hidden layers must be greater than zero.");
 		}
@@ -38,16 +60,93 @@ public class NeuralNetwork implements Serializable {
 		
 		// Initialize hidden layers
 		hiddenLayers = new HiddenLayer[NUM_HIDDEN_LAYERS];
-		hiddenLayers[0] = new HiddenLayer(numHiddenPerceptrons, numInputs);
+		hiddenLayers[0] = new HiddenLayer(numHiddenPerceptrons, numInputs, initializer, random);
 		for (int hiddenLayer = 1; hiddenLayer < NUM_HIDDEN_LAYERS; hiddenLayer++) {
-			hiddenLayers[hiddenLayer] = new HiddenLayer(numHiddenPerceptrons, numHiddenPerceptrons);
+			hiddenLayers[hiddenLayer] = new HiddenLayer(numHiddenPerceptrons, numHiddenPerceptrons, initializer, random);
 		}
 		
 		// Initialize output perceptrons
+		double[][] outputWeights = initializer.initializeLayer(NUM_OUTPUT_PERCEPTRONS, numHiddenPerceptrons, random);
 		outputPerceptrons = new Perceptron[NUM_OUTPUT_PERCEPTRONS];
 		for (int outputPerceptron = 0; outputPerceptron < NUM_OUTPUT_PERCEPTRONS; outputPerceptron++) {
-			outputPerceptrons[outputPerceptron] = new Perceptron(numHiddenPerceptrons);
+			outputPerceptrons[outputPerceptron] = new Perceptron(outputWeights[outputPerceptron]);
+		}
+	}
+	
+	/**
+	 * Construct the artificial neural network with given initial weights, e.g.
+	 * ones read from a file, so that reset returns to them.
+	 * 
+	 * @param numInputs: The number of inputs.
+	 * @param weights: The weights of each layer, the output layer last, as one
+	 * array per perceptron holding one weight per input of its layer. The
+	 * perceptrons take ownership of the arrays.
+	 * @throws IllegalArgumentException: if there is no hidden layer or a perceptron
+	 * does not have one weight per input of its layer.
+	 */
+	public NeuralNetwork(int numInputs, double[][][] weights) {
+		if (weights.length < 2) {
+			throw new IllegalArgumentException("The number of hidden layers must be greater than zero.");
+		}
+		int layerInputs = numInputs;
+		for (double[][] layer : weights) {
+			if (layer.length == 0) {
+				throw new IllegalArgumentException("Every layer must have at least one perceptron.");
+			}
+			for (double[] perceptronWeights : layer) {
+				if (perceptronWeights.length != layerInputs) {
+					throw new IllegalArgumentException(String.format("A perceptron has %d weights, expected %d.",
+							perceptronWeights.length, layerInputs));
+				}
+			}
+			layerInputs = layer.length;
+		}
+		NUM_INPUTS = numInputs;
+		NUM_HIDDEN_LAYERS = weights.length - 1;
+		NUM_OUTPUT_PERCEPTRONS = weights[NUM_HIDDEN_LAYERS].length;
+		
+		hiddenLayers = new HiddenLayer[NUM_HIDDEN_LAYERS];
+		for (int hiddenLayer = 0; hiddenLayer < NUM_HIDDEN_LAYERS; hiddenLayer++) {
+			hiddenLayers[hiddenLayer] = new HiddenLayer(weights[hiddenLayer]);
+		}
+		outputPerceptrons = new Perceptron[NUM_OUTPUT_PERCEPTRONS];
+		for (int outputPerceptron = 0; outputPerceptron < NUM_OUTPUT_PERCEPTRONS; outputPerceptron++) {
+			outputPerceptrons[outputPerceptron] = new Perceptron(weights[NUM_HIDDEN_LAYERS][outputPerceptron]);
+		}
+	}
+	
+	/**
+	 * Construct a copy of an artificial neural network: same shape, activation
+	 * and current weights, which become the copy's initial weights.
+	 * 
+	 * @param nnet: The neural network to copy.
+	 */
+	public NeuralNetwork(NeuralNetwork nnet) {
+		this(nnet.NUM_INPUTS, copyWeights(nnet));
+		activation = nnet.getActivation();
+	}
+	
+	/**
+	 * Copies the current weights of every perceptron of a network, the output layer last.
+	 */
+	private static double[][][] copyWeights(NeuralNetwork nnet) {
+		double[][][] weights = new double[nnet.NUM_HIDDEN_LAYERS + 1][][];
+		for (int hiddenLayer = 0; hiddenLayer < nnet.NUM_HIDDEN_LAYERS; hiddenLayer++) {
+			weights[hiddenLayer] = copyWeights(nnet.hiddenLayers[hiddenLayer].getHiddenPerceptrons());
 		}
+		weights[nnet.NUM_HIDDEN_LAYERS] = copyWeights(nnet.outputPerceptrons);
+		return weights;
+	}
+	
+	/**
+	 * Copies the current weights of some perceptrons.
+	 */
+	private static double[][] copyWeights(Perceptron[] perceptrons) {
+		double[][] weights = new double[perceptrons.length][];
+		for (int perceptron = 0; perceptron < perceptrons.length; perceptron++) {
+			weights[perceptron] = perceptrons[perceptron].getWeights().clone();
+		}
+		return weights;
 	}
 	
 	/**
@@ -69,7 +168,26 @@ public class NeuralNetwork implements Serializable {
 	}
 	
 	/**
-	 * Resets all perceptrons in this neural network to their original random weights.
+	 * Returns the transfer function used by every perceptron in this network.
+	 * 
+	 * @return: The activation of this network.
+	 */
+	public Activation getActivation() {
+		// networks serialized before activations were added have none
+		return activation == null ? Activation.EXACT : activation;
+	}
+	
+	/**
+	 * Sets the transfer function used by every perceptron in this network.
+	 * 
+	 * @param activation: The activation to use.
+	 */
+	public void setActivation(Activation activation) {
+		this.activation = activation;
+	}
+	
+	/**
+	 * Resets all perceptrons in this neural network to their initial weights.
 	 */
 	public void reset() {
 		for (HiddenLayer hiddenLayer : hiddenLayers) {
@@ -81,6 +199,20 @@ public class NeuralNetwork implements Serializable {
 		}
 	}
 	
+	/**
+	 * Allocates the buffers classify writes each layer's outputs to.
+	 * 
+	 * @return: One array per hidden layer followed by one for the output perceptrons.
+	 */
+	public double[][] createActivationBuffers() {
+		double[][] activationBuffers = new double[NUM_HIDDEN_LAYERS + 1][];
+		for (int hiddenLayer = 0; hiddenLayer < NUM_HIDDEN_LAYERS; hiddenLayer++) {
+			activationBuffers[hiddenLayer] = new double[hiddenLayers[hiddenLayer].getNumPerceptrons()];
+		}
+		activationBuffers[NUM_HIDDEN_LAYERS] = new double[NUM_OUTPUT_PERCEPTRONS];
+		return activationBuffers;
+	}
+	
 	/**
 	 * Runs an array of inputs through this network and predicts a classification.
 	 *  
@@ -88,20 +220,33 @@ public class NeuralNetwork implements Serializable {
 	 * @return: The output of this neural network given an array of inputs.
 	 */
 	public double[] classify(Data inputs) {
-		double[] lastOutputs = inputs.getInputs();
+		return classify(inputs.getInputs(), createActivationBuffers());
+	}
+	
+	/**
+	 * Runs an array of inputs through this network and predicts a classification
+	 * without allocating: each layer's outputs are written to the given buffers.
+	 * 
+	 * @param inputs: The inputs to use.
+	 * @param activationBuffers: Buffers from createActivationBuffers to reuse.
+	 * @return: The output of this neural network, which is the last activation buffer.
+	 */
+	public double[] classify(double[] inputs, double[][] activationBuffers) {
+		Activation activation = getActivation();
+		double[] lastOutputs = inputs;
 		
 		for (int hiddenLayer = 0; hiddenLayer < NUM_HIDDEN_LAYERS; hiddenLayer++) {
 			Perceptron[] hiddenPerceptrons = hiddenLayers[hiddenLayer].getHiddenPerceptrons();
-			double[] nextOutputs = new double[hiddenPerceptrons.length];
+			double[] nextOutputs = activationBuffers[hiddenLayer];
 			for (int hiddenPerceptron = 0; hiddenPerceptron < hiddenPerceptrons.length; hiddenPerceptron++) {
-				nextOutputs[hiddenPerceptron] = hiddenPerceptrons[hiddenPerceptron].getOutput(lastOutputs);
+				nextOutputs[hiddenPerceptron] = hiddenPerceptrons[hiddenPerceptron].getOutput(lastOutputs, activation);
 			}
 			lastOutputs = nextOutputs;
 		}
 		
-		double[] output = new double[NUM_OUTPUT_PERCEPTRONS];
+		double[] output = activationBuffers[NUM_HIDDEN_LAYERS];
 		for (int outputPerceptron = 0; outputPerceptron < NUM_OUTPUT_PERCEPTRONS; outputPerceptron++) {
-			output[outputPerceptron] = outputPerceptrons[outputPerceptron].getOutput(lastOutputs);
+			output[outputPerceptron] = outputPerceptrons[outputPerceptron].getOutput(lastOutputs, activation);
 		}
 		
 		return output;
@@ -0,0 +1,178 @@
+package neural_network;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps training a loaded neural network on labeled datapoints as they arrive,
+ * e.g. mail users flagged as misclassified, while other threads classify with it.
+ *
+ * Rationale: classifying threads read an InferenceNetwork snapshot of the
+ * weights from an AtomicReference and never take a lock. Learning threads take
+ * turns training a private FlatNeuralNetwork with the same backpropagation step
+ * as the Trainer, then copy its weights into a new snapshot and publish it with
+ * one reference write. A classification therefore always sees the weights from
+ * before or after an update, never a mix, and a batch is classified entirely
+ * with one snapshot.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class OnlineLearner implements InferenceModel {
+
+	/**
+	 * The learning rate used when none is given is the optimizer's training
+	 * rate scaled by this, since feedback refines an already trained network.
+	 * Adam at a tenth of its rate improved a spambase network on its own
+	 * training data, where SGD and momentum at any useful rate made it worse.
+	 */
+	public static final double DEFAULT_LEARNING_RATE_SCALE = .1;
+
+	private final NeuralNetwork nnet;
+	private final FlatNeuralNetwork flatNet;
+	private final AtomicReference<InferenceNetwork> snapshot;
+	private long updates;
+	public final double LEARNING_RATE;
+
+	/**
+	 * Construct an online learner that continues training a neural network.
+	 * The weights of the neural network are updated each time a snapshot is published.
+	 *
+	 * @param nnet: The trained neural network to continue training.
+	 * @param optimizer: The rule to update weights with. Its state starts from zero.
+	 * @param learningRate: The learning rate to scale weight updates by.
+	 */
+	public OnlineLearner(NeuralNetwork nnet, Optimizer optimizer, double learningRate) {
+		if (!(learningRate > 0)) {
+			throw new IllegalArgumentException("The learning rate must be positive.");
+		}
+		this.nnet = nnet;
+		LEARNING_RATE = learningRate;
+		flatNet = new FlatNeuralNetwork(nnet);
+		flatNet.setOptimizer(optimizer);
+		snapshot = new AtomicReference<>(new InferenceNetwork(nnet));
+	}
+
+	/**
+	 * Construct an online learner that continues training a neural network with
+	 * Adam at a tenth of its training learning rate.
+	 *
+	 * @param nnet: The trained neural network to continue training.
+	 */
+	public OnlineLearner(NeuralNetwork nnet) {
+		this(nnet, Optimizer.ADAM, Optimizer.ADAM.DEFAULT_LEARNING_RATE * DEFAULT_LEARNING_RATE_SCALE);
+	}
+
+	/**
+	 * Trains on one labeled datapoint and publishes the updated weights.
+	 *
+	 * @param datapoint: The datapoint to learn from.
+	 */
+	public void learn(Data datapoint) {
+		learn(List.of(datapoint));
+	}
+
+	/**
+	 * Trains on labeled datapoints one at a time, in order, and publishes the
+	 * updated weights once all of them have been learned. Nothing is learned
+	 * unless every datapoint is valid.
+	 *
+	 * @param data: The datapoints to learn from.
+	 * @throws IllegalArgumentException: if a datapoint does not match the shape of the
+	 * network, has an input that is not finite or a classification other than 0 or 1.
+	 */
+	public synchronized void learn(List<Data> data) {
+		for (Data datapoint : data) {
+			if (datapoint.getInputs().length != flatNet.NUM_INPUTS
+					|| datapoint.getClassification().length != flatNet.NUM_OUTPUT_PERCEPTRONS) {
+				throw new IllegalArgumentException("The datapoint does not match the shape of the network.");
+			}
+			for (double input : datapoint.getInputs()) {
+				if (!Double.isFinite(input)) {
+					// one NaN would spread through the optimizer into every weight
+					throw new IllegalArgumentException("The datapoint has an input that is not finite.");
+				}
+			}
+			for (int classification : datapoint.getClassification()) {
+				if (classification != 0 && classification != 1) {
+					throw new IllegalArgumentException("The datapoint has a classification other than 0 or 1.");
+				}
+			}
+		}
+		if (data.isEmpty()) {
+			return;
+		}
+		for (Data datapoint : data) {
+			flatNet.train(datapoint, LEARNING_RATE);
+		}
+		updates += data.size();
+
+		// copy on write: readers keep the old snapshot until the new one is complete
+		flatNet.copyWeightsTo(nnet);
+		snapshot.set(new InferenceNetwork(nnet));
+	}
+
+	/**
+	 * Returns the weights most recently published. They never change, so the
+	 * snapshot may be used to classify any number of samples consistently.
+	 *
+	 * @return: A read-only copy of the network.
+	 */
+	public InferenceNetwork getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Returns the number of datapoints learned so far.
+	 *
+	 * @return: The number of datapoints.
+	 */
+	public synchronized long getUpdates() {
+		return updates;
+	}
+
+	/**
+	 * Copies the published weights into a new neural network, e.g. to save it.
+	 *
+	 * @return: A neural network of the same shape and activation as the one being trained.
+	 */
+	public synchronized NeuralNetwork copyNeuralNetwork() {
+		NeuralNetwork copy = new NeuralNetwork(nnet.NUM_INPUTS, nnet.NUM_HIDDEN_LAYERS,
+				nnet.getHiddenLayers()[0].getHiddenPerceptrons().length, nnet.NUM_OUTPUT_PERCEPTRONS);
+		copy.setActivation(nnet.getActivation());
+		flatNet.copyWeightsTo(copy);
+		return copy;
+	}
+
+	@Override
+	public int getNumInputs() {
+		return flatNet.NUM_INPUTS;
+	}
+
+	@Override
+	public int getNumOutputs() {
+		return flatNet.NUM_OUTPUT_PERCEPTRONS;
+	}
+
+	/**
+	 * Runs an array of inputs through the published weights.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param outputs: An array of NUM_OUTPUT_PERCEPTRONS values to write the outputs to.
+	 */
+	@Override
+	public void classify(double[] inputs, double[] outputs) {
+		snapshot.get().classify(inputs, outputs);
+	}
+
+	/**
+	 * Runs a batch of samples through one snapshot of the published weights.
+	 *
+	 * @param inputs: A row-major matrix of numSamples rows of NUM_INPUTS inputs.
+	 * @param numSamples: The number of samples in the batch.
+	 * @return: A row-major matrix of numSamples rows of NUM_OUTPUT_PERCEPTRONS outputs.
+	 */
+	@Override
+	public double[] classifyBatch(double[] inputs, int numSamples) {
+		return snapshot.get().classifyBatch(inputs, numSamples);
+	}
+}
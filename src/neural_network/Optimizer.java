@@ -0,0 +1,75 @@
+package neural_network;
+
+/**
+ * The rule used to turn weight gradients into weight updates while training.
+ *
+ * Every rule but SGD keeps per-weight state, held in flat arrays parallel to
+ * each DenseLayer's weight matrix. The state belongs to one FlatNeuralNetwork,
+ * so it is created fresh for every network that is trained.
+ *
+ * Gradients here point the way the weights should move (the error terms of
+ * the Trainer already carry the sign), so every update adds to the weights.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public enum Optimizer {
+
+	/**
+	 * Plain stochastic gradient descent: w += rate * g.
+	 */
+	SGD(.1) {
+		@Override
+		WeightUpdater newUpdater(int numWeights) {
+			return new WeightUpdater.Sgd();
+		}
+	},
+
+	/**
+	 * Gradient descent with classical momentum: v = 0.9v + g, w += rate * v.
+	 */
+	MOMENTUM(.02) {
+		@Override
+		WeightUpdater newUpdater(int numWeights) {
+			return new WeightUpdater.Momentum(numWeights);
+		}
+	},
+
+	/**
+	 * RMSProp: every weight's step is divided by a decaying root mean square
+	 * of its gradients, s = 0.9s + 0.1g^2, w += rate * g / (sqrt(s) + 1e-8).
+	 */
+	RMSPROP(.003) {
+		@Override
+		WeightUpdater newUpdater(int numWeights) {
+			return new WeightUpdater.RmsProp(numWeights);
+		}
+	},
+
+	/**
+	 * Adam: RMSProp on a decaying mean of the gradients, with both averages
+	 * corrected for starting at zero (beta1 = 0.9, beta2 = 0.999, epsilon = 1e-8).
+	 */
+	ADAM(.02) {
+		@Override
+		WeightUpdater newUpdater(int numWeights) {
+			return new WeightUpdater.Adam(numWeights);
+		}
+	};
+
+	/**
+	 * The learning rate used when none is given, tuned on the spambase data.
+	 */
+	public final double DEFAULT_LEARNING_RATE;
+
+	Optimizer(double defaultLearningRate) {
+		DEFAULT_LEARNING_RATE = defaultLearningRate;
+	}
+
+	/**
+	 * Creates the state of this rule for one weight matrix.
+	 *
+	 * @param numWeights: The number of weights in the matrix.
+	 * @return: A weight updater with all of its state zeroed.
+	 */
+	abstract WeightUpdater newUpdater(int numWeights);
+}
@@ -2,7 +2,7 @@ package neural_network;
 
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Represents a perceptron in an artificial neural network.
@@ -24,56 +24,54 @@ public class Perceptron implements Serializable {
 	 * @param numInputs: The number of inputs connected to this perceptron.
 	 */
 	public Perceptron(int numInputs) {
-		NUM_INPUTS = numInputs;
-		weights = new double[NUM_INPUTS];
-		
-		Random rand = new Random();
-		for (int i = 0; i < NUM_INPUTS; i++) {
-			// initialize weights between to values -1 and 1
-			weights[i] = Math.pow(-1, (rand.nextInt(2) + 1)) * rand.nextDouble();
-		}
-		initialWeights = Arrays.copyOf(weights, numInputs);
+		// initialize weights between -1 and 1
+		this(WeightInitializer.UNIFORM.initialize(new double[numInputs], numInputs, 1, ThreadLocalRandom.current()));
+	}
+	
+	/**
+	 * Construct a perceptron with given initial weights, one per input.
+	 *  
+	 * @param weights: The initial weights. The perceptron takes ownership of the array.
+	 */
+	public Perceptron(double[] weights) {
+		NUM_INPUTS = weights.length;
+		this.weights = weights;
+		initialWeights = Arrays.copyOf(weights, NUM_INPUTS);
 		transferValue = -1;
 	}
 	
 	/**
 	 * Aggregates the weighted inputs connected to this perceptron.
+	 * Each input is multiplied by its weight and summed in a single pass
+	 * so no intermediate array of weighted inputs is allocated.
 	 * 
 	 * @param inputs: An array of inputs to aggregate.
 	 * 
 	 * @throws IllegalArgumentException: input array length must be equal to the 
 	 * number of inputs given upon instantiation.
 	 */
-	private double[] generateWeightedInputs(double[] inputs) {
+	private double aggregateWeightedInputs(double[] inputs) {
 		if (inputs.length != NUM_INPUTS) {
 			String errorStr = "The number of given inputs is not equal to the number of expected inputs.";
 			throw new IllegalArgumentException(errorStr);
 		}
 		
-		double[] weightedInputs = new double[inputs.length];
-		for (int i = 0; i < inputs.length; i++) {
-			weightedInputs[i] = inputs[i] * weights[i];
-		}
-		return weightedInputs;
-	}
-	
-	/**
-	 * Aggregates the weighted inputs connected to this perceptron.
-	 */
-	private double aggregateWeightedInputs(double[] weightedInputs) {
 		double sum = 0;
-		for (double d : weightedInputs) {
-			sum += d;
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			sum += inputs[i] * weights[i];
 		}
-		return sum / weightedInputs.length;
+		return sum / NUM_INPUTS;
 	}
 	
 	/**
-	 * Implements a sigmoid function that converts the weighted inputs' sum
-	 * to a value between 0 and 1.
+	 * Returns an output based on the aggregation and transformation
+	 * of the weighted inputs passed in, using the exact sigmoid function.
+	 *  
+	 * @param inputs: An array of inputs to aggregate.
+	 * @return: Boolean output based on value generated by transfer function.
 	 */
-	private double normalize(double sum) {
-		return 1 / (1 + Math.pow(Math.E, -sum));
+	public double getOutput(double[] inputs) {
+		return getOutput(inputs, Activation.EXACT);
 	}
 	
 	/**
@@ -81,12 +79,12 @@ public class Perceptron implements Serializable {
 	 * of the weighted inputs passed in.
 	 *  
 	 * @param inputs: An array of inputs to aggregate.
+	 * @param activation: The transfer function to convert the aggregated inputs with.
 	 * @return: Boolean output based on value generated by transfer function.
 	 */
-	public double getOutput(double[] inputs) {
-		double[] weightedInputs = generateWeightedInputs(inputs);
-		double sum = aggregateWeightedInputs(weightedInputs);
-		transferValue = normalize(sum);
+	public double getOutput(double[] inputs, Activation activation) {
+		double sum = aggregateWeightedInputs(inputs);
+		transferValue = activation.apply(sum);
 		return transferValue;
 	}
 	
@@ -0,0 +1,21 @@
+package neural_network;
+
+/**
+ * The number format a QuantizedNetwork stores its weights in.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public enum Precision {
+
+	/**
+	 * 32-bit floats. Half the size of the trained double weights.
+	 */
+	FLOAT32,
+
+	/**
+	 * 8-bit signed integers with one float scale factor per layer,
+	 * so that weight = scale * quantized weight. An eighth of the size
+	 * of the trained double weights.
+	 */
+	INT8
+}
@@ -0,0 +1,97 @@
+package neural_network;
+
+/**
+ * Represents a fully connected layer of perceptrons whose weights are stored
+ * as floats or as bytes with a scale factor, and whose activations are floats.
+ *
+ * Int8 weights are quantized symmetrically: the layer's largest weight
+ * magnitude maps to 127, and each weight is rounded to the nearest step.
+ * Sums are accumulated on the quantized weights and scaled once per perceptron.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class QuantizedLayer {
+
+	private static final int INT8_MAX = 127;
+
+	final int NUM_INPUTS;
+	final int NUM_PERCEPTRONS;
+	private final Activation activation;
+	private final float[] floatWeights;
+	private final byte[] byteWeights;
+	private final float scale;
+
+	/**
+	 * Construct a layer from the row-major weights of a dense layer.
+	 *
+	 * @param layer: The dense layer whose weights are converted.
+	 * @param activation: The transfer function of the perceptrons.
+	 * @param precision: The format to store the weights in.
+	 */
+	QuantizedLayer(DenseLayer layer, Activation activation, Precision precision) {
+		NUM_INPUTS = layer.NUM_INPUTS;
+		NUM_PERCEPTRONS = layer.NUM_PERCEPTRONS;
+		this.activation = activation;
+
+		double[] weights = layer.getWeights();
+		if (precision == Precision.FLOAT32) {
+			floatWeights = new float[weights.length];
+			for (int i = 0; i < weights.length; i++) {
+				floatWeights[i] = (float) weights[i];
+			}
+			byteWeights = null;
+			scale = 1;
+		} else {
+			double maxMagnitude = 0;
+			for (double weight : weights) {
+				maxMagnitude = Math.max(maxMagnitude, Math.abs(weight));
+			}
+			scale = maxMagnitude == 0 ? 1 : (float) (maxMagnitude / INT8_MAX);
+			byteWeights = new byte[weights.length];
+			for (int i = 0; i < weights.length; i++) {
+				byteWeights[i] = (byte) Math.max(-INT8_MAX, Math.min(INT8_MAX, Math.round(weights[i] / scale)));
+			}
+			floatWeights = null;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes the weights of this layer take up.
+	 *
+	 * @return: The size of the weights, including the scale factor.
+	 */
+	long getWeightBytes() {
+		if (floatWeights != null) {
+			return (long) floatWeights.length * Float.BYTES;
+		}
+		return byteWeights.length + Float.BYTES;
+	}
+
+	/**
+	 * Runs one sample through every perceptron in this layer.
+	 *
+	 * @param inputs: An array holding the NUM_INPUTS inputs of the sample.
+	 * @param inputOffset: The index of the sample's first input.
+	 * @param outputs: An array to write the NUM_PERCEPTRONS outputs to.
+	 * @param outputOffset: The index to write the first output to.
+	 */
+	void forward(float[] inputs, int inputOffset, float[] outputs, int outputOffset) {
+		if (floatWeights != null) {
+			for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+				float sum = 0;
+				for (int i = 0; i < NUM_INPUTS; i++) {
+					sum += inputs[inputOffset + i] * floatWeights[row + i];
+				}
+				outputs[outputOffset + perceptron] = (float) activation.apply((double) sum / NUM_INPUTS);
+			}
+		} else {
+			for (int perceptron = 0, row = 0; perceptron < NUM_PERCEPTRONS; perceptron++, row += NUM_INPUTS) {
+				float sum = 0;
+				for (int i = 0; i < NUM_INPUTS; i++) {
+					sum += inputs[inputOffset + i] * byteWeights[row + i];
+				}
+				outputs[outputOffset + perceptron] = (float) activation.apply((double) sum * scale / NUM_INPUTS);
+			}
+		}
+	}
+}
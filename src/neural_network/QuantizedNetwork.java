@@ -0,0 +1,152 @@
+package neural_network;
+
+/**
+ * Represents a read-only, reduced precision copy of a trained artificial
+ * neural network for scoring.
+ *
+ * Rationale: training needs double precision, but classifying a spam
+ * datapoint does not. Float weights halve, and int8 weights cut to an eighth,
+ * the memory each scoring copy holds and streams through per datapoint.
+ * Use Tester.compareQuantized to check a conversion's accuracy.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class QuantizedNetwork implements InferenceModel {
+
+	private final QuantizedLayer[] layers;
+	private final ThreadLocal<float[][]> activationBuffers;
+	public final int NUM_INPUTS;
+	public final int NUM_OUTPUT_PERCEPTRONS;
+	public final Precision PRECISION;
+
+	/**
+	 * Construct a reduced precision copy of an artificial neural network.
+	 *
+	 * @param nnet: The neural network to copy weights from.
+	 * @param precision: The format to store the weights in.
+	 */
+	public QuantizedNetwork(NeuralNetwork nnet, Precision precision) {
+		NUM_INPUTS = nnet.NUM_INPUTS;
+		NUM_OUTPUT_PERCEPTRONS = nnet.NUM_OUTPUT_PERCEPTRONS;
+		PRECISION = precision;
+
+		// hidden layers followed by the output layer, converted from their row-major form
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		layers = new QuantizedLayer[hiddenLayers.length + 1];
+		for (int layer = 0; layer < hiddenLayers.length; layer++) {
+			DenseLayer dense = new DenseLayer(hiddenLayers[layer].getHiddenPerceptrons(), nnet.getActivation());
+			layers[layer] = new QuantizedLayer(dense, nnet.getActivation(), precision);
+		}
+		DenseLayer output = new DenseLayer(nnet.getOutputPerceptrons(), nnet.getActivation());
+		layers[hiddenLayers.length] = new QuantizedLayer(output, nnet.getActivation(), precision);
+
+		activationBuffers = ThreadLocal.withInitial(this::createActivationBuffers);
+	}
+
+	/**
+	 * Allocates the buffers classify converts inputs and writes each layer's outputs to.
+	 */
+	private float[][] createActivationBuffers() {
+		float[][] buffers = new float[layers.length + 1][];
+		buffers[0] = new float[NUM_INPUTS];
+		for (int layer = 0; layer < layers.length; layer++) {
+			buffers[layer + 1] = new float[layers[layer].NUM_PERCEPTRONS];
+		}
+		return buffers;
+	}
+
+	/**
+	 * Returns the number of bytes the weights of this network take up.
+	 *
+	 * @return: The size of the weights, including scale factors.
+	 */
+	public long getWeightBytes() {
+		long bytes = 0;
+		for (QuantizedLayer layer : layers) {
+			bytes += layer.getWeightBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of weights in this network.
+	 *
+	 * @return: The number of weights across all layers.
+	 */
+	public long getNumWeights() {
+		long numWeights = 0;
+		for (QuantizedLayer layer : layers) {
+			numWeights += (long) layer.NUM_INPUTS * layer.NUM_PERCEPTRONS;
+		}
+		return numWeights;
+	}
+
+	@Override
+	public int getNumInputs() {
+		return NUM_INPUTS;
+	}
+
+	@Override
+	public int getNumOutputs() {
+		return NUM_OUTPUT_PERCEPTRONS;
+	}
+
+	/**
+	 * Runs an array of inputs through this network and predicts a classification
+	 * using buffers owned by the calling thread.
+	 *
+	 * @param inputs: The inputs to use.
+	 * @param outputs: An array of NUM_OUTPUT_PERCEPTRONS values to write the outputs to.
+	 */
+	@Override
+	public void classify(double[] inputs, double[] outputs) {
+		if (inputs.length != NUM_INPUTS) {
+			String errorStr = "The number of given inputs is not equal to the number of expected inputs.";
+			throw new IllegalArgumentException(errorStr);
+		}
+
+		float[][] buffers = activationBuffers.get();
+		for (int i = 0; i < NUM_INPUTS; i++) {
+			buffers[0][i] = (float) inputs[i];
+		}
+		for (int layer = 0; layer < layers.length; layer++) {
+			layers[layer].forward(buffers[layer], 0, buffers[layer + 1], 0);
+		}
+		float[] lastOutputs = buffers[layers.length];
+		for (int i = 0; i < NUM_OUTPUT_PERCEPTRONS; i++) {
+			outputs[i] = lastOutputs[i];
+		}
+	}
+
+	/**
+	 * Runs a batch of samples through this network, one layer at a time.
+	 *
+	 * @param inputs: A row-major matrix of numSamples rows of NUM_INPUTS inputs.
+	 * @param numSamples: The number of samples in the batch.
+	 * @return: A row-major matrix of numSamples rows of NUM_OUTPUT_PERCEPTRONS outputs.
+	 */
+	@Override
+	public double[] classifyBatch(double[] inputs, int numSamples) {
+		if (inputs.length < numSamples * NUM_INPUTS) {
+			throw new IllegalArgumentException("The batch does not hold the given number of samples.");
+		}
+
+		float[] lastOutputs = new float[numSamples * NUM_INPUTS];
+		for (int i = 0; i < lastOutputs.length; i++) {
+			lastOutputs[i] = (float) inputs[i];
+		}
+		for (QuantizedLayer layer : layers) {
+			float[] nextOutputs = new float[numSamples * layer.NUM_PERCEPTRONS];
+			for (int sample = 0; sample < numSamples; sample++) {
+				layer.forward(lastOutputs, sample * layer.NUM_INPUTS, nextOutputs, sample * layer.NUM_PERCEPTRONS);
+			}
+			lastOutputs = nextOutputs;
+		}
+
+		double[] outputs = new double[lastOutputs.length];
+		for (int i = 0; i < outputs.length; i++) {
+			outputs[i] = lastOutputs[i];
+		}
+		return outputs;
+	}
+}
@@ -0,0 +1,29 @@
+package neural_network;
+
+/**
+ * Vector operations as plain loops, adding terms in index order.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+final class ScalarKernels extends Kernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public double dot(double sum, double[] a, int aOffset, double[] b, int bOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+}
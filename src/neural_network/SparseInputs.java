@@ -0,0 +1,111 @@
+package neural_network;
+
+/**
+ * Represents the inputs of a datapoint as index/value pairs of its nonzero inputs.
+ *
+ * Rationale: most spambase features are word and character frequencies that
+ * are zero for a typical email (about 23% of the inputs are nonzero), so the
+ * first layer can skip the zeros instead of multiplying every input by its
+ * weight. Skipping a zero input only drops terms of +0 or -0 from each sum,
+ * so the sparse forward and backward passes give exactly the same results as
+ * the dense ones with the scalar kernels.
+ *
+ * Instances never change, so one may be shared by any number of threads.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public final class SparseInputs {
+
+	/**
+	 * The highest fraction of nonzero inputs for which the sparse passes are
+	 * used. Above it, the gathers of the sparse passes cost more than the
+	 * multiplications by zero they skip (see SparseBenchmark).
+	 */
+	public static final double MAX_DENSITY = .5;
+
+	public final int NUM_INPUTS;
+	private final int[] indices;
+	private final double[] values;
+
+	/**
+	 * Construct the sparse form of an array of inputs.
+	 *
+	 * @param inputs: The dense inputs.
+	 */
+	public SparseInputs(double[] inputs) {
+		NUM_INPUTS = inputs.length;
+		int numNonZero = 0;
+		for (double input : inputs) {
+			if (input != 0) {
+				numNonZero++;
+			}
+		}
+		indices = new int[numNonZero];
+		values = new double[numNonZero];
+		for (int input = 0, nonZero = 0; input < NUM_INPUTS; input++) {
+			if (inputs[input] != 0) {
+				indices[nonZero] = input;
+				values[nonZero] = inputs[input];
+				nonZero++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the indices of the nonzero inputs, in increasing order.
+	 *
+	 * @return: The indices of the nonzero inputs.
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Returns the nonzero inputs, parallel to getIndices.
+	 *
+	 * @return: The values of the nonzero inputs.
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the number of nonzero inputs.
+	 *
+	 * @return: The number of index/value pairs.
+	 */
+	public int size() {
+		return indices.length;
+	}
+
+	/**
+	 * Expands these inputs back into a dense array. Zero inputs come back as +0.
+	 *
+	 * @return: A new array of NUM_INPUTS inputs.
+	 */
+	public double[] toDense() {
+		double[] inputs = new double[NUM_INPUTS];
+		for (int nonZero = 0; nonZero < indices.length; nonZero++) {
+			inputs[indices[nonZero]] = values[nonZero];
+		}
+		return inputs;
+	}
+
+	/**
+	 * Returns the fraction of the inputs that are nonzero.
+	 *
+	 * @return: A density between 0 and 1.
+	 */
+	public double getDensity() {
+		return NUM_INPUTS == 0 ? 0 : (double) indices.length / NUM_INPUTS;
+	}
+
+	/**
+	 * Returns whether the inputs are sparse enough for the sparse passes to be faster.
+	 *
+	 * @return: Is the density at most MAX_DENSITY?
+	 */
+	public boolean isSparse() {
+		return getDensity() <= MAX_DENSITY;
+	}
+}
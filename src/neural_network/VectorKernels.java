@@ -0,0 +1,52 @@
+package neural_network;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector operations using the incubating Java Vector API, one SIMD register
+ * of doubles at a time with fused multiply-adds. Loaded by Kernels through
+ * reflection, only when the jdk.incubator.vector module is present.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+final class VectorKernels extends Kernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public String getName() {
+		return "vector";
+	}
+
+	@Override
+	public double dot(double sum, double[] a, int aOffset, double[] b, int bOffset, int length) {
+		DoubleVector sums = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector aValues = DoubleVector.fromArray(SPECIES, a, aOffset + i);
+			DoubleVector bValues = DoubleVector.fromArray(SPECIES, b, bOffset + i);
+			sums = aValues.fma(bValues, sums);
+		}
+		sum += sums.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+		DoubleVector alphas = DoubleVector.broadcast(SPECIES, alpha);
+		int i = 0;
+		for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+			DoubleVector xValues = DoubleVector.fromArray(SPECIES, x, xOffset + i);
+			DoubleVector yValues = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+			xValues.fma(alphas, yValues).intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package neural_network;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * The distribution the weights of a new neural network are drawn from.
+ *
+ * Perceptrons divide their weighted sum by their number of inputs, so the
+ * scaled initializers draw weights fanIn times larger than the usual formula,
+ * i.e. with fanIn squared times its variance. The averaged sum is then the
+ * sum a network that does not divide would compute with the usual weights.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public enum WeightInitializer {
+
+	/**
+	 * Uniform between -1 and 1, whatever the shape of the layer.
+	 */
+	UNIFORM {
+		@Override
+		public double[] initialize(double[] weights, int fanIn, int fanOut, RandomGenerator random) {
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = random.nextDouble(-1, 1);
+			}
+			return weights;
+		}
+	},
+
+	/**
+	 * Xavier (Glorot) uniform: each weight is drawn with variance
+	 * fanIn^2 * 2 / (fanIn + fanOut), the usual 2 / (fanIn + fanOut) scaled as
+	 * above. It suits the sigmoid.
+	 */
+	XAVIER {
+		@Override
+		public double[] initialize(double[] weights, int fanIn, int fanOut, RandomGenerator random) {
+			double limit = fanIn * Math.sqrt(6. / (fanIn + fanOut));
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = random.nextDouble(-limit, limit);
+			}
+			return weights;
+		}
+	},
+
+	/**
+	 * He normal: each weight is drawn with variance fanIn^2 * 2 / fanIn, the
+	 * usual 2 / fanIn scaled as above.
+	 */
+	HE {
+		@Override
+		public double[] initialize(double[] weights, int fanIn, int fanOut, RandomGenerator random) {
+			double deviation = fanIn * Math.sqrt(2. / fanIn);
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = random.nextGaussian() * deviation;
+			}
+			return weights;
+		}
+	};
+
+	/**
+	 * Fills an array with initial weights, e.g. those of one perceptron or of every
+	 * perceptron of a layer, one after another.
+	 *
+	 * @param weights: The array to fill.
+	 * @param fanIn: The number of inputs of the perceptron's layer.
+	 * @param fanOut: The number of perceptrons of the layer.
+	 * @param random: The generator to draw the weights from.
+	 * @return: The filled array.
+	 */
+	public abstract double[] initialize(double[] weights, int fanIn, int fanOut, RandomGenerator random);
+
+	/**
+	 * Draws the initial weights of a whole layer with one call to initialize,
+	 * then slices them into one array per perceptron. The weights are drawn in
+	 * the same order as perceptron by perceptron, so a seeded generator gives
+	 * the same network either way.
+	 *
+	 * @param numPerceptrons: The number of perceptrons of the layer.
+	 * @param numInputs: The number of inputs of each perceptron.
+	 * @param random: The generator to draw the weights from.
+	 * @return: The weights of each perceptron, one per input.
+	 */
+	public double[][] initializeLayer(int numPerceptrons, int numInputs, RandomGenerator random) {
+		double[] weights = initialize(new double[numPerceptrons * numInputs], numInputs, numPerceptrons, random);
+		double[][] perceptronWeights = new double[numPerceptrons][];
+		for (int perceptron = 0; perceptron < numPerceptrons; perceptron++) {
+			perceptronWeights[perceptron] = Arrays.copyOfRange(weights, perceptron * numInputs, (perceptron + 1) * numInputs);
+		}
+		return perceptronWeights;
+	}
+}
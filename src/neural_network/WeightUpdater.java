@@ -0,0 +1,122 @@
+package neural_network;
+
+/**
+ * Applies an Optimizer's update rule to one weight matrix, holding the
+ * per-weight state of the rule in flat arrays indexed like the weights.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+abstract class WeightUpdater {
+
+	private static final Kernels KERNELS = Kernels.get();
+
+	/**
+	 * Updates weights from a gradient.
+	 *
+	 * @param weights: The weights to update.
+	 * @param gradient: The gradient summed over some samples, shaped like the weights.
+	 * @param numSamples: The number of samples the gradient was summed over.
+	 * @param learningRate: The learning rate.
+	 */
+	abstract void update(double[] weights, double[] gradient, int numSamples, double learningRate);
+
+	/**
+	 * w += rate / n * g, the same arithmetic as DenseLayer.applyGradient.
+	 */
+	static final class Sgd extends WeightUpdater {
+
+		@Override
+		void update(double[] weights, double[] gradient, int numSamples, double learningRate) {
+			KERNELS.axpy(learningRate / numSamples, gradient, 0, weights, 0, weights.length);
+		}
+	}
+
+	/**
+	 * v = mu * v + g, w += rate * v.
+	 */
+	static final class Momentum extends WeightUpdater {
+
+		private static final double MU = .9;
+
+		private final double[] velocity;
+
+		Momentum(int numWeights) {
+			velocity = new double[numWeights];
+		}
+
+		@Override
+		void update(double[] weights, double[] gradient, int numSamples, double learningRate) {
+			double gradientScale = 1.0 / numSamples;
+			for (int i = 0; i < weights.length; i++) {
+				double v = MU * velocity[i] + gradientScale * gradient[i];
+				velocity[i] = v;
+				weights[i] += learningRate * v;
+			}
+		}
+	}
+
+	/**
+	 * s = rho * s + (1 - rho) * g^2, w += rate * g / (sqrt(s) + epsilon).
+	 */
+	static final class RmsProp extends WeightUpdater {
+
+		private static final double RHO = .9;
+		private static final double EPSILON = 1e-8;
+
+		private final double[] meanSquare;
+
+		RmsProp(int numWeights) {
+			meanSquare = new double[numWeights];
+		}
+
+		@Override
+		void update(double[] weights, double[] gradient, int numSamples, double learningRate) {
+			double gradientScale = 1.0 / numSamples;
+			for (int i = 0; i < weights.length; i++) {
+				double g = gradientScale * gradient[i];
+				double s = RHO * meanSquare[i] + (1 - RHO) * g * g;
+				meanSquare[i] = s;
+				weights[i] += learningRate * g / (Math.sqrt(s) + EPSILON);
+			}
+		}
+	}
+
+	/**
+	 * m = beta1 * m + (1 - beta1) * g, v = beta2 * v + (1 - beta2) * g^2,
+	 * w += rate * mhat / (sqrt(vhat) + epsilon), where mhat and vhat are m and v
+	 * divided by (1 - beta^t). The two corrections are folded into the step size,
+	 * which moves epsilon slightly, as in the Adam paper's efficient form.
+	 */
+	static final class Adam extends WeightUpdater {
+
+		private static final double BETA1 = .9;
+		private static final double BETA2 = .999;
+		private static final double EPSILON = 1e-8;
+
+		private final double[] mean;
+		private final double[] meanSquare;
+		private double beta1Power = 1;
+		private double beta2Power = 1;
+
+		Adam(int numWeights) {
+			mean = new double[numWeights];
+			meanSquare = new double[numWeights];
+		}
+
+		@Override
+		void update(double[] weights, double[] gradient, int numSamples, double learningRate) {
+			double gradientScale = 1.0 / numSamples;
+			beta1Power *= BETA1;
+			beta2Power *= BETA2;
+			double step = learningRate * Math.sqrt(1 - beta2Power) / (1 - beta1Power);
+			for (int i = 0; i < weights.length; i++) {
+				double g = gradientScale * gradient[i];
+				double m = BETA1 * mean[i] + (1 - BETA1) * g;
+				double v = BETA2 * meanSquare[i] + (1 - BETA2) * g * g;
+				mean[i] = m;
+				meanSquare[i] = v;
+				weights[i] += step * m / (Math.sqrt(v) + EPSILON);
+			}
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package neural_network.features;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+
+/**
+ * Computes spambase feature vectors from email messages.
+ *
+ * The features are those of the UCI spambase data (see spambase.names):
+ *   48 word_freq_WORD: 100 * occurrences of WORD / words in the message, where a
+ *      word is a run of letters and digits, matched ignoring case,
+ *   6 char_freq_CHAR: 100 * occurrences of CHAR / characters in the message,
+ *   capital_run_length_average, _longest and _total: statistics of the runs of
+ *      consecutive capital letters. Messages without capitals get 1 for each,
+ *      the smallest value in the spambase data.
+ * The text of a message is its subject followed by its body. All features are
+ * computed in one pass over the text, with a KeywordAutomaton for the words.
+ *
+ * An extractor can produce a subset of the features, in any order, to match
+ * networks trained on feature-selected data such as spambase-fs.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class FeatureExtractor {
+
+	private static final String WORD_PREFIX = "word_freq_";
+	private static final String CHAR_PREFIX = "char_freq_";
+	private static final String[] WORDS = {
+			"make", "address", "all", "3d", "our", "over", "remove", "internet",
+			"order", "mail", "receive", "will", "people", "report", "addresses", "free",
+			"business", "email", "you", "credit", "your", "font", "000", "money",
+			"hp", "hpl", "george", "650", "lab", "labs", "telnet", "857",
+			"data", "415", "85", "technology", "1999", "parts", "pm", "direct",
+			"cs", "meeting", "original", "project", "re", "edu", "table", "conference" };
+	private static final String CHARS = ";([!$#";
+	private static final String[] CAPITAL_RUN_FEATURES = {
+			"capital_run_length_average", "capital_run_length_longest", "capital_run_length_total" };
+
+	public static final int NUM_FEATURES = WORDS.length + CHARS.length() + CAPITAL_RUN_FEATURES.length;
+	private static final String[] FEATURE_NAMES = new String[NUM_FEATURES];
+	static {
+		for (int word = 0; word < WORDS.length; word++) {
+			FEATURE_NAMES[word] = WORD_PREFIX + WORDS[word];
+		}
+		for (int c = 0; c < CHARS.length(); c++) {
+			FEATURE_NAMES[WORDS.length + c] = CHAR_PREFIX + CHARS.charAt(c);
+		}
+		for (int i = 0; i < CAPITAL_RUN_FEATURES.length; i++) {
+			FEATURE_NAMES[WORDS.length + CHARS.length() + i] = CAPITAL_RUN_FEATURES[i];
+		}
+	}
+
+	private static final KeywordAutomaton AUTOMATON = new KeywordAutomaton(WORDS);
+
+	// the index in FEATURE_NAMES of each feature this extractor produces
+	private final int[] selectedFeatures;
+
+	/**
+	 * Construct an extractor for all 57 spambase features, in spambase order.
+	 */
+	public FeatureExtractor() {
+		selectedFeatures = new int[NUM_FEATURES];
+		for (int feature = 0; feature < NUM_FEATURES; feature++) {
+			selectedFeatures[feature] = feature;
+		}
+	}
+
+	/**
+	 * Construct an extractor for a subset of the spambase features.
+	 *
+	 * @param featureNames: The names of the features to produce, in order, e.g. "word_freq_free".
+	 * @throws IllegalArgumentException: if a name is not a spambase feature.
+	 */
+	public FeatureExtractor(String[] featureNames) {
+		List<String> allNames = Arrays.asList(FEATURE_NAMES);
+		selectedFeatures = new int[featureNames.length];
+		for (int feature = 0; feature < featureNames.length; feature++) {
+			selectedFeatures[feature] = allNames.indexOf(featureNames[feature]);
+			if (selectedFeatures[feature] < 0) {
+				throw new IllegalArgumentException("Unknown spambase feature: " + featureNames[feature]);
+			}
+		}
+	}
+
+	/**
+	 * Construct an extractor for the features listed in a spambase .names file.
+	 *
+	 * @param filepath: The path of a .names file, e.g. spambase-fs.names.
+	 * @return: An extractor producing the listed features in order.
+	 * @throws NeuralNetworkException: if the file cannot be read or lists an unknown feature.
+	 */
+	public static FeatureExtractor fromNamesFile(String filepath) throws NeuralNetworkException {
+		List<String> names = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(filepath), StandardCharsets.ISO_8859_1)) {
+			for (String line; (line = reader.readLine()) != null; ) {
+				// "name: type." lines; comments start with '|'
+				int comment = line.indexOf('|');
+				String attribute = comment < 0 ? line : line.substring(0, comment);
+				int colon = attribute.lastIndexOf(':');
+				if (colon > 0) {
+					names.add(attribute.substring(0, colon).trim());
+				}
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading names file: %s", filepath), e);
+		}
+		try {
+			return new FeatureExtractor(names.toArray(new String[0]));
+		} catch (IllegalArgumentException e) {
+			throw new NeuralNetworkException(String.format("%s in %s", e.getMessage(), filepath), e);
+		}
+	}
+
+	/**
+	 * Returns the number of features this extractor produces.
+	 *
+	 * @return: The length of the feature vectors.
+	 */
+	public int getNumFeatures() {
+		return selectedFeatures.length;
+	}
+
+	/**
+	 * Returns the names of the features this extractor produces.
+	 *
+	 * @return: The feature names, in order.
+	 */
+	public String[] getFeatureNames() {
+		String[] names = new String[selectedFeatures.length];
+		for (int feature = 0; feature < selectedFeatures.length; feature++) {
+			names[feature] = FEATURE_NAMES[selectedFeatures[feature]];
+		}
+		return names;
+	}
+
+	/**
+	 * Computes the features of a message.
+	 *
+	 * @param message: The message.
+	 * @return: A new array of getNumFeatures() features.
+	 */
+	public double[] extract(Message message) {
+		double[] features = new double[selectedFeatures.length];
+		extract(message, features);
+		return features;
+	}
+
+	/**
+	 * Computes the features of a message into an array.
+	 *
+	 * @param message: The message.
+	 * @param features: An array of at least getNumFeatures() values to write the features to.
+	 */
+	public void extract(Message message, double[] features) {
+		double[] all = new double[NUM_FEATURES];
+		computeFeatures(message.SUBJECT, message.BODY, all);
+		for (int feature = 0; feature < selectedFeatures.length; feature++) {
+			features[feature] = all[selectedFeatures[feature]];
+		}
+	}
+
+	/**
+	 * Computes the features of a message as a datapoint.
+	 *
+	 * @param message: The message.
+	 * @param classification: 1 if the message is known to be spam, 0 if it is not.
+	 * @return: A Data object with the message's features.
+	 */
+	public Data toData(Message message, int classification) {
+		return new Data(extract(message), new int[] { classification });
+	}
+
+	/**
+	 * Computes all spambase features of a subject and body in one pass,
+	 * as if they were one text separated by a line break.
+	 */
+	private static void computeFeatures(String subject, String body, double[] features) {
+		int[] wordCounts = new int[WORDS.length];
+		int[] charCounts = new int[CHARS.length()];
+		int numWords = 0;
+		int numCapitalRuns = 0, capitalRunLength = 0, longestCapitalRun = 0, totalCapitals = 0;
+		// the automaton state of the current word, or -1 between words
+		int state = -1;
+
+		int subjectLength = subject.length();
+		int length = subjectLength + 1 + body.length();
+		// one extra step past the end closes the last word and capital run
+		for (int i = 0; i <= length; i++) {
+			char c;
+			if (i < subjectLength) {
+				c = subject.charAt(i);
+			} else if (i > subjectLength && i < length) {
+				c = body.charAt(i - subjectLength - 1);
+			} else {
+				c = '\n';
+			}
+
+			if (Character.isLetterOrDigit(c)) {
+				if (state < 0) {
+					state = KeywordAutomaton.START;
+				}
+				state = AUTOMATON.step(state, KeywordAutomaton.symbol(c));
+			} else {
+				if (state >= 0) {
+					numWords++;
+					int word = AUTOMATON.keyword(state);
+					if (word >= 0) {
+						wordCounts[word]++;
+					}
+					state = -1;
+				}
+				int special = CHARS.indexOf(c);
+				if (special >= 0) {
+					charCounts[special]++;
+				}
+			}
+
+			if (c >= 'A' && c <= 'Z') {
+				capitalRunLength++;
+			} else if (capitalRunLength > 0) {
+				numCapitalRuns++;
+				totalCapitals += capitalRunLength;
+				longestCapitalRun = Math.max(longestCapitalRun, capitalRunLength);
+				capitalRunLength = 0;
+			}
+		}
+
+		for (int word = 0; word < WORDS.length; word++) {
+			features[word] = numWords == 0 ? 0 : 100.0 * wordCounts[word] / numWords;
+		}
+		for (int special = 0; special < charCounts.length; special++) {
+			features[WORDS.length + special] = length == 0 ? 0 : 100.0 * charCounts[special] / length;
+		}
+		int capitalFeatures = WORDS.length + CHARS.length();
+		features[capitalFeatures] = numCapitalRuns == 0 ? 1 : (double) totalCapitals / numCapitalRuns;
+		features[capitalFeatures + 1] = Math.max(1, longestCapitalRun);
+		features[capitalFeatures + 2] = Math.max(1, totalCapitals);
+	}
+}
@@ -0,0 +1,105 @@
+package neural_network.features;
+
+import java.util.Arrays;
+
+/**
+ * A deterministic automaton that recognizes a fixed set of keywords as whole words.
+ *
+ * The keywords are compiled once into a trie whose transitions are stored in a
+ * flat table, one row of ALPHABET_SIZE next states per state. A word is matched
+ * by starting at START, stepping once per character, and checking the keyword
+ * of the state reached at the end of the word, so every character of a message
+ * is looked at once no matter how many keywords there are. Matching ignores case.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+class KeywordAutomaton {
+
+	// a-z followed by 0-9
+	static final int ALPHABET_SIZE = 36;
+	// a word that can no longer become a keyword stays in the dead state
+	static final int DEAD = 0;
+	static final int START = 1;
+
+	private final int[] transitions;
+	private final int[] keywords;
+
+	/**
+	 * Compile an automaton for a set of keywords.
+	 *
+	 * @param words: The keywords, made of ASCII letters and digits.
+	 * The index of each keyword is what the automaton reports when it matches.
+	 */
+	KeywordAutomaton(String[] words) {
+		// a trie never has more states than characters in its keywords, plus the dead and start states
+		int maxStates = 2;
+		for (String word : words) {
+			maxStates += word.length();
+		}
+		int[] table = new int[maxStates * ALPHABET_SIZE];
+		int[] keywordOf = new int[maxStates];
+		keywordOf[DEAD] = -1;
+		keywordOf[START] = -1;
+		int numStates = 2;
+
+		for (int keyword = 0; keyword < words.length; keyword++) {
+			int state = START;
+			for (int i = 0; i < words[keyword].length(); i++) {
+				int symbol = symbol(words[keyword].charAt(i));
+				if (symbol < 0) {
+					throw new IllegalArgumentException("Keywords may only hold ASCII letters and digits: " + words[keyword]);
+				}
+				if (table[state * ALPHABET_SIZE + symbol] == DEAD) {
+					keywordOf[numStates] = -1;
+					table[state * ALPHABET_SIZE + symbol] = numStates++;
+				}
+				state = table[state * ALPHABET_SIZE + symbol];
+			}
+			keywordOf[state] = keyword;
+		}
+
+		transitions = Arrays.copyOf(table, numStates * ALPHABET_SIZE);
+		keywords = Arrays.copyOf(keywordOf, numStates);
+	}
+
+	/**
+	 * Returns the symbol of a character in this automaton's alphabet.
+	 *
+	 * @param c: A character.
+	 * @return: The symbol, or -1 if the character is not an ASCII letter or digit.
+	 */
+	static int symbol(char c) {
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a';
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		}
+		if (c >= '0' && c <= '9') {
+			return 26 + c - '0';
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the state reached by reading one more character of a word.
+	 *
+	 * @param state: The current state.
+	 * @param symbol: The symbol of the character, or -1 for a letter or digit
+	 * outside the alphabet, which no keyword contains.
+	 * @return: The next state.
+	 */
+	int step(int state, int symbol) {
+		return symbol < 0 ? DEAD : transitions[state * ALPHABET_SIZE + symbol];
+	}
+
+	/**
+	 * Returns the keyword a whole word ending in a state matches.
+	 *
+	 * @param state: The state reached at the end of a word.
+	 * @return: The index of the keyword, or -1 if the word is not a keyword.
+	 */
+	int keyword(int state) {
+		return keywords[state];
+	}
+}
@@ -0,0 +1,26 @@
+package neural_network.features;
+
+/**
+ * Represents an RFC 822 email message read by a MessageReader.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class Message {
+
+	public final String SOURCE;
+	public final String SUBJECT;
+	public final String BODY;
+
+	/**
+	 * Construct a message.
+	 *
+	 * @param source: Where the message was read from, e.g. a file name.
+	 * @param subject: The unfolded Subject header, or an empty string if there is none.
+	 * @param body: Everything after the header section, as stored.
+	 */
+	public Message(String source, String subject, String body) {
+		SOURCE = source;
+		SUBJECT = subject;
+		BODY = body;
+	}
+}
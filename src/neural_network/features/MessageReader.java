@@ -0,0 +1,189 @@
+package neural_network.features;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import neural_network.NeuralNetworkException;
+
+/**
+ * Streams RFC 822 email messages from a file, an mbox file, or a directory of either.
+ *
+ * A file whose first line starts with "From " is read as an mbox, split at every
+ * line that starts with "From ", with ">From " quoting undone. Any other file holds
+ * a single message. Directories are walked in name order. Only one message is held
+ * in memory at a time. Bytes are read as ISO-8859-1, so no input is rejected for its
+ * encoding, and bodies are kept as stored, without MIME decoding.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class MessageReader implements AutoCloseable {
+
+	private static final String MBOX_SEPARATOR = "From ";
+
+	private final Iterator<Path> files;
+	private BufferedReader reader;
+	private String source;
+	private boolean mbox;
+	private int mboxIndex;
+	// the first line of the next message, already read from the current file
+	private String pendingLine;
+
+	/**
+	 * Open a file or directory of messages for reading.
+	 *
+	 * @param path: The path of a message file, an mbox file, or a directory.
+	 * @throws NeuralNetworkException: if the path cannot be read.
+	 */
+	public MessageReader(String path) throws NeuralNetworkException {
+		Path root = Paths.get(path);
+		if (Files.isDirectory(root)) {
+			try (Stream<Path> walk = Files.walk(root)) {
+				List<Path> paths = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+				files = paths.iterator();
+			} catch (IOException e) {
+				throw new NeuralNetworkException(String.format("Error listing messages in: %s", path), e);
+			}
+		} else {
+			List<Path> paths = new ArrayList<>();
+			paths.add(root);
+			files = paths.iterator();
+		}
+	}
+
+	/**
+	 * Reads the next message.
+	 *
+	 * @return: The next message, or null when there are no more.
+	 * @throws NeuralNetworkException: if a file cannot be read.
+	 */
+	public Message next() throws NeuralNetworkException {
+		try {
+			while (true) {
+				if (reader == null && !openNextFile()) {
+					return null;
+				}
+				Message message = readMessage();
+				if (message != null) {
+					return message;
+				}
+				reader.close();
+				reader = null;
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading messages from: %s", source), e);
+		}
+	}
+
+	/**
+	 * Opens the next file and checks whether it is an mbox.
+	 *
+	 * @return: False if there are no more files.
+	 */
+	private boolean openNextFile() throws IOException {
+		if (!files.hasNext()) {
+			return false;
+		}
+		Path file = files.next();
+		source = file.toString();
+		reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1);
+		pendingLine = reader.readLine();
+		mbox = pendingLine != null && pendingLine.startsWith(MBOX_SEPARATOR);
+		mboxIndex = 0;
+		return true;
+	}
+
+	/**
+	 * Reads one message from the current file.
+	 *
+	 * @return: The message, or null at the end of the file.
+	 */
+	private Message readMessage() throws IOException {
+		if (pendingLine == null) {
+			return null;
+		}
+		String messageSource = source;
+		String line = pendingLine;
+		if (mbox) {
+			// the separator line is not part of the message
+			messageSource = String.format("%s#%d", source, ++mboxIndex);
+			line = reader.readLine();
+		}
+		pendingLine = null;
+
+		// headers, unfolding continuation lines
+		String subject = "";
+		StringBuilder header = null;
+		for (; line != null && !line.isEmpty(); line = nextLine()) {
+			if ((line.startsWith(" ") || line.startsWith("\t")) && header != null) {
+				header.append(' ').append(line.trim());
+				continue;
+			}
+			subject = subjectOf(header, subject);
+			header = new StringBuilder(line);
+		}
+		subject = subjectOf(header, subject);
+
+		StringBuilder body = new StringBuilder();
+		if (line != null) {
+			for (line = nextLine(); line != null; line = nextLine()) {
+				body.append(line).append('\n');
+			}
+		}
+		return new Message(messageSource, subject, body.toString());
+	}
+
+	/**
+	 * Returns the next line of the current message, or null at the end of it.
+	 * In an mbox, a separator line ends the message and is kept for the next one.
+	 */
+	private String nextLine() throws IOException {
+		String line = reader.readLine();
+		if (line == null || !mbox) {
+			return line;
+		}
+		if (line.startsWith(MBOX_SEPARATOR)) {
+			pendingLine = line;
+			return null;
+		}
+		// mboxrd quoting: ">From ", ">>From ", ... lose one '>'
+		int quotes = 0;
+		while (quotes < line.length() && line.charAt(quotes) == '>') {
+			quotes++;
+		}
+		if (quotes > 0 && line.startsWith(MBOX_SEPARATOR, quotes)) {
+			return line.substring(1);
+		}
+		return line;
+	}
+
+	/**
+	 * Returns the value of a header if it is the Subject, otherwise the subject found so far.
+	 */
+	private static String subjectOf(StringBuilder header, String subject) {
+		if (header != null && header.length() >= 8 && header.substring(0, 8).equalsIgnoreCase("subject:")) {
+			return header.substring(8).trim();
+		}
+		return subject;
+	}
+
+	@Override
+	public void close() throws NeuralNetworkException {
+		if (reader == null) {
+			return;
+		}
+		try {
+			reader.close();
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error closing message file: %s", source), e);
+		}
+	}
+}
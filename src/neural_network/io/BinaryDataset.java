@@ -0,0 +1,257 @@
+package neural_network.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+import neural_network.SparseInputs;
+
+/**
+ * A dataset stored in a compact binary file and memory-mapped for reading.
+ *
+ * File layout, all values little-endian:
+ *   int magic ("SPBD"), int version, int number of rows, int number of features,
+ *   int number of outputs, int reserved (keeps the matrices 8-byte aligned),
+ *   double[rows * features] feature matrix, row-major,
+ *   int[rows * outputs] classification vector, row-major.
+ *
+ * Rationale: the whole dataset lives in one contiguous off-heap region and
+ * opening it costs a single mmap instead of parsing text line by line.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class BinaryDataset {
+
+	public static final int MAGIC = 0x53504244;
+	public static final int VERSION = 1;
+	private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+	private final DoubleBuffer features;
+	private final IntBuffer classifications;
+	public final int NUM_ROWS;
+	public final int NUM_FEATURES;
+	public final int NUM_OUTPUTS;
+
+	private BinaryDataset(ByteBuffer buffer, int numRows, int numFeatures, int numOutputs) {
+		NUM_ROWS = numRows;
+		NUM_FEATURES = numFeatures;
+		NUM_OUTPUTS = numOutputs;
+
+		int featureBytes = numRows * numFeatures * Double.BYTES;
+		buffer.position(HEADER_BYTES).limit(HEADER_BYTES + featureBytes);
+		features = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		buffer.limit(buffer.capacity()).position(HEADER_BYTES + featureBytes);
+		classifications = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	/**
+	 * Memory-maps a binary dataset file.
+	 *
+	 * @param filepath: The path of a binary dataset file.
+	 * @return: The mapped dataset.
+	 * @throws NeuralNetworkException: if the file cannot be read or is not a valid dataset.
+	 */
+	public static BinaryDataset open(String filepath) throws NeuralNetworkException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new NeuralNetworkException(String.format("Invalid binary dataset size: %s", filepath));
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (buffer.getInt(0) != MAGIC) {
+				throw new NeuralNetworkException(String.format("Not a binary dataset: %s", filepath));
+			}
+			if (buffer.getInt(4) != VERSION) {
+				throw new NeuralNetworkException(String.format("Unsupported binary dataset version %d: %s",
+						buffer.getInt(4), filepath));
+			}
+			int numRows = buffer.getInt(8);
+			int numFeatures = buffer.getInt(12);
+			int numOutputs = buffer.getInt(16);
+			long expectedSize = HEADER_BYTES + (long) numRows * numFeatures * Double.BYTES
+					+ (long) numRows * numOutputs * Integer.BYTES;
+			if (numRows < 0 || numFeatures <= 0 || numOutputs <= 0 || expectedSize != size) {
+				throw new NeuralNetworkException(String.format("Corrupt binary dataset header: %s", filepath));
+			}
+			return new BinaryDataset(buffer, numRows, numFeatures, numOutputs);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading binary dataset: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Returns whether a file starts with the binary dataset magic number.
+	 *
+	 * @param filepath: The path of a file.
+	 * @return: True if the file looks like a binary dataset.
+	 */
+	public static boolean isBinaryDataset(String filepath) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes datapoints to a binary dataset file.
+	 *
+	 * @param data: The datapoints to write. All must have the same shape.
+	 * @param filepath: The path of the file to create.
+	 * @throws NeuralNetworkException: if the file cannot be written.
+	 */
+	public static void write(List<Data> data, String filepath) throws NeuralNetworkException {
+		if (data.isEmpty()) {
+			throw new NeuralNetworkException("Cannot write an empty binary dataset.");
+		}
+		int numRows = data.size();
+		int numFeatures = data.get(0).getInputs().length;
+		int numOutputs = data.get(0).getClassification().length;
+		long size = HEADER_BYTES + (long) numRows * numFeatures * Double.BYTES
+				+ (long) numRows * numOutputs * Integer.BYTES;
+		if (size > Integer.MAX_VALUE) {
+			throw new NeuralNetworkException("The dataset is too large for a binary dataset file.");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(numRows).putInt(numFeatures).putInt(numOutputs).putInt(0);
+		for (Data datapoint : data) {
+			for (double feature : datapoint.getInputs()) {
+				buffer.putDouble(feature);
+			}
+		}
+		for (Data datapoint : data) {
+			for (int classification : datapoint.getClassification()) {
+				buffer.putInt(classification);
+			}
+		}
+		buffer.flip();
+
+		Path path = Paths.get(filepath);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error writing binary dataset: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Returns the number of datapoints in this dataset.
+	 *
+	 * @return: The number of rows.
+	 */
+	public int size() {
+		return NUM_ROWS;
+	}
+
+	/**
+	 * Copies the inputs of a range of rows into a packed row-major matrix.
+	 *
+	 * @param fromRow: The first row to copy, inclusive.
+	 * @param toRow: The last row to copy, exclusive.
+	 * @param dest: An array of at least (toRow - fromRow) * NUM_FEATURES values.
+	 */
+	public void getInputs(int fromRow, int toRow, double[] dest) {
+		// an absolute get never moves the shared position, so concurrent readers are safe
+		features.get(fromRow * NUM_FEATURES, dest, 0, (toRow - fromRow) * NUM_FEATURES);
+	}
+
+	/**
+	 * Returns the classification of one row.
+	 *
+	 * @param row: The row to read.
+	 * @param output: The index of the output to read.
+	 * @return: The expected value of that output.
+	 */
+	public int getClassification(int row, int output) {
+		return classifications.get(row * NUM_OUTPUTS + output);
+	}
+
+	/**
+	 * Returns a read-only view of this dataset as datapoints, which the Trainer
+	 * and Tester read it through. The first get of a row reads it from the mapped
+	 * file and keeps only its sparse form, which is all the training passes use,
+	 * so later epochs neither read the file nor find the nonzero inputs again.
+	 * Rows too dense for the sparse passes are read again on every get.
+	 *
+	 * @return: A random access list of NUM_ROWS datapoints.
+	 */
+	public List<Data> asDataList() {
+		return new RowList();
+	}
+
+	/**
+	 * The rows of this dataset, read as they are used.
+	 */
+	private class RowList extends AbstractList<Data> implements RandomAccess {
+
+		// the sparse form of each row, null until its first read. Threads racing on
+		// a first read each store an equal, immutable copy, so no locking is needed
+		private final SparseInputs[] sparseRows = new SparseInputs[NUM_ROWS];
+
+		@Override
+		public Data get(int row) {
+			Objects.checkIndex(row, NUM_ROWS);
+			int[] classification = new int[NUM_OUTPUTS];
+			for (int output = 0; output < NUM_OUTPUTS; output++) {
+				classification[output] = getClassification(row, output);
+			}
+			SparseInputs sparse = sparseRows[row];
+			if (sparse != null && sparse.isSparse()) {
+				return new Data(sparse, classification);
+			}
+			double[] inputs = new double[NUM_FEATURES];
+			getInputs(row, row + 1, inputs);
+			if (sparse == null) {
+				sparse = new SparseInputs(inputs);
+				sparseRows[row] = sparse;
+			}
+			return new Data(inputs, classification, sparse);
+		}
+
+		@Override
+		public int size() {
+			return NUM_ROWS;
+		}
+	}
+
+	/**
+	 * Copies this dataset into Data objects, e.g. for tools that keep every row.
+	 * Training and testing read rows through asDataList instead.
+	 *
+	 * @return: One datapoint per row.
+	 */
+	public ArrayList<Data> toDataList() {
+		ArrayList<Data> data = new ArrayList<>(NUM_ROWS);
+		DoubleBuffer featureReader = features.duplicate();
+		IntBuffer classificationReader = classifications.duplicate();
+		for (int row = 0; row < NUM_ROWS; row++) {
+			double[] inputs = new double[NUM_FEATURES];
+			int[] classification = new int[NUM_OUTPUTS];
+			featureReader.get(inputs);
+			classificationReader.get(classification);
+			data.add(new Data(inputs, classification));
+		}
+		return data;
+	}
+}
@@ -0,0 +1,263 @@
+package neural_network.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import neural_network.Data;
+import neural_network.NeuralNetworkException;
+
+/**
+ * A streaming parser for numeric CSV files.
+ *
+ * Bytes are read through a FileChannel into a reusable buffer and each field is
+ * parsed in place into a caller-supplied double[], so no String or String[] is
+ * created per line or per field.
+ *
+ * Decimal fields with at most 15 significant digits and a decimal exponent within
+ * [-22, 22] are converted exactly: the digits and the power of ten are both exact
+ * doubles, so one multiplication or division rounds correctly, giving the same
+ * result as Double.parseDouble. Any other field falls back to Double.parseDouble.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class CSVParser implements AutoCloseable {
+
+	private static final int BUFFER_BYTES = 1 << 16;
+	private static final int MAX_FAST_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final String filepath;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private byte[] field = new byte[64];
+	private int fieldLength;
+	private long lineNumber;
+	private boolean endOfInput;
+
+	/**
+	 * Open a CSV file for parsing.
+	 *
+	 * @param filepath: The path of a CSV file.
+	 * @throws NeuralNetworkException: if the file cannot be opened.
+	 */
+	public CSVParser(String filepath) throws NeuralNetworkException {
+		this.filepath = filepath;
+		try {
+			channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error opening CSV file: %s", filepath), e);
+		}
+		buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		buffer.flip();
+	}
+
+	/**
+	 * Imports all data from a CSV file whose last column is the classification.
+	 *
+	 * @param filepath: The path of a CSV file.
+	 * @return: An ArrayList containing the imported data.
+	 * @throws NeuralNetworkException: if the file cannot be read or parsed.
+	 */
+	public static ArrayList<Data> readData(String filepath) throws NeuralNetworkException {
+		ArrayList<Data> data = new ArrayList<>();
+		try (CSVParser parser = new CSVParser(filepath)) {
+			double[] fields = new double[256];
+			for (int numFields; (numFields = parser.readRow(fields)) != -1; ) {
+				data.add(parser.toData(fields, numFields));
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Converts parsed fields to a datapoint whose last field is the classification.
+	 *
+	 * @param fields: The parsed fields of one row.
+	 * @param numFields: The number of fields in the row.
+	 * @return: A Data object with the extracted data.
+	 * @throws NeuralNetworkException: if the classification is not an integer.
+	 */
+	public Data toData(double[] fields, int numFields) throws NeuralNetworkException {
+		double classification = fields[numFields - 1];
+		if (numFields < 2 || classification != (int) classification) {
+			throw new NeuralNetworkException(String.format("Invalid classification on line %d of %s",
+					lineNumber, filepath));
+		}
+		return new Data(Arrays.copyOf(fields, numFields - 1), new int[] { (int) classification });
+	}
+
+	/**
+	 * Parses the next non-empty row of the file.
+	 *
+	 * @param fields: An array to write the fields of the row to.
+	 * @return: The number of fields in the row, or -1 at the end of the file.
+	 * @throws NeuralNetworkException: if the file cannot be read, a field is not a number,
+	 * or the row has more fields than the array holds.
+	 */
+	public int readRow(double[] fields) throws NeuralNetworkException {
+		int numFields = 0;
+		fieldLength = 0;
+		boolean rowStarted = false;
+		while (true) {
+			if (!buffer.hasRemaining() && !fill()) {
+				// last line without a trailing newline
+				if (!rowStarted) {
+					return -1;
+				}
+				numFields = storeField(fields, numFields);
+				lineNumber++;
+				return numFields;
+			}
+
+			byte b = buffer.get();
+			if (b == '\n') {
+				if (rowStarted) {
+					numFields = storeField(fields, numFields);
+					lineNumber++;
+					return numFields;
+				}
+				lineNumber++;
+			} else if (b == ',') {
+				numFields = storeField(fields, numFields);
+				rowStarted = true;
+			} else if (b != '\r' && b != ' ' && b != '\t') {
+				if (fieldLength == field.length) {
+					field = Arrays.copyOf(field, field.length * 2);
+				}
+				field[fieldLength++] = b;
+				rowStarted = true;
+			}
+		}
+	}
+
+	/**
+	 * Parses the field collected so far and stores it as the next field of the row.
+	 */
+	private int storeField(double[] fields, int numFields) throws NeuralNetworkException {
+		if (numFields == fields.length) {
+			throw new NeuralNetworkException(String.format("Too many fields on line %d of %s",
+					lineNumber + 1, filepath));
+		}
+		fields[numFields] = parseField();
+		fieldLength = 0;
+		return numFields + 1;
+	}
+
+	/**
+	 * Parses the bytes of the current field as a decimal number.
+	 */
+	private double parseField() throws NeuralNetworkException {
+		int i = 0;
+		boolean negative = false;
+		if (i < fieldLength && (field[i] == '-' || field[i] == '+')) {
+			negative = field[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		for (; i < fieldLength; i++) {
+			byte b = field[i];
+			if (b >= '0' && b <= '9') {
+				seenDigit = true;
+				if (mantissa == 0 && b == '0') {
+					// leading zeros are not significant
+					if (seenPoint) {
+						exponent--;
+					}
+					continue;
+				}
+				if (digits == MAX_FAST_DIGITS) {
+					return parseSlow();
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (seenPoint) {
+					exponent--;
+				}
+			} else if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				// exponents, infinities and anything unusual
+				return parseSlow();
+			}
+		}
+		if (!seenDigit) {
+			return parseSlow();
+		}
+
+		double value;
+		if (mantissa == 0) {
+			value = 0;
+		} else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return parseSlow();
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the current field with Double.parseDouble.
+	 */
+	private double parseSlow() throws NeuralNetworkException {
+		String text = new String(field, 0, fieldLength, StandardCharsets.US_ASCII);
+		try {
+			return Double.parseDouble(text);
+		} catch (NumberFormatException e) {
+			throw new NeuralNetworkException(String.format("Invalid number \"%s\" on line %d of %s",
+					text, lineNumber + 1, filepath), e);
+		}
+	}
+
+	/**
+	 * Reads the next block of the file into the buffer.
+	 *
+	 * @return: False at the end of the file.
+	 */
+	private boolean fill() throws NeuralNetworkException {
+		if (endOfInput) {
+			return false;
+		}
+		buffer.clear();
+		try {
+			int read;
+			do {
+				read = channel.read(buffer);
+			} while (read == 0);
+			if (read == -1) {
+				endOfInput = true;
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading CSV file: %s", filepath), e);
+		}
+		buffer.flip();
+		return buffer.hasRemaining();
+	}
+
+	@Override
+	public void close() throws NeuralNetworkException {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error closing CSV file: %s", filepath), e);
+		}
+	}
+}
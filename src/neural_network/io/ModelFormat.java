@@ -0,0 +1,220 @@
+package neural_network.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import neural_network.Activation;
+import neural_network.HiddenLayer;
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.Perceptron;
+
+/**
+ * Reads and writes trained neural networks in a compact, versioned binary format.
+ *
+ * File layout, all values little-endian:
+ *   int magic ("SPNN"), int version, int activation, int number of inputs,
+ *   int number of layers (hidden layers plus the output layer),
+ *   int[layers] perceptrons per layer, int padding if needed for 8-byte alignment,
+ *   then per layer a double[perceptrons * inputs] weight matrix, row-major.
+ *
+ * Rationale: unlike Java serialization of the Perceptron object graph, the file
+ * only holds the weights, loads with one mapping and a bulk copy per layer,
+ * and does not depend on the fields of the network classes.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class ModelFormat {
+
+	public static final int MAGIC = 0x53504e4e;
+	public static final int VERSION = 1;
+	public static final int ACTIVATION_SIGMOID = 0;
+	public static final int ACTIVATION_FAST_SIGMOID = 1;
+
+	/**
+	 * Returns whether a file starts with the model format magic number.
+	 *
+	 * @param filepath: The path of a file.
+	 * @return: True if the file looks like a model file.
+	 */
+	public static boolean isModelFile(String filepath) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a neural network to a model file.
+	 *
+	 * @param nnet: The neural network to write.
+	 * @param filepath: The path of the file to create.
+	 * @throws NeuralNetworkException: if the file cannot be written.
+	 */
+	public static void write(NeuralNetwork nnet, String filepath) throws NeuralNetworkException {
+		Perceptron[][] layers = getLayers(nnet);
+		int headerBytes = (int) headerBytes(layers.length);
+		long size = headerBytes;
+		for (Perceptron[] layer : layers) {
+			size += (long) layer.length * layer[0].getWeights().length * Double.BYTES;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(activationCode(nnet.getActivation()))
+				.putInt(nnet.NUM_INPUTS).putInt(layers.length);
+		for (Perceptron[] layer : layers) {
+			buffer.putInt(layer.length);
+		}
+		buffer.position(headerBytes);
+		for (Perceptron[] layer : layers) {
+			for (Perceptron perceptron : layer) {
+				for (double weight : perceptron.getWeights()) {
+					buffer.putDouble(weight);
+				}
+			}
+		}
+		buffer.flip();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error writing model file: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Reads a neural network from a model file.
+	 *
+	 * @param filepath: The path of a model file.
+	 * @return: The neural network stored in the file.
+	 * @throws NeuralNetworkException: if the file cannot be read or is not a valid model.
+	 */
+	public static NeuralNetwork read(String filepath) throws NeuralNetworkException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new NeuralNetworkException(String.format("Model file is too large: %s", filepath));
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return read(buffer, filepath);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading model file: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Decodes a neural network from a little-endian buffer holding a model file.
+	 */
+	private static NeuralNetwork read(ByteBuffer buffer, String filepath) throws NeuralNetworkException {
+		if (buffer.remaining() < 5 * Integer.BYTES || buffer.getInt() != MAGIC) {
+			throw new NeuralNetworkException(String.format("Not a model file: %s", filepath));
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new NeuralNetworkException(String.format("Unsupported model version %d: %s", version, filepath));
+		}
+		int activationCode = buffer.getInt();
+		Activation activation;
+		switch (activationCode) {
+			case ACTIVATION_SIGMOID:
+				activation = Activation.EXACT;
+				break;
+
+			case ACTIVATION_FAST_SIGMOID:
+				activation = Activation.FAST;
+				break;
+
+			default:
+				throw new NeuralNetworkException(String.format("Unsupported activation %d: %s", activationCode, filepath));
+		}
+		int numInputs = buffer.getInt();
+		int numLayers = buffer.getInt();
+		// compared by division, since numLayers * Integer.BYTES overflows for a corrupt count
+		if (numInputs <= 0 || numLayers < 2 || numLayers > buffer.remaining() / Integer.BYTES) {
+			throw new NeuralNetworkException(String.format("Corrupt model header: %s", filepath));
+		}
+		int[] layerSizes = new int[numLayers];
+		long expectedSize = headerBytes(numLayers);
+		for (int layer = 0; layer < numLayers; layer++) {
+			layerSizes[layer] = buffer.getInt();
+			int layerInputs = layer == 0 ? numInputs : layerSizes[layer - 1];
+			// each layer must fit in the file, which also keeps expectedSize from overflowing
+			if (layerSizes[layer] <= 0 || (long) layerSizes[layer] * layerInputs > buffer.limit() / Double.BYTES) {
+				throw new NeuralNetworkException(String.format("Corrupt model header: %s", filepath));
+			}
+			expectedSize += (long) layerSizes[layer] * layerInputs * Double.BYTES;
+		}
+		if (expectedSize != buffer.limit()) {
+			throw new NeuralNetworkException(String.format("Truncated or corrupt model file: %s", filepath));
+		}
+
+		// NeuralNetwork gives every hidden layer the same number of perceptrons
+		int numHiddenLayers = numLayers - 1;
+		for (int layer = 1; layer < numHiddenLayers; layer++) {
+			if (layerSizes[layer] != layerSizes[0]) {
+				throw new NeuralNetworkException(String.format("Hidden layers of different sizes are not supported: %s", filepath));
+			}
+		}
+
+		// the perceptrons are built from the stored weights, so they are also what reset returns to
+		buffer.position((int) headerBytes(numLayers));
+		DoubleBuffer weights = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		double[][][] layerWeights = new double[numLayers][][];
+		for (int layer = 0; layer < numLayers; layer++) {
+			int layerInputs = layer == 0 ? numInputs : layerSizes[layer - 1];
+			layerWeights[layer] = new double[layerSizes[layer]][layerInputs];
+			for (double[] perceptronWeights : layerWeights[layer]) {
+				weights.get(perceptronWeights);
+			}
+		}
+		NeuralNetwork nnet = new NeuralNetwork(numInputs, layerWeights);
+		nnet.setActivation(activation);
+		return nnet;
+	}
+
+	/**
+	 * Returns the code a model file stores for an activation.
+	 */
+	private static int activationCode(Activation activation) {
+		switch (activation) {
+			case FAST:
+				return ACTIVATION_FAST_SIGMOID;
+
+			default:
+				return ACTIVATION_SIGMOID;
+		}
+	}
+
+	/**
+	 * Returns the perceptrons of each layer, the output layer last.
+	 */
+	private static Perceptron[][] getLayers(NeuralNetwork nnet) {
+		HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
+		Perceptron[][] layers = new Perceptron[hiddenLayers.length + 1][];
+		for (int layer = 0; layer < hiddenLayers.length; layer++) {
+			layers[layer] = hiddenLayers[layer].getHiddenPerceptrons();
+		}
+		layers[hiddenLayers.length] = nnet.getOutputPerceptrons();
+		return layers;
+	}
+
+	/**
+	 * Returns the size of the header, rounded up so the weights are 8-byte aligned.
+	 */
+	private static long headerBytes(int numLayers) {
+		long bytes = (5L + numLayers) * Integer.BYTES;
+		return (bytes + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+	}
+}
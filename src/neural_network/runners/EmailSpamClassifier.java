@@ -1,30 +1,84 @@
 package neural_network.runners;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import neural_network.Data;
+import neural_network.EnsembleNetwork;
+import neural_network.InferenceModel;
+import neural_network.InferenceNetwork;
+import neural_network.ModelCompiler;
+import neural_network.NeuralNetwork;
 import neural_network.NeuralNetworkException;
+import neural_network.OnlineLearner;
+import neural_network.Optimizer;
+import neural_network.Precision;
+import neural_network.features.FeatureExtractor;
+import neural_network.features.Message;
+import neural_network.features.MessageReader;
+import neural_network.io.BinaryDataset;
+import neural_network.io.CSVParser;
+import neural_network.io.ModelFormat;
+import neural_network.server.ScoringServer;
 
 /**
  * Main program for classifying email spam using an artificial neural network.
  * 
- * Usage: java neural_network.runners.EmailSpamClassifier train training_data_filepath validation_data_filepath
+ * Usage: java neural_network.runners.EmailSpamClassifier train training_data_filepath validation_data_filepath [option=value ...]
  *        java neural_network.runners.EmailSpamClassifier test validation_data_filepath neural_network_save_filepath
+ *        java neural_network.runners.EmailSpamClassifier convert csv_data_filepath binary_data_filepath
+ *        java neural_network.runners.EmailSpamClassifier quantize validation_data_filepath neural_network_save_filepath [float32|int8]
+ *        java neural_network.runners.EmailSpamClassifier serve neural_network_save_filepath [port] [option=value ...]
+ *        java neural_network.runners.EmailSpamClassifier classify neural_network_save_filepath messages_path [names_filepath]
+ *        java neural_network.runners.EmailSpamClassifier extract messages_path csv_data_filepath spam|ham [names_filepath]
+ *        java neural_network.runners.EmailSpamClassifier score neural_network_save_filepath input_path [option=value ...]
+ * 
+ * Data files may be CSV or binary datasets written by the convert command.
+ * Messages may be a raw RFC 822 message file, an mbox file, or a directory of either.
  * 
  * @author Michael Yachanin (mry1294)
  */
 public class EmailSpamClassifier {	
+	
+	private static final int DEFAULT_PORT = 8080;
+	
+	/**
+	 * Imports all data from a binary dataset or CSV file.
+	 * A binary dataset is not copied: its rows are read from the mapped file as they are used.
+	 * 
+	 * @param filepath: The path of a binary dataset or CSV file.
+	 * @return: A list containing the imported data.
+	 * @throws NeuralNetworkException 
+	 */
+	private static List<Data> importData(String filepath) throws NeuralNetworkException {
+		if (BinaryDataset.isBinaryDataset(filepath)) {
+			return BinaryDataset.open(filepath).asDataList();
+		}
+		return CSVParser.readData(filepath);
+	}
+	
 	/**
-	 * Imports all data from a CSV file into an ArrayList.
+	 * Imports all data from a CSV file into an ArrayList, one String per line.
+	 * Superseded by CSVParser and kept as the baseline for the import benchmark.
 	 * 
 	 * @param filepath: The path of a CSV file.
 	 * @return: An ArrayList containing the imported data.
 	 * @throws NeuralNetworkException 
 	 */
-	private static ArrayList<Data> importCSVData(String filepath) throws NeuralNetworkException {
+	public static ArrayList<Data> importCSVData(String filepath) throws NeuralNetworkException {
 		ArrayList<Data> data = new ArrayList<>();
 		try (BufferedReader br = new BufferedReader(new FileReader(filepath ))) {
 		    for (String line; (line = br.readLine()) != null; ) {
@@ -64,22 +118,118 @@ public class EmailSpamClassifier {
 	 * Main Program.
 	 */
 	public static void main(String[] args) {
-		if (args.length != 3) {
+		if (args.length == 0) {
 			usage();
 		}
+		switch (args[0].toLowerCase()) {
+			case "serve":
+				requireArgs(args, 2, Integer.MAX_VALUE);
+				break;
+			
+			case "test":
+			case "convert":
+				requireArgs(args, 3, 3);
+				break;
+			
+			case "quantize":
+			case "classify":
+				requireArgs(args, 3, 4);
+				break;
+			
+			case "extract":
+				requireArgs(args, 4, 5);
+				break;
+			
+			case "ensemble":
+				requireArgs(args, 4, Integer.MAX_VALUE);
+				break;
+			
+			case "train":
+			case "search":
+				requireArgs(args, 3, Integer.MAX_VALUE);
+				break;
+			
+			case "score":
+				requireArgs(args, 3, Integer.MAX_VALUE);
+				break;
+			
+			default:
+				usage();
+		}
 		
 		try {
-			ArrayList<Data> data = importCSVData(args[1]);
+			switch (args[0].toLowerCase()) {
+				case "serve":
+					boolean hasPort = args.length > 2 && !args[2].contains("=");
+					serve(args[1], hasPort ? args[2] : null, parseOptions(args, hasPort ? 3 : 2));
+					return;
+				
+				case "convert":
+					BinaryDataset.write(CSVParser.readData(args[1]), args[2]);
+					return;
+				
+				case "classify":
+					classifyMessages(args[1], args[2], args.length == 4 ? args[3] : null);
+					return;
+				
+				case "extract":
+					extractMessages(args[1], args[2], parseLabel(args[3]), args.length == 5 ? args[4] : null);
+					return;
+				
+				case "score":
+					scoreStream(args[1], args[2], parseOptions(args, 3));
+					return;
+			}
+			
+			List<Data> data = importData(args[1]);
 			switch (args[0].toLowerCase()) {
 				case "test":
 					new Tester(data).startTest(args[2], true);
 					break;
 				
+				case "ensemble":
+					EnsembleNetwork.Combination combination = null;
+					try {
+						combination = EnsembleNetwork.Combination.valueOf(args[2].toUpperCase());
+					} catch (IllegalArgumentException e) {
+						usage();
+					}
+					new Tester(data).testEnsemble(Arrays.asList(args).subList(3, args.length), combination);
+					break;
+				
+				case "quantize":
+					Precision precision = Precision.INT8;
+					if (args.length == 4) {
+						try {
+							precision = Precision.valueOf(args[3].toUpperCase());
+						} catch (IllegalArgumentException e) {
+							usage();
+						}
+					}
+					if (!new Tester(data).compareQuantized(args[2], precision)) {
+						System.err.println("The quantized neural network is not within tolerance.");
+						System.exit(1);
+					}
+					break;
+				
 				case "train":
-					Thread trainer = new Thread(new Trainer(data, importCSVData(args[2])));
+					TrainingConfig config = parseTrainingOptions(args, 3);
+					Thread trainer = new Thread(new Trainer(data, importData(args[2]), config));
 					trainer.start();
 					trainer.join();
 					break;
+				
+				case "search":
+					HyperparameterSearch search;
+					try {
+						search = new HyperparameterSearch(data, importData(args[2]), parseOptions(args, 3));
+					} catch (IllegalArgumentException e) {
+						System.err.println(e.getMessage());
+						usage();
+						return;
+					}
+					search.run();
+					break;
 					
 				default:
 					usage();
@@ -93,12 +243,358 @@ public class EmailSpamClassifier {
 		}
 	}
 	
+	/**
+	 * Prints a usage message and exits unless a command has an allowed number of arguments.
+	 * 
+	 * @param args: The command line arguments, including the command.
+	 * @param min: The fewest arguments allowed.
+	 * @param max: The most arguments allowed.
+	 */
+	private static void requireArgs(String[] args, int min, int max) {
+		if (args.length < min || args.length > max) {
+			usage();
+		}
+	}
+	
+	/**
+	 * Loads a neural network and scores feature vectors sent to a local HTTP endpoint until killed.
+	 * With learn=true, it also learns from labeled feature vectors sent to /feedback.
+	 * 
+	 * @param neuralNetFilepath: Filepath to the neural network to serve.
+	 * @param port: The port to listen on, or null for DEFAULT_PORT.
+	 * @param options: learn, optimizer, learning_rate, output and compile.
+	 */
+	private static void serve(String neuralNetFilepath, String port, Map<String, String> options)
+			throws NeuralNetworkException {
+		boolean learn = parseBooleanOption(options, "learn");
+		boolean compile = parseBooleanOption(options, "compile");
+		Optimizer optimizer = Optimizer.ADAM;
+		double learningRate = Double.NaN;
+		String outputFilepath = options.remove("output");
+		try {
+			if (options.containsKey("optimizer")) {
+				optimizer = Optimizer.valueOf(options.remove("optimizer").toUpperCase());
+			}
+			if (options.containsKey("learning_rate")) {
+				learningRate = Double.parseDouble(options.remove("learning_rate"));
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid serving option: " + e.getMessage());
+			usage();
+		}
+		if (!options.isEmpty()) {
+			System.err.println("Unknown serving option: " + options.keySet().iterator().next());
+			usage();
+		}
+		if (learn && compile) {
+			System.err.println("A compiled network cannot learn, since its weights are constants.");
+			usage();
+		}
+		if (Double.isNaN(learningRate)) {
+			learningRate = optimizer.DEFAULT_LEARNING_RATE * OnlineLearner.DEFAULT_LEARNING_RATE_SCALE;
+		}
+		
+		NeuralNetwork nnet = Runner.loadNeuralNetwork(neuralNetFilepath);
+		OnlineLearner learner = null;
+		if (learn) {
+			try {
+				learner = new OnlineLearner(nnet, optimizer, learningRate);
+			} catch (IllegalArgumentException e) {
+				System.err.println(e.getMessage());
+				usage();
+			}
+		}
+		int portNumber = DEFAULT_PORT;
+		if (port != null) {
+			try {
+				portNumber = Integer.parseInt(port);
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid port: " + port);
+				usage();
+			}
+		}
+		ScoringServer server = learner == null ? new ScoringServer(createInferenceModel(nnet, compile), portNumber)
+				: new ScoringServer(learner, portNumber);
+		OnlineLearner onlineLearner = learner;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(1);
+			if (onlineLearner != null && outputFilepath != null) {
+				saveLearnedNetwork(onlineLearner, outputFilepath);
+			}
+		}));
+		server.start();
+		System.out.printf("Scoring server listening on http://127.0.0.1:%d/score (stats at /stats)%n", server.getPort());
+		if (learner != null) {
+			System.out.printf("Learning from feedback at http://127.0.0.1:%d/feedback with %s, learning rate %s%n",
+					server.getPort(), optimizer.name().toLowerCase(), learningRate);
+		}
+	}
+	
+	/**
+	 * Saves the weights an online learner has published.
+	 * 
+	 * @param learner: The online learner.
+	 * @param outputFilepath: The file to save the network to.
+	 */
+	private static void saveLearnedNetwork(OnlineLearner learner, String outputFilepath) {
+		try {
+			ModelFormat.write(learner.copyNeuralNetwork(), outputFilepath);
+			System.out.printf("Saved the network after %d feedback samples to %s%n", learner.getUpdates(), outputFilepath);
+		} catch (NeuralNetworkException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Creates a feature extractor for all spambase features or those listed in a names file.
+	 * 
+	 * @param namesFilepath: The path of a spambase .names file, or null for all features.
+	 * @return: The feature extractor.
+	 * @throws NeuralNetworkException 
+	 */
+	private static FeatureExtractor createFeatureExtractor(String namesFilepath) throws NeuralNetworkException {
+		return namesFilepath == null ? new FeatureExtractor() : FeatureExtractor.fromNamesFile(namesFilepath);
+	}
+	
+	/**
+	 * Extracts the features of raw email messages and classifies them as they are read,
+	 * printing one line per message: its source, score and classification.
+	 * 
+	 * @param neuralNetFilepath: Filepath to the neural network to classify with.
+	 * @param messagesPath: A message file, mbox file or directory of either.
+	 * @param namesFilepath: The .names file of the features the network was trained on,
+	 * or null for all spambase features.
+	 * @throws NeuralNetworkException 
+	 */
+	private static void classifyMessages(String neuralNetFilepath, String messagesPath, String namesFilepath)
+			throws NeuralNetworkException {
+		InferenceModel model = new InferenceNetwork(Runner.loadNeuralNetwork(neuralNetFilepath));
+		FeatureExtractor extractor = createFeatureExtractor(namesFilepath);
+		if (extractor.getNumFeatures() != model.getNumInputs()) {
+			throw new NeuralNetworkException(String.format(
+					"The neural network expects %d features, but %d are extracted. Pass the .names file it was trained with.",
+					model.getNumInputs(), extractor.getNumFeatures()));
+		}
+		
+		double[] features = new double[extractor.getNumFeatures()];
+		double[] outputs = new double[model.getNumOutputs()];
+		try (MessageReader reader = new MessageReader(messagesPath)) {
+			for (Message message; (message = reader.next()) != null; ) {
+				extractor.extract(message, features);
+				model.classify(features, outputs);
+				System.out.printf("%s\t%.6f\t%s%n", message.SOURCE, outputs[0], Math.round(outputs[0]) == 1 ? "spam" : "ham");
+			}
+		}
+	}
+	
+	/**
+	 * Scores a data file or mail corpus as a stream, without loading it into memory.
+	 * 
+	 * @param neuralNetFilepath: Filepath to the neural network to score with.
+	 * @param inputPath: A CSV data file, binary dataset, message file, mbox file or directory of messages.
+	 * @param options: The options scores, names, workers, batch_size and compile, by name.
+	 * @throws NeuralNetworkException 
+	 * @throws InterruptedException 
+	 */
+	private static void scoreStream(String neuralNetFilepath, String inputPath, Map<String, String> options)
+			throws NeuralNetworkException, InterruptedException {
+		int workers = Runtime.getRuntime().availableProcessors();
+		int batchSize = StreamingScorer.DEFAULT_BATCH_SIZE;
+		String scoresFilepath = options.remove("scores");
+		String namesFilepath = options.remove("names");
+		boolean compile = parseBooleanOption(options, "compile");
+		try {
+			if (options.containsKey("workers")) {
+				workers = Integer.parseInt(options.remove("workers"));
+			}
+			if (options.containsKey("batch_size")) {
+				batchSize = Integer.parseInt(options.remove("batch_size"));
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number: " + e.getMessage());
+			usage();
+		}
+		if (!options.isEmpty()) {
+			System.err.println("Unknown scoring option: " + options.keySet().iterator().next());
+			usage();
+		}
+		
+		InferenceModel model = createInferenceModel(Runner.loadNeuralNetwork(neuralNetFilepath), compile);
+		StreamingScorer scorer;
+		try {
+			scorer = new StreamingScorer(model, batchSize, workers);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			usage();
+			return;
+		}
+		FeatureExtractor extractor = createFeatureExtractor(namesFilepath);
+		if (scoresFilepath == null) {
+			scorer.score(inputPath, extractor, System.out);
+			return;
+		}
+		try (PrintStream scores = new PrintStream(new BufferedOutputStream(new FileOutputStream(scoresFilepath)),
+				false, StandardCharsets.US_ASCII)) {
+			scorer.score(inputPath, extractor, scores);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error writing scores file: %s", scoresFilepath), e);
+		}
+	}
+	
+	/**
+	 * Creates the model to classify with.
+	 * 
+	 * @param nnet: The neural network to classify with.
+	 * @param compile: Should the network be compiled by ModelCompiler?
+	 * @return: The compiled network if asked for and possible, otherwise an InferenceNetwork.
+	 */
+	private static InferenceModel createInferenceModel(NeuralNetwork nnet, boolean compile) {
+		if (compile) {
+			try {
+				return ModelCompiler.compile(nnet);
+			} catch (NeuralNetworkException | IllegalArgumentException e) {
+				System.err.println(e.getMessage() + " Classifying with the uncompiled network.");
+			}
+		}
+		return new InferenceNetwork(nnet);
+	}
+	
+	/**
+	 * Removes a true|false option from parsed options.
+	 * 
+	 * @param options: The options, by name.
+	 * @param name: The name of the option.
+	 * @return: The value of the option, or false if it is not given.
+	 */
+	private static boolean parseBooleanOption(Map<String, String> options, String name) {
+		String value = options.remove(name);
+		if (value == null) {
+			return false;
+		}
+		if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+			System.err.printf("Invalid value for %s: %s%n", name, value);
+			usage();
+		}
+		return Boolean.parseBoolean(value);
+	}
+	
+	/**
+	 * Parses options of the form name=value.
+	 * 
+	 * @param args: The command line arguments.
+	 * @param firstOption: The index of the first option in args.
+	 * @return: The value of each option, by lower case name.
+	 */
+	private static Map<String, String> parseOptions(String[] args, int firstOption) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (int i = firstOption; i < args.length; i++) {
+			String[] option = args[i].split("=", 2);
+			if (option.length != 2) {
+				usage();
+			}
+			options.put(option[0].toLowerCase(), option[1]);
+		}
+		return options;
+	}
+	
+	/**
+	 * Extracts the features of raw email messages into a CSV data file for training or testing.
+	 * 
+	 * @param messagesPath: A message file, mbox file or directory of either.
+	 * @param csvFilepath: The CSV data file to create.
+	 * @param classification: The classification of every message: 1 for spam, 0 otherwise.
+	 * @param namesFilepath: The .names file of the features to extract, or null for all spambase features.
+	 * @throws NeuralNetworkException 
+	 */
+	private static void extractMessages(String messagesPath, String csvFilepath, int classification, String namesFilepath)
+			throws NeuralNetworkException {
+		FeatureExtractor extractor = createFeatureExtractor(namesFilepath);
+		double[] features = new double[extractor.getNumFeatures()];
+		try (MessageReader reader = new MessageReader(messagesPath);
+				BufferedWriter writer = Files.newBufferedWriter(Paths.get(csvFilepath), StandardCharsets.US_ASCII)) {
+			for (Message message; (message = reader.next()) != null; ) {
+				extractor.extract(message, features);
+				for (double feature : features) {
+					writer.write(Double.toString(feature));
+					writer.write(',');
+				}
+				writer.write(Integer.toString(classification));
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error writing CSV file: %s", csvFilepath), e);
+		}
+	}
+	
+	/**
+	 * Parses the classification given for extracted messages.
+	 * 
+	 * @param label: "1" or "spam" for spam, "0" or "ham" otherwise.
+	 * @return: The classification.
+	 */
+	private static int parseLabel(String label) {
+		switch (label.toLowerCase()) {
+			case "1":
+			case "spam":
+				return 1;
+			
+			case "0":
+			case "ham":
+				return 0;
+			
+			default:
+				System.err.println("Invalid classification: " + label);
+				usage();
+				return -1;
+		}
+	}
+	
+	/**
+	 * Parses training options of the form name=value.
+	 * 
+	 * @param args: The command line arguments.
+	 * @param firstOption: The index of the first option in args.
+	 * @return: A training config with the given options set.
+	 */
+	private static TrainingConfig parseTrainingOptions(String[] args, int firstOption) {
+		TrainingConfig config = new TrainingConfig();
+		for (int i = firstOption; i < args.length; i++) {
+			String[] option = args[i].split("=", 2);
+			if (option.length != 2) {
+				usage();
+			}
+			try {
+				config.setOption(option[0], option[1]);
+			} catch (IllegalArgumentException e) {
+				System.err.println(e.getMessage());
+				usage();
+			}
+		}
+		return config;
+	}
+	
 	/**
 	 * Prints a usage message to stderr and exits. 
 	 */
 	private static void usage() {
-		System.err.println("Usage: java neural_network.runners.EmailSpamClassifier train training_data_filepath validation_data_filepath");
+		System.err.println("Usage: java neural_network.runners.EmailSpamClassifier train training_data_filepath validation_data_filepath [option=value ...]");
 		System.err.println("       java neural_network.runners.EmailSpamClassifier test validation_data_filepath neural_network_save_filepath");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier ensemble validation_data_filepath average|vote neural_network_save_path ...");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier convert csv_data_filepath binary_data_filepath");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier quantize validation_data_filepath neural_network_save_filepath [float32|int8]");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier serve neural_network_save_filepath [port] [option=value ...]");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier classify neural_network_save_filepath messages_path [names_filepath]");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier extract messages_path csv_data_filepath spam|ham [names_filepath]");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier score neural_network_save_filepath input_path [option=value ...]");
+		System.err.println("       java neural_network.runners.EmailSpamClassifier search training_data_filepath validation_data_filepath [option=v1,v2,...|option=lo..hi ...]");
+		System.err.println("Training options: parallelism=N batch_size=N gradient_threads=N activation=exact|fast");
+		System.err.println("                  hidden_layers=N hidden_perceptrons=N initializer=uniform|xavier|he seed=N");
+		System.err.println("                  optimizer=sgd|momentum|rmsprop|adam learning_rate=RATE");
+		System.err.println("Bounded training: max_rounds=N max_epochs=N patience=N time_budget=SECONDS target_error=RATE");
+		System.err.println("                  checkpoint=FILE resume=true|false output=FILE");
+		System.err.println("Training metrics: metrics_log=FILE jmx=true|false");
+		System.err.println("Search options: workers=N repeats=N time_budget=SECONDS leaderboard=FILE output=FILE, plus any training option");
+		System.err.println("Serving options: compile=true|false learn=true|false optimizer=sgd|momentum|rmsprop|adam learning_rate=RATE output=FILE");
 		System.exit(1);
 	}
 }
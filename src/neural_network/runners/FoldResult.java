@@ -0,0 +1,52 @@
+package neural_network.runners;
+
+import neural_network.NeuralNetwork;
+
+/**
+ * The outcome of training a neural network on one cross-validation fold.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class FoldResult {
+
+	public final int FOLD;
+	public final double TEST_ERROR;
+	public final double VALIDATION_ERROR;
+	public final int ITERATIONS;
+	public final NeuralNetwork NETWORK;
+
+	/**
+	 * Construct the result of training one fold.
+	 *
+	 * @param fold : The index of the fold used as test data.
+	 * @param testError : The last testing error of the fold.
+	 * @param validationError : The validation error, or NaN if the testing goal was not met.
+	 * @param iterations : The number of passes over the training folds.
+	 */
+	public FoldResult(int fold, double testError, double validationError, int iterations) {
+		this(fold, testError, validationError, iterations, null);
+	}
+
+	/**
+	 * Construct the result of training one fold, keeping the network it produced.
+	 *
+	 * @param fold : The index of the fold used as test data.
+	 * @param testError : The testing error of the kept network.
+	 * @param validationError : The validation error of the kept network.
+	 * @param iterations : The number of passes over the training folds.
+	 * @param network : The network with the lowest validation error, or null if none is kept.
+	 */
+	public FoldResult(int fold, double testError, double validationError, int iterations, NeuralNetwork network) {
+		FOLD = fold;
+		TEST_ERROR = testError;
+		VALIDATION_ERROR = validationError;
+		ITERATIONS = iterations;
+		NETWORK = network;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Fold: %d - testing error: %.4f, validation error: %.4f, iterations: %d",
+				(FOLD + 1), TEST_ERROR, VALIDATION_ERROR, ITERATIONS);
+	}
+}
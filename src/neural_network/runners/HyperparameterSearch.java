@@ -0,0 +1,382 @@
+package neural_network.runners;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import neural_network.Data;
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.io.ModelFormat;
+
+/**
+ * Trains a grid of training configs concurrently and ranks them by validation error.
+ *
+ * Any training option can be searched by giving it several values: a comma
+ * separated list (learning_rate=0.01,0.02,0.05) or an inclusive integer range
+ * (hidden_layers=1..3). Options with one value are shared by every candidate.
+ * The candidates are every combination of the searched values.
+ *
+ * Each candidate trains one new network on each of its first REPEATS folds,
+ * one after the other on a single worker, with the early stopping of bounded
+ * training (patience 3 unless given). The workers of the pool train different
+ * candidates at once. Unless the seed is given or searched, one random seed is
+ * shared by every candidate, so each fold starts every candidate of the same
+ * shape from the same weights. Once the time budget runs out, no more candidates are
+ * started and running ones stop after their current epoch.
+ *
+ * The leaderboard is a tab separated file, best first: the mean and best
+ * validation error over the repeats, the mean testing error, the epochs and
+ * training time, whether the budget cut the candidate short or it failed, and
+ * its values. A failed candidate is ranked last and does not stop the search.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class HyperparameterSearch implements Runnable {
+
+	private static final String DEFAULT_PATIENCE = "3";
+
+	private final List<Data> data;
+	private final List<Data> validationData;
+	private final Map<String, String> sharedOptions = new LinkedHashMap<>();
+	private final Map<String, List<String>> searchedOptions = new LinkedHashMap<>();
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private int repeats = 3;
+	private long timeBudgetSeconds = 0;
+	private String leaderboardFilepath = "leaderboard.tsv";
+	private String outputFilepath = "nnet_best.save";
+
+	/**
+	 * The outcome of training one candidate config.
+	 */
+	private static class Candidate {
+
+		final Map<String, String> values;
+		double meanValidationError;
+		double bestValidationError = Double.POSITIVE_INFINITY;
+		double meanTestError;
+		int epochs;
+		long trainNanos;
+		boolean stoppedByBudget;
+		NeuralNetwork bestNetwork;
+		// set if training the candidate threw
+		RuntimeException error;
+
+		Candidate(Map<String, String> values) {
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Construct a search over training configs.
+	 *
+	 * @param data : The data to train and test with.
+	 * @param validationData : The data to rank candidates with.
+	 * @param options : Training options by name, each with one value or a list or range
+	 * of values to search, plus the search options workers, repeats, leaderboard,
+	 * output and time_budget.
+	 * @throws IllegalArgumentException : if an option or value is invalid.
+	 */
+	public HyperparameterSearch(List<Data> data, List<Data> validationData, Map<String, String> options) {
+		this.data = data;
+		this.validationData = validationData;
+		sharedOptions.put("patience", DEFAULT_PATIENCE);
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			String name = option.getKey().toLowerCase();
+			String value = option.getValue();
+			switch (name) {
+				case "workers":
+					workers = parsePositiveInt(name, value);
+					break;
+
+				case "repeats":
+					repeats = parsePositiveInt(name, value);
+					if (repeats > 10) {
+						throw new IllegalArgumentException("There are only 10 folds to repeat over.");
+					}
+					break;
+
+				case "leaderboard":
+					leaderboardFilepath = value;
+					break;
+
+				case "output":
+					outputFilepath = value;
+					break;
+
+				default:
+					List<String> values = parseValues(name, value);
+					// validate every value now rather than in the middle of the search
+					for (String candidateValue : values) {
+						new TrainingConfig().setOption(name, candidateValue);
+					}
+					if (name.equals("time_budget")) {
+						if (values.size() != 1) {
+							throw new IllegalArgumentException("The time budget cannot be searched.");
+						}
+						timeBudgetSeconds = Long.parseLong(values.get(0));
+					}
+					if (values.size() == 1) {
+						sharedOptions.put(name, values.get(0));
+					} else {
+						searchedOptions.put(name, values);
+					}
+			}
+		}
+		if (!sharedOptions.containsKey("seed") && !searchedOptions.containsKey("seed")) {
+			sharedOptions.put("seed", Long.toString(new SplittableRandom().nextLong()));
+		}
+	}
+
+	/**
+	 * Start the search, print the top of the leaderboard and save the best network.
+	 */
+	public void run() {
+		List<Candidate> candidates = new ArrayList<>();
+		addCandidates(new LinkedHashMap<>(), new ArrayList<>(searchedOptions.keySet()), candidates);
+		System.out.printf("Searching %d candidates with %d workers, %d folds each%n",
+				candidates.size(), workers, repeats);
+		if (sharedOptions.containsKey("seed")) {
+			System.out.println("Seed: " + sharedOptions.get("seed"));
+		}
+
+		long startNanos = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		List<Callable<Candidate>> tasks = new ArrayList<>();
+		for (Candidate candidate : candidates) {
+			tasks.add(() -> {
+				try {
+					return train(candidate, startNanos);
+				} catch (RuntimeException e) {
+					// one bad candidate does not cost the results of the others
+					candidate.error = e;
+					candidate.meanValidationError = candidate.bestValidationError = candidate.meanTestError = Double.NaN;
+					System.err.printf("%s - failed: %s%n", describe(candidate), e);
+					return candidate;
+				}
+			});
+		}
+
+		List<Candidate> finished = new ArrayList<>();
+		try {
+			for (Future<Candidate> result : pool.invokeAll(tasks)) {
+				if (result.get() != null) {
+					finished.add(result.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (ExecutionException e) {
+			System.err.println("There was an error while training a candidate.");
+			e.getCause().printStackTrace();
+			return;
+		} finally {
+			pool.shutdownNow();
+		}
+
+		finished.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.meanValidationError)
+				.thenComparingDouble(candidate -> candidate.bestValidationError));
+		System.out.printf("Trained %d of %d candidates in %.1f s%n", finished.size(), candidates.size(),
+				(System.nanoTime() - startNanos) / 1e9);
+		try {
+			writeLeaderboard(finished);
+			printLeaderboard(finished, 10);
+			if (!finished.isEmpty() && finished.get(0).bestNetwork != null) {
+				ModelFormat.write(finished.get(0).bestNetwork, outputFilepath);
+				System.out.println("Best neural net saved as: " + outputFilepath);
+			}
+		} catch (NeuralNetworkException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds a candidate for every combination of the values of the remaining searched options.
+	 */
+	private void addCandidates(Map<String, String> values, List<String> remaining, List<Candidate> candidates) {
+		if (remaining.isEmpty()) {
+			candidates.add(new Candidate(new LinkedHashMap<>(values)));
+			return;
+		}
+		String name = remaining.get(0);
+		for (String value : searchedOptions.get(name)) {
+			values.put(name, value);
+			addCandidates(values, remaining.subList(1, remaining.size()), candidates);
+		}
+		values.remove(name);
+	}
+
+	/**
+	 * Trains a candidate on its folds, unless the time budget has run out.
+	 *
+	 * @param candidate : The candidate to train.
+	 * @param startNanos : When the search started.
+	 * @return : The trained candidate, or null if it was not started.
+	 */
+	private Candidate train(Candidate candidate, long startNanos) {
+		if (isOverBudget(startNanos)) {
+			return null;
+		}
+		TrainingConfig config = new TrainingConfig().setParallelism(1);
+		for (Map.Entry<String, String> option : sharedOptions.entrySet()) {
+			config.setOption(option.getKey(), option.getValue());
+		}
+		for (Map.Entry<String, String> option : candidate.values.entrySet()) {
+			config.setOption(option.getKey(), option.getValue());
+		}
+
+		Trainer trainer = new Trainer(data, validationData, config);
+		double validationErrorSum = 0;
+		double testErrorSum = 0;
+		int folds = 0;
+		while (folds < repeats && !isOverBudget(startNanos)) {
+			long foldStartNanos = System.nanoTime();
+			FoldResult result = trainer.trainSingleFold(folds, startNanos);
+			candidate.trainNanos += System.nanoTime() - foldStartNanos;
+			candidate.epochs += result.ITERATIONS;
+			validationErrorSum += result.VALIDATION_ERROR;
+			testErrorSum += result.TEST_ERROR;
+			if (result.VALIDATION_ERROR < candidate.bestValidationError) {
+				candidate.bestValidationError = result.VALIDATION_ERROR;
+				candidate.bestNetwork = result.NETWORK;
+			}
+			folds++;
+		}
+		candidate.stoppedByBudget = isOverBudget(startNanos);
+		candidate.meanValidationError = validationErrorSum / folds;
+		candidate.meanTestError = testErrorSum / folds;
+		System.out.printf(Locale.ROOT, "%s - validation error: %.4f%n", describe(candidate), candidate.meanValidationError);
+		return folds > 0 ? candidate : null;
+	}
+
+	/**
+	 * Writes every finished candidate to the leaderboard file, best first.
+	 */
+	private void writeLeaderboard(List<Candidate> ranked) throws NeuralNetworkException {
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(leaderboardFilepath), StandardCharsets.UTF_8)) {
+			writer.write("rank\tvalidation_error\tbest_validation_error\ttest_error\tepochs\ttrain_seconds\tstatus");
+			for (String name : searchedOptions.keySet()) {
+				writer.write('\t');
+				writer.write(name);
+			}
+			writer.newLine();
+			for (int rank = 0; rank < ranked.size(); rank++) {
+				Candidate candidate = ranked.get(rank);
+				writer.write(String.format(Locale.ROOT, "%d\t%.4f\t%.4f\t%.4f\t%d\t%.3f\t%s", rank + 1,
+						candidate.meanValidationError, candidate.bestValidationError, candidate.meanTestError,
+						candidate.epochs, candidate.trainNanos / 1e9, getStatus(candidate)));
+				for (String value : candidate.values.values()) {
+					writer.write('\t');
+					writer.write(value);
+				}
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error writing leaderboard: %s", leaderboardFilepath), e);
+		}
+		System.out.println("Leaderboard written to: " + leaderboardFilepath);
+	}
+
+	/**
+	 * Prints the best candidates.
+	 */
+	private void printLeaderboard(List<Candidate> ranked, int count) {
+		System.out.println("rank  validation  best    test    epochs  seconds  candidate");
+		for (int rank = 0; rank < Math.min(count, ranked.size()); rank++) {
+			Candidate candidate = ranked.get(rank);
+			System.out.printf(Locale.ROOT, "%4d  %.4f      %.4f  %.4f  %6d  %7.2f  %s%s%n", rank + 1,
+					candidate.meanValidationError, candidate.bestValidationError, candidate.meanTestError,
+					candidate.epochs, candidate.trainNanos / 1e9, describe(candidate),
+					candidate.error != null ? " (failed)" : candidate.stoppedByBudget ? " (stopped by budget)" : "");
+		}
+	}
+
+	/**
+	 * Returns how a candidate's training ended, for the leaderboard.
+	 */
+	private static String getStatus(Candidate candidate) {
+		if (candidate.error != null) {
+			return "failed";
+		}
+		return candidate.stoppedByBudget ? "budget" : "done";
+	}
+
+	/**
+	 * Returns the searched values of a candidate as name=value pairs.
+	 */
+	private static String describe(Candidate candidate) {
+		StringBuilder description = new StringBuilder();
+		for (Map.Entry<String, String> value : candidate.values.entrySet()) {
+			if (description.length() > 0) {
+				description.append(' ');
+			}
+			description.append(value.getKey()).append('=').append(value.getValue());
+		}
+		return description.length() > 0 ? description.toString() : "(defaults)";
+	}
+
+	/**
+	 * Returns whether the search has used up its time budget.
+	 */
+	private boolean isOverBudget(long startNanos) {
+		return timeBudgetSeconds > 0 && System.nanoTime() - startNanos >= timeBudgetSeconds * 1_000_000_000L;
+	}
+
+	/**
+	 * Parses the values of an option: a comma separated list or an inclusive integer range lo..hi.
+	 */
+	private static List<String> parseValues(String name, String value) {
+		List<String> values = new ArrayList<>();
+		int range = value.indexOf("..");
+		if (range >= 0) {
+			try {
+				int low = Integer.parseInt(value.substring(0, range));
+				int high = Integer.parseInt(value.substring(range + 2));
+				for (int i = low; i <= high; i++) {
+					values.add(Integer.toString(i));
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(String.format("Invalid range for %s: %s", name, value), e);
+			}
+		} else {
+			for (String item : value.split(",")) {
+				if (!item.isEmpty()) {
+					values.add(item);
+				}
+			}
+		}
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value));
+		}
+		return values;
+	}
+
+	/**
+	 * Parses a positive integer option.
+	 */
+	private static int parsePositiveInt(String name, String value) {
+		try {
+			int parsed = Integer.parseInt(value);
+			if (parsed > 0) {
+				return parsed;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value));
+	}
+}
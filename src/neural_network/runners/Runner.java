@@ -2,15 +2,14 @@ package neural_network.runners;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.ArrayList;
+import java.util.List;
 
 import neural_network.Data;
 import neural_network.NeuralNetwork;
 import neural_network.NeuralNetworkException;
+import neural_network.io.ModelFormat;
 
 
 /**
@@ -21,13 +20,11 @@ import neural_network.NeuralNetworkException;
 public abstract class Runner {
 	
 	protected final int INPUT_COUNT;
-	protected final int NUM_HIDDEN_LAYERS = 1;
-	protected final int NUM_HIDDEN_PERCEPTRONS = 5;
 	protected final int NUM_OUTPUT_PERCEPTRONS = 1;
 	protected NeuralNetwork nnet;
-	protected final ArrayList<Data> data;
+	protected final List<Data> data;
 	
-	protected Runner(ArrayList<Data> data) {
+	protected Runner(List<Data> data) {
 		// Assume at least one datapoint.
 		INPUT_COUNT = data.get(0).getInputs().length;
 		this.data = data;
@@ -44,10 +41,23 @@ public abstract class Runner {
 	
 	/**
 	 * Loads a saved neural network from file.
+	 * Files saved with Java serialization by older versions are still supported.
 	 * @return : The neural network loaded.
 	 * @throws NeuralNetworkException 
 	 */
-	protected NeuralNetwork loadNeuralNetwork(String filename) throws NeuralNetworkException {
+	protected static NeuralNetwork loadNeuralNetwork(String filename) throws NeuralNetworkException {
+		if (ModelFormat.isModelFile(filename)) {
+			return ModelFormat.read(filename);
+		}
+		return loadSerializedNeuralNetwork(filename);
+	}
+	
+	/**
+	 * Loads a neural network saved with Java serialization.
+	 * @return : The neural network loaded.
+	 * @throws NeuralNetworkException 
+	 */
+	private static NeuralNetwork loadSerializedNeuralNetwork(String filename) throws NeuralNetworkException {
 		ObjectInputStream ois = null;
 		
 		// open neural net save file for reading
@@ -78,13 +88,16 @@ public abstract class Runner {
 	 * @throws NeuralNetworkException
 	 */
 	protected void saveNeuralNetwork(String filename) throws NeuralNetworkException {
-		try {
-			ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename));
-			oos.writeObject(nnet);
-			oos.close();
-		} catch (IOException e) {
-			throw new NeuralNetworkException("Error while saving neural network to a file.", e);
-		}
+		saveNeuralNetwork(filename, nnet);
+	}
+	
+	/**
+	 * Saves a neural network to a file.
+	 * @param nnet : The neural network to save.
+	 * @throws NeuralNetworkException
+	 */
+	protected void saveNeuralNetwork(String filename, NeuralNetwork nnet) throws NeuralNetworkException {
+		ModelFormat.write(nnet, filename);
 		System.out.println("Neural net successfully saved as: " + filename);
 	}
 }
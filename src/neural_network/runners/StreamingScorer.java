@@ -0,0 +1,463 @@
+package neural_network.runners;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import neural_network.InferenceModel;
+import neural_network.NeuralNetworkException;
+import neural_network.features.FeatureExtractor;
+import neural_network.features.Message;
+import neural_network.features.MessageReader;
+import neural_network.io.BinaryDataset;
+import neural_network.io.CSVParser;
+
+/**
+ * Scores a data file or mail corpus of any size as a stream.
+ *
+ * A reader thread parses the input into batches, a pool of workers classifies
+ * them, and the calling thread writes each datapoint's scores in input order
+ * while keeping running confusion matrix counts. Batches are recycled through a
+ * fixed pool, so memory stays constant no matter how large the input is, and
+ * reading, classifying and writing overlap.
+ *
+ * Inputs may be CSV data files, binary datasets, or raw email (a message file,
+ * an mbox file or a directory). Email carries no classification, so only data
+ * files contribute to the confusion matrix.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class StreamingScorer {
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	// how many datapoints are scored between reports of the running counts
+	private static final long PROGRESS_INTERVAL = 100000;
+	private static final int UNKNOWN = -1;
+
+	private final InferenceModel model;
+	private final int batchSize;
+	private final int numWorkers;
+	// confusion matrix counts of the input being scored
+	private long TP, TN, FP, FN;
+
+	/**
+	 * Represents a batch of datapoints on its way from the reader to the writer.
+	 */
+	private static class Batch {
+		final double[] inputs;
+		final int[] classifications;
+		final String[] ids;
+		int numSamples;
+		long sequence;
+		long firstRow;
+		double[] outputs;
+		// set on the batch that marks the end of the input
+		boolean end;
+		// anything thrown while reading or classifying, handed to the writer to rethrow
+		Throwable error;
+
+		Batch(int batchSize, int numInputs, int numOutputs) {
+			inputs = new double[batchSize * numInputs];
+			classifications = new int[batchSize * numOutputs];
+			ids = new String[batchSize];
+		}
+	}
+
+	/**
+	 * Fills batches from an input.
+	 */
+	private interface BatchSource extends AutoCloseable {
+		/**
+		 * Fills a batch with the next datapoints of the input.
+		 *
+		 * @return: False if the input had no more datapoints.
+		 */
+		boolean fill(Batch batch) throws NeuralNetworkException;
+
+		@Override
+		void close() throws NeuralNetworkException;
+	}
+
+	private static final Batch POISON = new Batch(0, 0, 0);
+
+	/**
+	 * Construct a streaming scorer.
+	 *
+	 * @param model : The model to score with.
+	 * @param batchSize : The number of datapoints per batch.
+	 * @param numWorkers : The number of threads classifying batches.
+	 */
+	public StreamingScorer(InferenceModel model, int batchSize, int numWorkers) {
+		if (batchSize <= 0 || numWorkers <= 0) {
+			throw new IllegalArgumentException("The batch size and number of workers must be greater than zero.");
+		}
+		this.model = model;
+		this.batchSize = batchSize;
+		this.numWorkers = numWorkers;
+	}
+
+	/**
+	 * Scores every datapoint or message of an input, writing one line per datapoint:
+	 * its row number or message source, its outputs, and its classification if known.
+	 * Running confusion matrix counts and the final matrix are printed to stderr.
+	 *
+	 * @param inputPath : A CSV data file, binary dataset, message file, mbox file or directory of messages.
+	 * @param extractor : The feature extractor for raw email.
+	 * @param scores : Where to write the scores.
+	 * @return : The error rate over the datapoints with a known classification,
+	 * or NaN if there were none.
+	 * @throws NeuralNetworkException : if the input cannot be read or scored.
+	 * An Error thrown while reading or classifying is rethrown as it is.
+	 * @throws InterruptedException : if the calling thread is interrupted.
+	 */
+	public double score(String inputPath, FeatureExtractor extractor, PrintStream scores)
+			throws NeuralNetworkException, InterruptedException {
+		TP = TN = FP = FN = 0;
+		BatchSource source = openSource(inputPath, extractor);
+
+		// every batch in flight comes from this pool, which bounds memory
+		int numBatches = 2 * numWorkers + 2;
+		BlockingQueue<Batch> freeBatches = new ArrayBlockingQueue<>(numBatches);
+		BlockingQueue<Batch> workBatches = new ArrayBlockingQueue<>(numBatches + numWorkers);
+		BlockingQueue<Batch> doneBatches = new ArrayBlockingQueue<>(numBatches + numWorkers + 1);
+		for (int i = 0; i < numBatches; i++) {
+			freeBatches.add(new Batch(batchSize, model.getNumInputs(), model.getNumOutputs()));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numWorkers + 1);
+		try {
+			executor.execute(() -> read(source, freeBatches, workBatches, doneBatches));
+			for (int worker = 0; worker < numWorkers; worker++) {
+				executor.execute(() -> classify(workBatches, doneBatches));
+			}
+			write(scores, freeBatches, doneBatches);
+		} finally {
+			executor.shutdownNow();
+		}
+		scores.flush();
+
+		long known = TP + TN + FP + FN;
+		double error = known == 0 ? Double.NaN : (double) (FP + FN) / known;
+		if (known > 0) {
+			System.err.printf("Accuracy: %.4f%%%n%n", 100 * (1 - error));
+			System.err.println("Confusion matrix:");
+			System.err.println("     T   F  ");
+			System.err.printf("T | %3d %3d\n", TP, FP);
+			System.err.printf("F | %3d %3d\n", FN, TN);
+		}
+		return error;
+	}
+
+	/**
+	 * Parses the input into batches from the free pool until it runs out,
+	 * then tells the workers to stop and the writer how many batches there were.
+	 */
+	private void read(BatchSource source, BlockingQueue<Batch> freeBatches,
+			BlockingQueue<Batch> workBatches, BlockingQueue<Batch> doneBatches) {
+		Batch end = new Batch(0, 0, 0);
+		end.end = true;
+		long sequence = 0;
+		try (source) {
+			while (true) {
+				Batch batch = freeBatches.take();
+				if (!source.fill(batch)) {
+					break;
+				}
+				batch.sequence = sequence++;
+				workBatches.put(batch);
+			}
+		} catch (InterruptedException e) {
+			// the writer gave up
+			return;
+		} catch (Throwable e) {
+			// even an Error must reach the writer, or it waits for the end forever
+			end.error = e;
+		}
+
+		end.sequence = sequence;
+		try {
+			for (int worker = 0; worker < numWorkers; worker++) {
+				workBatches.put(POISON);
+			}
+			doneBatches.put(end);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Classifies batches until the reader runs out of input.
+	 */
+	private void classify(BlockingQueue<Batch> workBatches, BlockingQueue<Batch> doneBatches) {
+		try {
+			for (Batch batch; (batch = workBatches.take()) != POISON; ) {
+				try {
+					batch.outputs = model.classifyBatch(batch.inputs, batch.numSamples);
+				} catch (Throwable e) {
+					// even an Error must reach the writer, or it waits for this batch forever
+					batch.error = e;
+				}
+				doneBatches.put(batch);
+			}
+		} catch (InterruptedException e) {
+			// the writer gave up
+		}
+	}
+
+	/**
+	 * Writes classified batches in input order and returns them to the free pool.
+	 */
+	private void write(PrintStream scores, BlockingQueue<Batch> freeBatches, BlockingQueue<Batch> doneBatches)
+			throws NeuralNetworkException, InterruptedException {
+		// batches finished ahead of an earlier one, by sequence number
+		Map<Long, Batch> pending = new HashMap<>();
+		long nextSequence = 0;
+		long numScored = 0;
+		Batch end = null;
+		StringBuilder lines = new StringBuilder();
+
+		while (end == null || nextSequence < end.sequence) {
+			Batch batch = doneBatches.take();
+			if (batch.end) {
+				end = batch;
+				continue;
+			}
+			if (batch.error instanceof Error) {
+				throw (Error) batch.error;
+			} else if (batch.error != null) {
+				throw new NeuralNetworkException("Error classifying a batch.", batch.error);
+			}
+			pending.put(batch.sequence, batch);
+
+			for (Batch ready; (ready = pending.remove(nextSequence)) != null; nextSequence++) {
+				lines.setLength(0);
+				appendScores(ready, lines);
+				scores.append(lines);
+				long previousScored = numScored;
+				numScored += ready.numSamples;
+				if (numScored / PROGRESS_INTERVAL != previousScored / PROGRESS_INTERVAL) {
+					System.err.printf("Scored %d: TP %d FP %d FN %d TN %d%n", numScored, TP, FP, FN, TN);
+				}
+				freeBatches.put(ready);
+			}
+		}
+
+		if (end.error instanceof NeuralNetworkException) {
+			throw (NeuralNetworkException) end.error;
+		} else if (end.error instanceof Error) {
+			throw (Error) end.error;
+		} else if (end.error != null) {
+			throw new NeuralNetworkException("Error reading input.", end.error);
+		}
+	}
+
+	/**
+	 * Formats the scores of a batch and adds them to the confusion matrix counts.
+	 */
+	private void appendScores(Batch batch, StringBuilder lines) {
+		int numOutputs = model.getNumOutputs();
+		for (int sample = 0; sample < batch.numSamples; sample++) {
+			if (batch.ids[sample] != null) {
+				lines.append(batch.ids[sample]);
+			} else {
+				lines.append(batch.firstRow + sample + 1);
+			}
+			for (int i = 0; i < numOutputs; i++) {
+				lines.append(i == 0 ? '\t' : ',').append(batch.outputs[sample * numOutputs + i]);
+			}
+
+			int[] classifications = batch.classifications;
+			if (classifications[sample * numOutputs] != UNKNOWN) {
+				for (int i = 0; i < numOutputs; i++) {
+					int predicted = (int) Math.round(batch.outputs[sample * numOutputs + i]);
+					int actual = classifications[sample * numOutputs + i];
+					lines.append(i == 0 ? '\t' : ',').append(actual);
+
+					if (actual == 1 && predicted == 1) {
+						TP++;
+					}
+					else if (actual == 1 && predicted == 0) {
+						FN++;
+					}
+					else if (actual == 0 && predicted == 1) {
+						FP++;
+					}
+					else {
+						TN++;
+					}
+				}
+			}
+			lines.append('\n');
+		}
+	}
+
+	/**
+	 * Opens an input as a binary dataset, a CSV data file or raw email.
+	 * Files whose first line starts like a number are read as CSV.
+	 */
+	private BatchSource openSource(String inputPath, FeatureExtractor extractor) throws NeuralNetworkException {
+		if (BinaryDataset.isBinaryDataset(inputPath)) {
+			return binarySource(BinaryDataset.open(inputPath));
+		}
+		if (!Files.isDirectory(Paths.get(inputPath)) && startsWithNumber(inputPath)) {
+			return csvSource(new CSVParser(inputPath));
+		}
+		if (extractor.getNumFeatures() != model.getNumInputs()) {
+			throw new NeuralNetworkException(String.format(
+					"The neural network expects %d features, but %d are extracted. Pass the .names file it was trained with.",
+					model.getNumInputs(), extractor.getNumFeatures()));
+		}
+		return messageSource(new MessageReader(inputPath), extractor);
+	}
+
+	/**
+	 * Returns whether the first line of a file starts like a number.
+	 */
+	private static boolean startsWithNumber(String filepath) throws NeuralNetworkException {
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(filepath), StandardCharsets.ISO_8859_1)) {
+			String line = reader.readLine();
+			if (line == null) {
+				return true;
+			}
+			line = line.trim();
+			return !line.isEmpty() && (Character.isDigit(line.charAt(0)) || "+-.".indexOf(line.charAt(0)) >= 0);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading file: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Checks a classification read from a data file. Anything but 0 or 1 would be
+	 * miscounted by the confusion matrix, and -1 would be taken for an unlabeled row.
+	 *
+	 * @param value: The classification as read.
+	 * @param row: The number of its row, counting from 1.
+	 * @return: The classification.
+	 * @throws NeuralNetworkException: if the classification is not 0 or 1.
+	 */
+	private static int toLabel(double value, long row) throws NeuralNetworkException {
+		if (value != 0 && value != 1) {
+			throw new NeuralNetworkException(String.format("Invalid classification %s in row %d, expected 0 or 1.",
+					value, row));
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads batches of rows from a memory-mapped binary dataset.
+	 */
+	private BatchSource binarySource(BinaryDataset dataset) throws NeuralNetworkException {
+		int numInputs = model.getNumInputs();
+		int numOutputs = model.getNumOutputs();
+		if (dataset.NUM_FEATURES != numInputs || dataset.NUM_OUTPUTS != numOutputs) {
+			throw new NeuralNetworkException(String.format(
+					"The dataset has %d features and %d outputs, but the neural network has %d and %d.",
+					dataset.NUM_FEATURES, dataset.NUM_OUTPUTS, numInputs, numOutputs));
+		}
+		return new BatchSource() {
+			private int nextRow;
+
+			@Override
+			public boolean fill(Batch batch) throws NeuralNetworkException {
+				int numSamples = Math.min(batchSize, dataset.size() - nextRow);
+				if (numSamples == 0) {
+					return false;
+				}
+				dataset.getInputs(nextRow, nextRow + numSamples, batch.inputs);
+				for (int sample = 0; sample < numSamples; sample++) {
+					for (int i = 0; i < numOutputs; i++) {
+						batch.classifications[sample * numOutputs + i] = toLabel(
+								dataset.getClassification(nextRow + sample, i), nextRow + sample + 1);
+					}
+					batch.ids[sample] = null;
+				}
+				batch.firstRow = nextRow;
+				batch.numSamples = numSamples;
+				nextRow += numSamples;
+				return true;
+			}
+
+			@Override
+			public void close() {
+				// the mapping is released when the dataset is collected
+			}
+		};
+	}
+
+	/**
+	 * Reads batches of rows from a CSV data file whose last columns are the classification.
+	 */
+	private BatchSource csvSource(CSVParser parser) {
+		int numInputs = model.getNumInputs();
+		int numOutputs = model.getNumOutputs();
+		double[] fields = new double[numInputs + numOutputs];
+		return new BatchSource() {
+			private long nextRow;
+
+			@Override
+			public boolean fill(Batch batch) throws NeuralNetworkException {
+				int numSamples = 0;
+				for (int numFields; numSamples < batchSize && (numFields = parser.readRow(fields)) != -1; numSamples++) {
+					if (numFields != fields.length) {
+						throw new NeuralNetworkException(String.format("Row %d has %d fields, expected %d.",
+								nextRow + numSamples + 1, numFields, fields.length));
+					}
+					System.arraycopy(fields, 0, batch.inputs, numSamples * numInputs, numInputs);
+					for (int i = 0; i < numOutputs; i++) {
+						batch.classifications[numSamples * numOutputs + i] = toLabel(fields[numInputs + i],
+								nextRow + numSamples + 1);
+					}
+					batch.ids[numSamples] = null;
+				}
+				batch.firstRow = nextRow;
+				batch.numSamples = numSamples;
+				nextRow += numSamples;
+				return numSamples > 0;
+			}
+
+			@Override
+			public void close() throws NeuralNetworkException {
+				parser.close();
+			}
+		};
+	}
+
+	/**
+	 * Reads batches of raw email messages, extracting their features.
+	 */
+	private BatchSource messageSource(MessageReader reader, FeatureExtractor extractor) {
+		int numInputs = model.getNumInputs();
+		int numOutputs = model.getNumOutputs();
+		double[] features = new double[numInputs];
+		return new BatchSource() {
+			@Override
+			public boolean fill(Batch batch) throws NeuralNetworkException {
+				int numSamples = 0;
+				for (Message message; numSamples < batchSize && (message = reader.next()) != null; numSamples++) {
+					extractor.extract(message, features);
+					System.arraycopy(features, 0, batch.inputs, numSamples * numInputs, numInputs);
+					for (int i = 0; i < numOutputs; i++) {
+						batch.classifications[numSamples * numOutputs + i] = UNKNOWN;
+					}
+					batch.ids[numSamples] = message.SOURCE;
+				}
+				batch.numSamples = numSamples;
+				return numSamples > 0;
+			}
+
+			@Override
+			public void close() throws NeuralNetworkException {
+				reader.close();
+			}
+		};
+	}
+}
@@ -1,10 +1,19 @@
 package neural_network.runners;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import neural_network.Data;
+import neural_network.EnsembleNetwork;
+import neural_network.InferenceModel;
+import neural_network.InferenceNetwork;
 import neural_network.NeuralNetwork;
 import neural_network.NeuralNetworkException;
+import neural_network.Precision;
+import neural_network.QuantizedNetwork;
+import neural_network.io.ModelFormat;
 
 /**
  * Used to test an artificial neural network.
@@ -13,11 +22,39 @@ import neural_network.NeuralNetworkException;
  */
 public class Tester extends Runner {
 	
+	// largest increase in validation error rate a quantized model may have
+	protected final double QUANTIZATION_TOLERANCE = .005;
+	
+	private final double[] packedInputs;
+	private final int[] packedClassifications;
+	private final int numSamples;
+	private TrainingMetrics metrics;
+	
 	/**
 	 * Construct a tester for an artificial neural network.
+	 * The data is read once; tests only use the packed copies of it.
 	 */
-	public Tester(ArrayList<Data> data) {
+	public Tester(List<Data> data) {
 		super(data);
+		// packed once so every test scores the data as a single batch
+		numSamples = data.size();
+		packedInputs = new double[numSamples * INPUT_COUNT];
+		packedClassifications = new int[numSamples * NUM_OUTPUT_PERCEPTRONS];
+		for (int datapoint = 0; datapoint < numSamples; datapoint++) {
+			Data row = data.get(datapoint);
+			System.arraycopy(row.getInputs(), 0, packedInputs, datapoint * INPUT_COUNT, INPUT_COUNT);
+			System.arraycopy(row.getClassification(), 0, packedClassifications,
+					datapoint * NUM_OUTPUT_PERCEPTRONS, NUM_OUTPUT_PERCEPTRONS);
+		}
+	}
+	
+	/**
+	 * Records the timings of every following test, or stops recording them.
+	 * 
+	 * @param metrics : The metrics to record to, or null to disable.
+	 */
+	public void setMetrics(TrainingMetrics metrics) {
+		this.metrics = metrics;
 	}
 	
 	/**
@@ -41,20 +78,111 @@ public class Tester extends Runner {
 	 * @return : The validation error rate.
 	 */
 	protected double startTest(NeuralNetwork nnet, boolean debug) {
-		this.nnet = nnet;
+		return startTest(new InferenceNetwork(nnet), debug);
+	}
+	
+	/**
+	 * Test a neural network against validation data at full and reduced precision.
+	 * 
+	 * @param neuralNetFilepath : Filepath to the neural network to test.
+	 * @param precision : The precision to convert the neural network to.
+	 * @return : True if the reduced precision error rate is within QUANTIZATION_TOLERANCE.
+	 * @throws NeuralNetworkException 
+	 */
+	public boolean compareQuantized(String neuralNetFilepath, Precision precision) throws NeuralNetworkException {
+		NeuralNetwork nnet = loadNeuralNetwork(neuralNetFilepath);
+		InferenceNetwork fullNet = new InferenceNetwork(nnet);
+		QuantizedNetwork quantizedNet = new QuantizedNetwork(nnet, precision);
+		
+		System.out.println("Double precision:");
+		double fullError = startTest(fullNet, true);
+		System.out.printf("%n%s:%n", precision);
+		double quantizedError = startTest(quantizedNet, true);
 		
+		System.out.printf("%nWeights: %d bytes -> %d bytes%n",
+				Double.BYTES * quantizedNet.getNumWeights(), quantizedNet.getWeightBytes());
+		System.out.printf("Error rate change: %+.4f%% (tolerance %.4f%%)%n",
+				100 * (quantizedError - fullError), 100 * QUANTIZATION_TOLERANCE);
+		return quantizedError - fullError <= QUANTIZATION_TOLERANCE;
+	}
+	
+	/**
+	 * Test an ensemble of saved neural networks against validation data, e.g. the
+	 * networks the folds of a training run saved. Each member's validation error
+	 * is printed, then the ensemble's accuracy and confusion matrix.
+	 * 
+	 * @param neuralNetPaths : Filepaths to the neural networks, or directories whose
+	 * .save and model files are all used.
+	 * @param combination : How the members' outputs are combined.
+	 * @return : The validation error rate of the ensemble.
+	 * @throws NeuralNetworkException 
+	 */
+	public double testEnsemble(List<String> neuralNetPaths, EnsembleNetwork.Combination combination) throws NeuralNetworkException {
+		List<NeuralNetwork> members = new ArrayList<>();
+		for (String path : neuralNetPaths) {
+			for (String memberPath : listNeuralNetworks(path)) {
+				NeuralNetwork member = loadNeuralNetwork(memberPath);
+				members.add(member);
+				System.out.printf("%s - validation error: %.4f%n", memberPath, startTest(member, false));
+			}
+		}
+		if (members.isEmpty()) {
+			throw new NeuralNetworkException("No neural networks found in: " + neuralNetPaths);
+		}
+		
+		EnsembleNetwork ensemble;
+		try {
+			ensemble = new EnsembleNetwork(members, combination);
+		} catch (IllegalArgumentException e) {
+			throw new NeuralNetworkException(e.getMessage());
+		}
+		System.out.printf("%nEnsemble of %d networks, %s:%n", ensemble.NUM_MEMBERS, combination.name().toLowerCase());
+		return startTest(ensemble, true);
+	}
+	
+	/**
+	 * Returns the neural network files at a path: the path itself, or the .save and
+	 * model files of a directory in name order.
+	 */
+	private static List<String> listNeuralNetworks(String path) {
+		File file = new File(path);
+		if (!file.isDirectory()) {
+			return Arrays.asList(path);
+		}
+		List<String> paths = new ArrayList<>();
+		File[] children = file.listFiles();
+		Arrays.sort(children);
+		for (File child : children) {
+			if (child.isFile() && (child.getName().endsWith(".save") || ModelFormat.isModelFile(child.getPath()))) {
+				paths.add(child.getPath());
+			}
+		}
+		return paths;
+	}
+	
+	/**
+	 * Test a trained model against validation data.
+	 * 
+	 * @param model : The model to test.
+	 * @param debug : Should a confusion matrix be printed?
+	 * @return : The validation error rate.
+	 */
+	protected double startTest(InferenceModel model, boolean debug) {
+		// this may be called from many trainer threads at once, so the 
+		// network is not kept as this runner's current network
+		int numOutputs = model.getNumOutputs();
 		int TP = 0, TN = 0, FP = 0, FN = 0;
-		for (Data datapoint : data) {
-			// get input values and feed them into the neural network
-			double[] predictedTestOutputs = nnet.classify(datapoint);
-
-			// compute what the output should be
-			int[] actualOutputs = datapoint.getClassification();
-
+		TrainingMetrics metrics = this.metrics;
+		long startNanos = metrics != null ? System.nanoTime() : 0;
+		// feed all inputs into the neural network at once
+		double[] predictedTestOutputs = model.classifyBatch(packedInputs, numSamples);
+		long classifiedNanos = metrics != null ? System.nanoTime() : 0;
+		for (int datapoint = 0; datapoint < numSamples; datapoint++) {
 			// compute testing error
-			for (int i = 0; i < nnet.NUM_OUTPUT_PERCEPTRONS; i++) {
-				int predicted = (int) Math.round(predictedTestOutputs[i]);
-				int actual = actualOutputs[i];
+			for (int i = 0; i < numOutputs; i++) {
+				int predicted = (int) Math.round(predictedTestOutputs[datapoint * numOutputs + i]);
+				// compute what the output should be
+				int actual = packedClassifications[datapoint * numOutputs + i];
 
 				if (actual == 1 && predicted == 1) {
 					TP++;
@@ -70,7 +198,10 @@ public class Tester extends Runner {
 				}
 			}
 		}
-		double testingError = ((double)(FP + FN) / nnet.NUM_OUTPUT_PERCEPTRONS) / data.size();
+		double testingError = ((double)(FP + FN) / numOutputs) / numSamples;
+		if (metrics != null) {
+			metrics.recordValidation(classifiedNanos - startNanos, System.nanoTime() - classifiedNanos);
+		}
 		
 		if (debug) {
 			double accuracy = 100 * (1 - testingError);
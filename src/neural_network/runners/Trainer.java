@@ -1,12 +1,22 @@
 package neural_network.runners;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
 
 import neural_network.Data;
-import neural_network.HiddenLayer;
+import neural_network.FlatNeuralNetwork;
+import neural_network.GradientBuffer;
 import neural_network.NeuralNetwork;
 import neural_network.NeuralNetworkException;
-import neural_network.Perceptron;
 
 
 /**
@@ -16,157 +26,338 @@ import neural_network.Perceptron;
  */
 public class Trainer extends Runner implements Runnable {
 
-	private final double LEARNING_RATE = .1;
+	/**
+	 * Some rows of the data, in a given order. Folds are kept as views rather
+	 * than copies, so the rows of a binary dataset are only read, one at a time,
+	 * when a fold uses them.
+	 */
+	private static class RowView extends AbstractList<Data> implements RandomAccess {
+
+		private final List<Data> data;
+		final int[] ROWS;
+
+		RowView(List<Data> data, int[] rows) {
+			this.data = data;
+			ROWS = rows;
+		}
+
+		@Override
+		public Data get(int index) {
+			return data.get(ROWS[index]);
+		}
+
+		@Override
+		public int size() {
+			return ROWS.length;
+		}
+	}
+
 	private final double GOAL_TEST_ERROR_RATE = .04;
 	private final double GOAL_VALIDATION_ERROR_RATE = .095;
 	private final int MAX_NUM_ITERATIONS = 10;
+	private final int DEFAULT_MAX_ROUNDS = 10;
 	private final boolean TEST_ERROR_DEBUG = false;
 	private final Tester tester;
+	private final TrainingConfig config;
+	private TrainingMetrics metrics;
+	
+	/**
+	 * Construct a trainer for an artificial neural network with the default settings.
+	 */
+	public Trainer(List<Data> data, List<Data> validationData) {
+		this(data, validationData, new TrainingConfig());
+	}
 	
 	/**
 	 * Construct a trainer for an artificial neural network.
+	 * 
+	 * @param config : The settings to train with.
 	 */
-	public Trainer(ArrayList<Data> data, ArrayList<Data> validationData) {
+	public Trainer(List<Data> data, List<Data> validationData, TrainingConfig config) {
 		super(data);
 		tester = new Tester(validationData);
+		this.config = config;
 	}
 	
 	/**
 	 * Start generating and training neural networks.
 	 */
 	public void run() {
+		List<List<Data>> folds = createFolds();
+		ForkJoinPool pool = new ForkJoinPool(config.getParallelism());
+		try {
+			if (config.isMetricsEnabled()) {
+				metrics = new TrainingMetrics(config.getMetricsLogFilepath(), config.isJmx());
+				tester.setMetrics(metrics);
+			}
+			if (config.isBounded()) {
+				runBounded(folds, pool);
+			} else {
+				// loops a bunch of times (infinite) in case poor weights are selected
+				System.out.println("Seed: " + config.getSeed());
+				SplittableRandom random = new SplittableRandom(config.getSeed());
+				for (int round = 1; ; round++) {
+					printRoundSummary(round, trainRound(folds, pool, round, random.split(), 0));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			System.err.println("There was an error while training a fold.");
+			e.getCause().printStackTrace();
+		} catch (NeuralNetworkException e) {
+			System.err.println(e.getMessage());
+		} finally {
+			pool.shutdownNow();
+			if (metrics != null) {
+				tester.setMetrics(null);
+				metrics.close();
+				metrics = null;
+			}
+		}
+	}
+	
+	/**
+	 * Trains rounds of folds until the target validation error, the round limit or
+	 * the time budget is reached, then saves the best network of every round.
+	 * Progress is checkpointed after each round and resumed from if configured.
+	 * 
+	 * @param folds : All folds to use to train/test a neural network.
+	 * @param pool : The pool to train the folds on.
+	 */
+	private void runBounded(List<List<Data>> folds, ForkJoinPool pool)
+			throws InterruptedException, ExecutionException, NeuralNetworkException {
+		String checkpointFilepath = config.getCheckpointFilepath();
+		TrainingCheckpoint progress = new TrainingCheckpoint(config.getSeed(), 0, 0, Double.NaN, 0, 0, null);
+		if (config.isResume() && checkpointFilepath != null && TrainingCheckpoint.exists(checkpointFilepath)) {
+			progress = TrainingCheckpoint.read(checkpointFilepath);
+			// the rounds left must draw from the streams the checkpointed rounds drew from
+			if (config.isSeedSet() && config.getSeed() != progress.SEED) {
+				throw new NeuralNetworkException(String.format(
+						"Cannot resume from %s with seed %d: it was trained with seed %d.",
+						checkpointFilepath, config.getSeed(), progress.SEED));
+			}
+			System.out.printf("Resuming from %s after %d rounds, best validation error: %.4f%n",
+					checkpointFilepath, progress.ROUNDS, progress.BEST_VALIDATION_ERROR);
+		}
+		long seed = progress.SEED;
+		System.out.println("Seed: " + seed);
+		
+		// without a round limit or a time budget, nothing else is sure to end the run
+		int maxRounds = config.getMaxRounds();
+		if (maxRounds == 0 && config.getTimeBudgetSeconds() == 0) {
+			maxRounds = DEFAULT_MAX_ROUNDS;
+		}
+		long startNanos = System.nanoTime() - progress.ELAPSED_MILLIS * 1_000_000;
+		
+		// a resumed run skips the streams of the rounds it already trained
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int round = 0; round < progress.ROUNDS; round++) {
+			random.split();
+		}
+		
+		String stopReason;
 		while (true) {
-			// create a new neural net with random weights
-			// loops a bunch of times (infinite) in case poor weights are selected
-			nnet = new NeuralNetwork(INPUT_COUNT, NUM_HIDDEN_LAYERS, NUM_HIDDEN_PERCEPTRONS, NUM_OUTPUT_PERCEPTRONS);
+			if (progress.BEST_VALIDATION_ERROR <= config.getTargetError()) {
+				stopReason = "target validation error reached";
+				break;
+			}
+			if (maxRounds > 0 && progress.ROUNDS >= maxRounds) {
+				stopReason = "round limit reached";
+				break;
+			}
+			if (isOverBudget(startNanos)) {
+				stopReason = "time budget exhausted";
+				break;
+			}
 			
-			// allocate 10 folds for 10-fold cross validation
-			ArrayList<ArrayList<Data>> folds = new ArrayList<ArrayList<Data>>();
-			for (int foldNum = 0; foldNum < 10; foldNum++) {
-				ArrayList<Data> fold = new ArrayList<>();
-				for (int datapoint = foldNum; datapoint < data.size(); datapoint += 10) {
-					fold.add(data.get(datapoint));
+			int round = progress.ROUNDS + 1;
+			FoldResult roundBest = null;
+			for (FoldResult result : trainRound(folds, pool, round, random.split(), startNanos)) {
+				if (roundBest == null || result.VALIDATION_ERROR < roundBest.VALIDATION_ERROR) {
+					roundBest = result;
 				}
-				folds.add(fold);
 			}
+			long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+			if (Double.isNaN(progress.BEST_VALIDATION_ERROR) || roundBest.VALIDATION_ERROR < progress.BEST_VALIDATION_ERROR) {
+				progress = new TrainingCheckpoint(seed, round, elapsedMillis, roundBest.VALIDATION_ERROR, round,
+						roundBest.FOLD + 1, roundBest.NETWORK);
+			} else {
+				progress = new TrainingCheckpoint(seed, round, elapsedMillis, progress.BEST_VALIDATION_ERROR,
+						progress.BEST_ROUND, progress.BEST_FOLD, progress.BEST_NETWORK);
+			}
+			System.out.printf("Round %d - best validation error: %.4f (fold %d), overall: %.4f%n",
+					round, roundBest.VALIDATION_ERROR, (roundBest.FOLD + 1), progress.BEST_VALIDATION_ERROR);
 			
-			// train on each fold.
-			for (int foldNum = 0; foldNum < 10; foldNum++) {
-				trainFold(foldNum, folds);
-				nnet.reset();
+			if (checkpointFilepath != null) {
+				progress.write(checkpointFilepath);
+			}
+		}
+		
+		System.out.println("Training stopped: " + stopReason);
+		System.out.printf("  Rounds: %d%n", progress.ROUNDS);
+		System.out.printf("  Elapsed: %.1f s%n", (System.nanoTime() - startNanos) / 1e9);
+		if (progress.BEST_NETWORK == null) {
+			System.out.println("  No network was trained.");
+			return;
+		}
+		System.out.printf("  Best validation error: %.4f (round %d, fold %d)%n",
+				progress.BEST_VALIDATION_ERROR, progress.BEST_ROUND, progress.BEST_FOLD);
+		saveNeuralNetwork(config.getOutputFilepath(), progress.BEST_NETWORK);
+	}
+	
+	/**
+	 * Trains one new network on one fold the way bounded mode does, with early
+	 * stopping on validation error. Used to compare configs, e.g. by HyperparameterSearch.
+	 * The network starts from the weights the first round of a run with the same
+	 * seed would give the fold. Training runs on the calling thread; mini-batch
+	 * gradient shards are forked onto its ForkJoinPool if it has one.
+	 * 
+	 * @param testFoldIndex : The index of the fold to use as test data, 0 to 9.
+	 * @param startNanos : When the time budget started.
+	 * @return : The errors of the best epoch, with its network.
+	 */
+	FoldResult trainSingleFold(int testFoldIndex, long startNanos) {
+		SplittableRandom roundRandom = new SplittableRandom(config.getSeed()).split();
+		SplittableRandom foldRandom = roundRandom.split();
+		for (int foldNum = 0; foldNum < testFoldIndex; foldNum++) {
+			foldRandom = roundRandom.split();
+		}
+		return trainFoldBounded(1, testFoldIndex, createFolds(), createNetwork(foldRandom), startNanos);
+	}
+	
+	/**
+	 * Allocates 10 folds for 10-fold cross validation.
+	 */
+	private List<List<Data>> createFolds() {
+		List<List<Data>> folds = new ArrayList<>();
+		for (int foldNum = 0; foldNum < 10; foldNum++) {
+			int[] rows = new int[(data.size() - foldNum + 9) / 10];
+			for (int datapoint = foldNum, row = 0; datapoint < data.size(); datapoint += 10, row++) {
+				rows[row] = datapoint;
+			}
+			folds.add(new RowView(data, rows));
+		}
+		return folds;
+	}
+	
+	/**
+	 * Creates a neural network with random weights, shaped, initialized and activated as configured.
+	 * 
+	 * @param random : The generator to draw the weights from.
+	 */
+	private NeuralNetwork createNetwork(RandomGenerator random) {
+		NeuralNetwork nnet = new NeuralNetwork(INPUT_COUNT, config.getHiddenLayers(), config.getHiddenPerceptrons(),
+				NUM_OUTPUT_PERCEPTRONS, config.getInitializer(), random);
+		nnet.setActivation(config.getActivation());
+		return nnet;
+	}
+	
+	/**
+	 * Trains on each fold concurrently, each with a new neural net with random weights.
+	 * Every fold's weights are drawn from its own stream, split from the round's in
+	 * fold order, so they do not depend on which folds run first or on how many threads.
+	 * 
+	 * @param folds : All folds to use to train/test a neural network.
+	 * @param pool : The pool to train the folds on.
+	 * @param round : The number of the round, counting from 1.
+	 * @param random : The generator of the round.
+	 * @param startNanos : When bounded training started, for the time budget.
+	 * @return : The results of the folds, in fold order.
+	 */
+	private List<FoldResult> trainRound(List<List<Data>> folds, ForkJoinPool pool, int round,
+			SplittableRandom random, long startNanos) throws InterruptedException, ExecutionException {
+		List<Callable<FoldResult>> foldTasks = new ArrayList<>();
+		for (int foldNum = 0; foldNum < 10; foldNum++) {
+			int testFoldIndex = foldNum;
+			NeuralNetwork foldNet = createNetwork(random.split());
+			if (config.isBounded()) {
+				foldTasks.add(() -> trainFoldBounded(round, testFoldIndex, folds, foldNet, startNanos));
+			} else {
+				foldTasks.add(() -> trainFold(round, testFoldIndex, folds, foldNet));
+			}
+		}
+		
+		// futures are returned in fold order once every fold is done
+		List<FoldResult> results = new ArrayList<>();
+		for (Future<FoldResult> foldResult : pool.invokeAll(foldTasks)) {
+			FoldResult result = foldResult.get();
+			if (TEST_ERROR_DEBUG) {
+				System.out.println(result);
+			}
+			results.add(result);
+		}
+		return results;
+	}
+	
+	/**
+	 * Prints the outcome of every fold of an unbounded round: how many met the
+	 * testing goal and were validated, the best of those, and each fold's errors.
+	 * 
+	 * @param round : The number of the round, counting from 1.
+	 * @param results : The results of the folds, in fold order.
+	 */
+	private void printRoundSummary(int round, List<FoldResult> results) {
+		FoldResult best = null;
+		int validated = 0;
+		for (FoldResult result : results) {
+			if (!Double.isNaN(result.VALIDATION_ERROR)) {
+				validated++;
+				if (best == null || result.VALIDATION_ERROR < best.VALIDATION_ERROR) {
+					best = result;
+				}
 			}
 		}
+		if (best == null) {
+			System.out.printf("Round %d - no fold met the testing goal%n", round);
+		} else {
+			System.out.printf("Round %d - %d/%d folds met the testing goal, best validation error: %.4f (fold %d)%n",
+					round, validated, results.size(), best.VALIDATION_ERROR, (best.FOLD + 1));
+		}
+		for (FoldResult result : results) {
+			System.out.println("  " + result);
+		}
 	}
 	
 	/**
 	 * Trains a neural network with given folds of data, keeping one separate to test with.
 	 * 
+	 * @param round : The round the fold is trained in, counting from 1.
 	 * @param testFoldIndex : The index of the fold to use as test data.
 	 * @param folds : All folds to use to train/test a neural network.
+	 * @param nnet : The neural network to train. It is used by this fold only.
+	 * @return : The testing and validation errors of the fold.
 	 */
-	private void trainFold(int testFoldIndex, ArrayList<ArrayList<Data>> folds) {
+	private FoldResult trainFold(int round, int testFoldIndex, List<List<Data>> folds, NeuralNetwork nnet) {
 		double testingError;
 		double lowestTestingError = Double.POSITIVE_INFINITY;
 		int iteration = 0;
+		FlatNeuralNetwork flatNet = new FlatNeuralNetwork(nnet);
+		flatNet.setOptimizer(config.getOptimizer());
+		List<Data> trainingData = getTrainingData(testFoldIndex, folds);
+		GradientBuffer[] gradientBuffers = createGradientBuffers(flatNet);
+		long[] phaseNanos = metrics != null ? new long[TrainingMetrics.NUM_PHASES] : null;
 		do {
-			// TRAIN NEURAL NETWORK START
-			for (int foldIndex = 0; foldIndex < 10; foldIndex++) {
-				// iterate over all folds except fold containing test data
-				if (foldIndex == testFoldIndex) {
-					continue;
-				}
-				ArrayList<Data> fold = folds.get(foldIndex);
-				for (int datapointIndex = 0; datapointIndex < fold.size(); datapointIndex++) {
-					Data datapoint = fold.get(datapointIndex);
-		
-					// input values to feed into neural network
-					double[] inputs = datapoint.getInputs();
-		
-					// feed inputs through neural network to get prediction
-					double[] predictedOutputs = nnet.classify(datapoint);
-					
-					// what the classification should be
-					int[] expectedOutputs = datapoint.getClassification();
-		
-					// BACKPROPAGATION START
-					HiddenLayer[] hiddenLayers = nnet.getHiddenLayers();
-					Perceptron[] outputPerceptrons = nnet.getOutputPerceptrons();
-					Perceptron[] perceptronsConnectedToOutputs = hiddenLayers[hiddenLayers.length - 1].getHiddenPerceptrons();
-					
-					// update output weights
-					double[] outputError = new double[perceptronsConnectedToOutputs.length];
-					for (int i = 0; i < nnet.NUM_OUTPUT_PERCEPTRONS; i++) {
-						double expected = expectedOutputs[i];
-						double actual = predictedOutputs[i];
-						
-						double outModifiedError = actual * (1 - actual) * (expected - actual);
-						double[] outputWeights = outputPerceptrons[i].getWeights();
-						double[] newOutputWeights = new double[perceptronsConnectedToOutputs.length];
-		
-						// for each hidden perceptron connected to this output neuron
-						for (int j = 0; j < perceptronsConnectedToOutputs.length; j++) {
-							newOutputWeights[j] = LEARNING_RATE * outModifiedError * perceptronsConnectedToOutputs[j].getOutput();
-							outputError[j] += outModifiedError * outputWeights[j];
-						}
-						outputPerceptrons[i].updateWeights(newOutputWeights);
-					}
-		
-					for (int hiddenLayerIndex = hiddenLayers.length - 1; hiddenLayerIndex >= 0; hiddenLayerIndex--) {
-						HiddenLayer hiddenLayer = hiddenLayers[hiddenLayerIndex];
-						int prevIndex = hiddenLayerIndex - 1;
-						int numInputs = hiddenLayerIndex > 0 ? hiddenLayers[prevIndex].getNumPerceptrons() : nnet.NUM_INPUTS;
-						double[] newHiddenWeights = new double[numInputs];
-						
-						// update hidden weights
-						for (int j = 0; j < hiddenLayer.getNumPerceptrons(); j++) {
-							double hiddenTransfer = hiddenLayer.getHiddenPerceptrons()[j].getOutput();
-							double hiddenError = LEARNING_RATE * outputError[j] * hiddenTransfer * (1 - hiddenTransfer);
-		
-							// for each input connect to this hidden neuron
-							for (int k=0; k < nnet.NUM_INPUTS; k++) {
-								newHiddenWeights[k] = hiddenError * inputs[k];
-							}
-							hiddenLayer.getHiddenPerceptrons()[j].updateWeights(newHiddenWeights);
-						}
-					}
-					// BACKPROPAGATION END
-				}
-			}
-			// TRAIN NEURAL NETWORK END
-			
-			// TEST NEURAL NETWORK START
-			testingError = 0;
-			ArrayList<Data> testFold = folds.get(testFoldIndex);
-			for (int datapointIndex = 0; datapointIndex < testFold.size(); datapointIndex++) {
-				Data testDatapoint = testFold.get(datapointIndex);
-				
-				// get input values and feed them into the neural network
-				double[] predictedTestOutputs = nnet.classify(testDatapoint);
-				
-				// compute what the output should be
-				int[] actualOutputs = testDatapoint.getClassification();
-				
-				// compute testing error
-				double singleTestError = 0;
-				for (int i = 0; i < nnet.NUM_OUTPUT_PERCEPTRONS; i++) {
-					// squaring ensures number is positive
-					singleTestError += (actualOutputs[i] - predictedTestOutputs[i]) * (actualOutputs[i] - predictedTestOutputs[i]);
-				}
-				singleTestError /= nnet.NUM_OUTPUT_PERCEPTRONS;
-				testingError += singleTestError;
-			}
-			testingError /= testFold.size();
+			long epochStartNanos = phaseNanos != null ? System.nanoTime() : 0;
+			trainEpoch(flatNet, trainingData, gradientBuffers, phaseNanos);
+			long evaluationStartNanos = phaseNanos != null ? System.nanoTime() : 0;
+			testingError = computeTestingError(flatNet, folds.get(testFoldIndex));
 			
 			if (testingError < lowestTestingError) {
 				lowestTestingError = testingError;
 			}
 			
 			iteration++;
+			if (phaseNanos != null) {
+				long epochEndNanos = System.nanoTime();
+				phaseNanos[TrainingMetrics.EVALUATION] = epochEndNanos - evaluationStartNanos;
+				metrics.recordEpoch(round, testFoldIndex, iteration, trainingData.size(),
+						epochEndNanos - epochStartNanos, phaseNanos, testingError, Double.NaN);
+			}
 			if (TEST_ERROR_DEBUG) {
 				System.out.println("Iteration: " + iteration);
 				System.out.println("Testing error: " + testingError);
 			}
-			// TEST NEURAL NETWORK END
 			
 			// probably won't get much better, short circuit
 			if (iteration > MAX_NUM_ITERATIONS) {
@@ -174,10 +365,12 @@ public class Trainer extends Runner implements Runnable {
 					System.out.printf("Fold: %d - Lowest testing error acheived: %.3f%%%n",
 							(testFoldIndex + 1), (100 * lowestTestingError));
 				}
-				return;
+				return new FoldResult(testFoldIndex, testingError, Double.NaN, iteration);
 			}
 		} while (testingError > GOAL_TEST_ERROR_RATE);
 		
+		flatNet.copyWeightsTo(nnet);
+		
 		// test against validation data
 		double validationError = tester.startTest(nnet, false);
 		if (TEST_ERROR_DEBUG) {
@@ -188,12 +381,220 @@ public class Trainer extends Runner implements Runnable {
 		if (validationError < GOAL_VALIDATION_ERROR_RATE) {
 			try {
 				saveNeuralNetwork(String.format("nnet_fold-%d_validationerror-%.4f_testerror-%.4f_iter-%d.save",
-						(testFoldIndex + 1), validationError, testingError, iteration));
+						(testFoldIndex + 1), validationError, testingError, iteration), nnet);
 			} catch (NeuralNetworkException e) {
 				System.err.println(e.getMessage());
 				System.exit(1);
 			}
 			System.out.println("Fold " + testFoldIndex + " took " + iteration + " iterations to compute.");
 		}
+		return new FoldResult(testFoldIndex, testingError, validationError, iteration);
+	}
+	
+	/**
+	 * Trains a neural network on given folds of data, validating after every epoch and
+	 * keeping the weights with the lowest validation error. Stops once the validation
+	 * error has not improved for the configured patience, reaches the target, or the
+	 * epoch limit or time budget is hit. Nothing is saved; the caller keeps the best network.
+	 * 
+	 * @param round : The round the fold is trained in, counting from 1.
+	 * @param testFoldIndex : The index of the fold to use as test data.
+	 * @param folds : All folds to use to train/test a neural network.
+	 * @param nnet : The neural network to train. It is used by this fold only.
+	 * @param startNanos : When bounded training started, for the time budget.
+	 * @return : The errors of the best epoch, with its network.
+	 */
+	private FoldResult trainFoldBounded(int round, int testFoldIndex, List<List<Data>> folds, NeuralNetwork nnet, long startNanos) {
+		FlatNeuralNetwork flatNet = new FlatNeuralNetwork(nnet);
+		flatNet.setOptimizer(config.getOptimizer());
+		List<Data> trainingData = getTrainingData(testFoldIndex, folds);
+		GradientBuffer[] gradientBuffers = createGradientBuffers(flatNet);
+		
+		// the best weights are kept by swapping between two networks instead of copying
+		NeuralNetwork best = nnet;
+		// a copy of the fold's network, so nothing is drawn from any generator for it
+		NeuralNetwork candidate = new NeuralNetwork(nnet);
+		double bestValidationError = Double.POSITIVE_INFINITY;
+		double bestTestingError = Double.NaN;
+		int epochsWithoutImprovement = 0;
+		int epoch = 0;
+		long[] phaseNanos = metrics != null ? new long[TrainingMetrics.NUM_PHASES] : null;
+		while (epoch < config.getMaxEpochs()) {
+			long epochStartNanos = phaseNanos != null ? System.nanoTime() : 0;
+			trainEpoch(flatNet, trainingData, gradientBuffers, phaseNanos);
+			long evaluationStartNanos = phaseNanos != null ? System.nanoTime() : 0;
+			double testingError = computeTestingError(flatNet, folds.get(testFoldIndex));
+			epoch++;
+			
+			flatNet.copyWeightsTo(candidate);
+			double validationError = tester.startTest(candidate, false);
+			if (phaseNanos != null) {
+				long epochEndNanos = System.nanoTime();
+				phaseNanos[TrainingMetrics.EVALUATION] = epochEndNanos - evaluationStartNanos;
+				metrics.recordEpoch(round, testFoldIndex, epoch, trainingData.size(),
+						epochEndNanos - epochStartNanos, phaseNanos, testingError, validationError);
+			}
+			if (validationError < bestValidationError) {
+				NeuralNetwork previousBest = best;
+				best = candidate;
+				candidate = previousBest;
+				bestValidationError = validationError;
+				bestTestingError = testingError;
+				epochsWithoutImprovement = 0;
+			} else {
+				epochsWithoutImprovement++;
+			}
+			if (TEST_ERROR_DEBUG) {
+				System.out.printf("Fold: %d - epoch: %d, testing error: %.4f, validation error: %.4f%n",
+						(testFoldIndex + 1), epoch, testingError, validationError);
+			}
+			
+			if ((config.getPatience() > 0 && epochsWithoutImprovement >= config.getPatience())
+					|| bestValidationError <= config.getTargetError() || isOverBudget(startNanos)) {
+				break;
+			}
+		}
+		return new FoldResult(testFoldIndex, bestTestingError, bestValidationError, epoch, best);
+	}
+	
+	/**
+	 * Returns whether bounded training has used up its time budget.
+	 * 
+	 * @param startNanos : When bounded training started, less any time spent before resuming.
+	 * @return : True if there is a time budget and it has run out.
+	 */
+	private boolean isOverBudget(long startNanos) {
+		long budgetSeconds = config.getTimeBudgetSeconds();
+		return budgetSeconds > 0 && System.nanoTime() - startNanos >= budgetSeconds * 1_000_000_000L;
+	}
+	
+	/**
+	 * Returns every datapoint outside of the test fold.
+	 */
+	private List<Data> getTrainingData(int testFoldIndex, List<List<Data>> folds) {
+		int[] rows = new int[data.size() - folds.get(testFoldIndex).size()];
+		int row = 0;
+		for (int foldIndex = 0; foldIndex < 10; foldIndex++) {
+			if (foldIndex != testFoldIndex) {
+				for (int foldRow : ((RowView) folds.get(foldIndex)).ROWS) {
+					rows[row++] = foldRow;
+				}
+			}
+		}
+		return new RowView(data, rows);
+	}
+	
+	/**
+	 * Returns one gradient buffer per shard, or none when training online.
+	 */
+	private GradientBuffer[] createGradientBuffers(FlatNeuralNetwork flatNet) {
+		GradientBuffer[] gradientBuffers = new GradientBuffer[config.getBatchSize() > 1 ? config.getGradientThreads() : 0];
+		for (int shard = 0; shard < gradientBuffers.length; shard++) {
+			gradientBuffers[shard] = flatNet.createGradientBuffer();
+		}
+		return gradientBuffers;
+	}
+	
+	/**
+	 * Makes one pass over the training data, online or in mini-batches.
+	 * 
+	 * @param flatNet : The network to train.
+	 * @param trainingData : The datapoints to train with.
+	 * @param gradientBuffers : One gradient buffer per shard, used for mini-batches.
+	 * @param phaseNanos : Set to the time spent in the forward and backprop phases, or null to not time them.
+	 */
+	private void trainEpoch(FlatNeuralNetwork flatNet, List<Data> trainingData, GradientBuffer[] gradientBuffers,
+			long[] phaseNanos) {
+		int batchSize = config.getBatchSize();
+		double learningRate = config.getLearningRate();
+		if (batchSize == 1 && phaseNanos == null) {
+			for (Data datapoint : trainingData) {
+				flatNet.train(datapoint, learningRate);
+			}
+		} else if (batchSize == 1) {
+			// the end of each phase is the start of the next, so each datapoint reads the clock twice
+			long forwardNanos = 0, backpropNanos = 0;
+			long time = System.nanoTime();
+			for (Data datapoint : trainingData) {
+				flatNet.forwardPass(datapoint);
+				long forwardEnd = System.nanoTime();
+				flatNet.backwardPass(datapoint, learningRate);
+				long backpropEnd = System.nanoTime();
+				forwardNanos += forwardEnd - time;
+				backpropNanos += backpropEnd - forwardEnd;
+				time = backpropEnd;
+			}
+			phaseNanos[TrainingMetrics.FORWARD] = forwardNanos;
+			phaseNanos[TrainingMetrics.BACKPROP] = backpropNanos;
+		} else {
+			// gradient computation runs forward and backward together, so batches are timed whole
+			long startNanos = phaseNanos != null ? System.nanoTime() : 0;
+			for (int batchStart = 0; batchStart < trainingData.size(); batchStart += batchSize) {
+				int batchEnd = Math.min(batchStart + batchSize, trainingData.size());
+				trainBatch(flatNet, trainingData.subList(batchStart, batchEnd), gradientBuffers);
+			}
+			if (phaseNanos != null) {
+				phaseNanos[TrainingMetrics.FORWARD] = 0;
+				phaseNanos[TrainingMetrics.BACKPROP] = System.nanoTime() - startNanos;
+			}
+		}
+	}
+	
+	/**
+	 * Computes the mean squared error of a network over the test fold.
+	 * 
+	 * @param flatNet : The network to test.
+	 * @param testFold : The datapoints to test with.
+	 * @return : The testing error.
+	 */
+	private double computeTestingError(FlatNeuralNetwork flatNet, List<Data> testFold) {
+		double[] predictedTestOutputs = new double[NUM_OUTPUT_PERCEPTRONS];
+		double testingError = 0;
+		for (int datapointIndex = 0; datapointIndex < testFold.size(); datapointIndex++) {
+			Data testDatapoint = testFold.get(datapointIndex);
+			
+			// get input values and feed them into the neural network
+			flatNet.classify(testDatapoint, predictedTestOutputs);
+			
+			// compute what the output should be
+			int[] actualOutputs = testDatapoint.getClassification();
+			
+			// compute testing error
+			double singleTestError = 0;
+			for (int i = 0; i < NUM_OUTPUT_PERCEPTRONS; i++) {
+				// squaring ensures number is positive
+				singleTestError += (actualOutputs[i] - predictedTestOutputs[i]) * (actualOutputs[i] - predictedTestOutputs[i]);
+			}
+			singleTestError /= NUM_OUTPUT_PERCEPTRONS;
+			testingError += singleTestError;
+		}
+		return testingError / testFold.size();
+	}
+	
+	/**
+	 * Trains a network on one mini-batch. The batch is split into one shard per
+	 * gradient buffer, shards compute their gradients concurrently on the trainer's
+	 * pool, and the summed gradient is applied once, averaged over the batch.
+	 * 
+	 * @param flatNet : The network to train.
+	 * @param batch : The datapoints in the mini-batch.
+	 * @param gradientBuffers : One gradient buffer per shard.
+	 */
+	private void trainBatch(FlatNeuralNetwork flatNet, List<Data> batch, GradientBuffer[] gradientBuffers) {
+		int shards = Math.min(gradientBuffers.length, batch.size());
+		ForkJoinTask<?>[] shardTasks = new ForkJoinTask<?>[shards];
+		for (int shard = 1; shard < shards; shard++) {
+			List<Data> shardData = batch.subList(shard * batch.size() / shards, (shard + 1) * batch.size() / shards);
+			GradientBuffer shardBuffer = gradientBuffers[shard];
+			shardTasks[shard] = ForkJoinTask.adapt(() -> flatNet.computeGradients(shardData, shardBuffer)).fork();
+		}
+		flatNet.computeGradients(batch.subList(0, batch.size() / shards), gradientBuffers[0]);
+		
+		// reduce into the first buffer
+		for (int shard = 1; shard < shards; shard++) {
+			shardTasks[shard].join();
+			gradientBuffers[0].add(gradientBuffers[shard]);
+		}
+		flatNet.applyGradients(gradientBuffers[0], config.getLearningRate(), batch.size());
 	}
 }
@@ -0,0 +1,137 @@
+package neural_network.runners;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import neural_network.NeuralNetwork;
+import neural_network.NeuralNetworkException;
+import neural_network.io.ModelFormat;
+
+/**
+ * The progress of a bounded training run, saved after every round so the run
+ * can be resumed after it is stopped.
+ *
+ * A checkpoint is two files: the best network so far in the model format at the
+ * checkpoint path, and the counters in a properties file next to it with a
+ * ".state" suffix. Both are written to temporary files first and moved into
+ * place, so a run killed mid-write leaves the previous checkpoint intact.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class TrainingCheckpoint {
+
+	public final long SEED;
+	public final int ROUNDS;
+	public final long ELAPSED_MILLIS;
+	public final double BEST_VALIDATION_ERROR;
+	public final int BEST_ROUND;
+	public final int BEST_FOLD;
+	public final NeuralNetwork BEST_NETWORK;
+
+	/**
+	 * Construct a checkpoint.
+	 *
+	 * @param seed : The seed of the run, which a resumed run must train with.
+	 * @param rounds : The number of rounds completed.
+	 * @param elapsedMillis : The training time spent so far, over every resumed run.
+	 * @param bestValidationError : The lowest validation error so far, or NaN if there is no best network.
+	 * @param bestRound : The round the best network was trained in, counting from 1.
+	 * @param bestFold : The fold the best network was trained on, counting from 1.
+	 * @param bestNetwork : The network with the lowest validation error so far, or null.
+	 */
+	public TrainingCheckpoint(long seed, int rounds, long elapsedMillis, double bestValidationError, int bestRound,
+			int bestFold, NeuralNetwork bestNetwork) {
+		SEED = seed;
+		ROUNDS = rounds;
+		ELAPSED_MILLIS = elapsedMillis;
+		BEST_VALIDATION_ERROR = bestValidationError;
+		BEST_ROUND = bestRound;
+		BEST_FOLD = bestFold;
+		BEST_NETWORK = bestNetwork;
+	}
+
+	/**
+	 * Returns whether a checkpoint has been written to a path.
+	 *
+	 * @param filepath : The checkpoint path.
+	 * @return : True if the checkpoint's state file exists.
+	 */
+	public static boolean exists(String filepath) {
+		return Files.exists(statePath(filepath));
+	}
+
+	/**
+	 * Writes this checkpoint, replacing any previous checkpoint at the path.
+	 *
+	 * @param filepath : The checkpoint path.
+	 * @throws NeuralNetworkException : if the checkpoint cannot be written.
+	 */
+	public void write(String filepath) throws NeuralNetworkException {
+		Path modelPath = Paths.get(filepath);
+		Path statePath = statePath(filepath);
+		Path tmpStatePath = Paths.get(statePath + ".tmp");
+		try {
+			// the model goes first, so the state never refers to a network that was not written
+			if (BEST_NETWORK != null) {
+				Path tmpModelPath = Paths.get(filepath + ".tmp");
+				ModelFormat.write(BEST_NETWORK, tmpModelPath.toString());
+				Files.move(tmpModelPath, modelPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+
+			Properties state = new Properties();
+			state.setProperty("seed", Long.toString(SEED));
+			state.setProperty("rounds", Integer.toString(ROUNDS));
+			state.setProperty("elapsed_millis", Long.toString(ELAPSED_MILLIS));
+			state.setProperty("best_validation_error", Double.toString(BEST_VALIDATION_ERROR));
+			state.setProperty("best_round", Integer.toString(BEST_ROUND));
+			state.setProperty("best_fold", Integer.toString(BEST_FOLD));
+			try (Writer out = Files.newBufferedWriter(tmpStatePath, StandardCharsets.ISO_8859_1)) {
+				state.store(out, "training checkpoint");
+			}
+			Files.move(tmpStatePath, statePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error writing checkpoint: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint.
+	 *
+	 * @param filepath : The checkpoint path.
+	 * @return : The checkpoint.
+	 * @throws NeuralNetworkException : if the checkpoint cannot be read or is corrupt.
+	 */
+	public static TrainingCheckpoint read(String filepath) throws NeuralNetworkException {
+		Properties state = new Properties();
+		try (Reader in = Files.newBufferedReader(statePath(filepath), StandardCharsets.ISO_8859_1)) {
+			state.load(in);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error reading checkpoint: %s", filepath), e);
+		}
+
+		try {
+			double bestValidationError = Double.parseDouble(state.getProperty("best_validation_error"));
+			NeuralNetwork bestNetwork = Double.isNaN(bestValidationError) ? null : ModelFormat.read(filepath);
+			return new TrainingCheckpoint(Long.parseLong(state.getProperty("seed")),
+					Integer.parseInt(state.getProperty("rounds")), Long.parseLong(state.getProperty("elapsed_millis")),
+					bestValidationError, Integer.parseInt(state.getProperty("best_round")),
+					Integer.parseInt(state.getProperty("best_fold")), bestNetwork);
+		} catch (NumberFormatException | NullPointerException e) {
+			throw new NeuralNetworkException(String.format("Corrupt checkpoint: %s", filepath), e);
+		}
+	}
+
+	/**
+	 * Returns the path of the state file of a checkpoint.
+	 */
+	private static Path statePath(String filepath) {
+		return Paths.get(filepath + ".state");
+	}
+}
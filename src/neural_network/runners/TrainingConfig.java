@@ -0,0 +1,639 @@
+package neural_network.runners;
+
+import java.util.SplittableRandom;
+
+import neural_network.Activation;
+import neural_network.Optimizer;
+import neural_network.WeightInitializer;
+
+/**
+ * Settings that control how a Trainer trains neural networks.
+ *
+ * Every setting has a default, so a new config trains the way the Trainer
+ * always has: online (one datapoint per weight update), with the folds spread
+ * across every processor, retraining until the process is stopped.
+ *
+ * Setting any of max_rounds, time_budget, target_error, patience or checkpoint
+ * switches the Trainer to bounded mode, which stops early and keeps only the
+ * best network (see isBounded).
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class TrainingConfig {
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int batchSize = 1;
+	private int gradientThreads = 1;
+	private int hiddenLayers = 1;
+	private int hiddenPerceptrons = 5;
+	private Activation activation = Activation.EXACT;
+	private WeightInitializer initializer = WeightInitializer.UNIFORM;
+	private long seed = new SplittableRandom().nextLong();
+	private boolean seedSet = false;
+	private Optimizer optimizer = Optimizer.SGD;
+	private double learningRate = Double.NaN;
+	private int maxRounds = 0;
+	private int maxEpochs = 11;
+	private int patience = 0;
+	private long timeBudgetSeconds = 0;
+	private double targetError = Double.NaN;
+	private String checkpointFilepath = null;
+	private boolean resume = false;
+	private String outputFilepath = "nnet_best.save";
+	private String metricsLogFilepath = null;
+	private boolean jmx = false;
+
+	/**
+	 * Returns the number of worker threads shared by folds and gradient computation.
+	 *
+	 * @return : The number of worker threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of worker threads shared by folds and gradient computation.
+	 *
+	 * @param parallelism : The number of worker threads.
+	 * @return : This config.
+	 */
+	public TrainingConfig setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("The parallelism level must be greater than zero.");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Returns the number of datapoints whose gradients are summed per weight update.
+	 *
+	 * @return : The mini-batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the number of datapoints whose gradients are summed per weight update.
+	 * A batch size of one trains online, updating weights after every datapoint.
+	 *
+	 * @param batchSize : The mini-batch size.
+	 * @return : This config.
+	 */
+	public TrainingConfig setBatchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("The batch size must be greater than zero.");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Returns the number of shards each mini-batch is split into.
+	 *
+	 * @return : The number of gradient shards per mini-batch.
+	 */
+	public int getGradientThreads() {
+		return gradientThreads;
+	}
+
+	/**
+	 * Sets the number of shards each mini-batch is split into. Each shard
+	 * accumulates gradients into its own buffer on a worker thread.
+	 *
+	 * @param gradientThreads : The number of gradient shards per mini-batch.
+	 * @return : This config.
+	 */
+	public TrainingConfig setGradientThreads(int gradientThreads) {
+		if (gradientThreads <= 0) {
+			throw new IllegalArgumentException("The number of gradient threads must be greater than zero.");
+		}
+		this.gradientThreads = gradientThreads;
+		return this;
+	}
+
+	/**
+	 * Returns the number of hidden layers of the networks being trained.
+	 *
+	 * @return : The number of hidden layers.
+	 */
+	public int getHiddenLayers() {
+		return hiddenLayers;
+	}
+
+	/**
+	 * Sets the number of hidden layers of the networks being trained.
+	 *
+	 * @param hiddenLayers : The number of hidden layers.
+	 * @return : This config.
+	 */
+	public TrainingConfig setHiddenLayers(int hiddenLayers) {
+		if (hiddenLayers <= 0) {
+			throw new IllegalArgumentException("The number of hidden layers must be greater than zero.");
+		}
+		this.hiddenLayers = hiddenLayers;
+		return this;
+	}
+
+	/**
+	 * Returns the number of perceptrons in each hidden layer of the networks being trained.
+	 *
+	 * @return : The width of the hidden layers.
+	 */
+	public int getHiddenPerceptrons() {
+		return hiddenPerceptrons;
+	}
+
+	/**
+	 * Sets the number of perceptrons in each hidden layer of the networks being trained.
+	 *
+	 * @param hiddenPerceptrons : The width of the hidden layers.
+	 * @return : This config.
+	 */
+	public TrainingConfig setHiddenPerceptrons(int hiddenPerceptrons) {
+		if (hiddenPerceptrons <= 0) {
+			throw new IllegalArgumentException("The number of hidden perceptrons must be greater than zero.");
+		}
+		this.hiddenPerceptrons = hiddenPerceptrons;
+		return this;
+	}
+
+	/**
+	 * Returns the transfer function of the networks being trained.
+	 *
+	 * @return : The activation.
+	 */
+	public Activation getActivation() {
+		return activation;
+	}
+
+	/**
+	 * Sets the transfer function of the networks being trained.
+	 * Networks are saved with their activation and classify with it when loaded.
+	 *
+	 * @param activation : The activation.
+	 * @return : This config.
+	 */
+	public TrainingConfig setActivation(Activation activation) {
+		this.activation = activation;
+		return this;
+	}
+
+	/**
+	 * Returns the distribution the initial weights of new networks are drawn from.
+	 *
+	 * @return : The weight initializer.
+	 */
+	public WeightInitializer getInitializer() {
+		return initializer;
+	}
+
+	/**
+	 * Sets the distribution the initial weights of new networks are drawn from.
+	 *
+	 * @param initializer : The weight initializer.
+	 * @return : This config.
+	 */
+	public TrainingConfig setInitializer(WeightInitializer initializer) {
+		this.initializer = initializer;
+		return this;
+	}
+
+	/**
+	 * Returns the seed the initial weights of every network in a run are derived from.
+	 * Unless one was set, it is random and differs between configs.
+	 *
+	 * @return : The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the seed the initial weights of every network in a run are derived from.
+	 * Runs with the same seed and settings train the same networks, whatever the
+	 * parallelism.
+	 *
+	 * @param seed : The seed.
+	 * @return : This config.
+	 */
+	public TrainingConfig setSeed(long seed) {
+		this.seed = seed;
+		seedSet = true;
+		return this;
+	}
+
+	/**
+	 * Returns whether a seed was set, rather than drawn at random.
+	 *
+	 * @return : True if setSeed was called.
+	 */
+	public boolean isSeedSet() {
+		return seedSet;
+	}
+
+	/**
+	 * Returns the rule weights are updated with.
+	 *
+	 * @return : The optimizer.
+	 */
+	public Optimizer getOptimizer() {
+		return optimizer;
+	}
+
+	/**
+	 * Sets the rule weights are updated with. Unless a learning rate is set,
+	 * the optimizer's default learning rate is used.
+	 *
+	 * @param optimizer : The optimizer.
+	 * @return : This config.
+	 */
+	public TrainingConfig setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
+		return this;
+	}
+
+	/**
+	 * Returns the learning rate, which is the optimizer's default unless one was set.
+	 *
+	 * @return : The learning rate.
+	 */
+	public double getLearningRate() {
+		return Double.isNaN(learningRate) ? optimizer.DEFAULT_LEARNING_RATE : learningRate;
+	}
+
+	/**
+	 * Sets the learning rate.
+	 *
+	 * @param learningRate : The learning rate, or NaN for the optimizer's default.
+	 * @return : This config.
+	 */
+	public TrainingConfig setLearningRate(double learningRate) {
+		if (learningRate <= 0 || Double.isInfinite(learningRate)) {
+			throw new IllegalArgumentException("The learning rate must be greater than zero.");
+		}
+		this.learningRate = learningRate;
+		return this;
+	}
+
+	/**
+	 * Returns whether training stops on its own, keeping only the best network,
+	 * instead of retraining and saving every good network until stopped.
+	 *
+	 * @return : True if any bounded mode setting was changed from its default.
+	 */
+	public boolean isBounded() {
+		return maxRounds > 0 || timeBudgetSeconds > 0 || !Double.isNaN(targetError) || patience > 0
+				|| checkpointFilepath != null;
+	}
+
+	/**
+	 * Returns the most rounds of 10 folds to train in bounded mode.
+	 *
+	 * @return : The round limit, or 0 for no limit.
+	 */
+	public int getMaxRounds() {
+		return maxRounds;
+	}
+
+	/**
+	 * Sets the most rounds of 10 folds to train in bounded mode. Each round trains
+	 * every fold with a new randomly initialized network.
+	 *
+	 * @param maxRounds : The round limit, or 0 for no limit.
+	 * @return : This config.
+	 */
+	public TrainingConfig setMaxRounds(int maxRounds) {
+		if (maxRounds < 0) {
+			throw new IllegalArgumentException("The round limit must not be negative.");
+		}
+		this.maxRounds = maxRounds;
+		return this;
+	}
+
+	/**
+	 * Returns the most passes over the training data per fold.
+	 *
+	 * @return : The epoch limit.
+	 */
+	public int getMaxEpochs() {
+		return maxEpochs;
+	}
+
+	/**
+	 * Sets the most passes over the training data per fold.
+	 *
+	 * @param maxEpochs : The epoch limit.
+	 * @return : This config.
+	 */
+	public TrainingConfig setMaxEpochs(int maxEpochs) {
+		if (maxEpochs <= 0) {
+			throw new IllegalArgumentException("The epoch limit must be greater than zero.");
+		}
+		this.maxEpochs = maxEpochs;
+		return this;
+	}
+
+	/**
+	 * Returns the number of epochs without a lower validation error after which a fold stops.
+	 *
+	 * @return : The patience, or 0 to train every fold for the epoch limit.
+	 */
+	public int getPatience() {
+		return patience;
+	}
+
+	/**
+	 * Sets the number of epochs without a lower validation error after which a fold stops.
+	 *
+	 * @param patience : The patience, or 0 to train every fold for the epoch limit.
+	 * @return : This config.
+	 */
+	public TrainingConfig setPatience(int patience) {
+		if (patience < 0) {
+			throw new IllegalArgumentException("The patience must not be negative.");
+		}
+		this.patience = patience;
+		return this;
+	}
+
+	/**
+	 * Returns the wall clock time bounded training may take, including resumed runs.
+	 *
+	 * @return : The time budget in seconds, or 0 for no limit.
+	 */
+	public long getTimeBudgetSeconds() {
+		return timeBudgetSeconds;
+	}
+
+	/**
+	 * Sets the wall clock time bounded training may take, including resumed runs.
+	 *
+	 * @param timeBudgetSeconds : The time budget in seconds, or 0 for no limit.
+	 * @return : This config.
+	 */
+	public TrainingConfig setTimeBudgetSeconds(long timeBudgetSeconds) {
+		if (timeBudgetSeconds < 0) {
+			throw new IllegalArgumentException("The time budget must not be negative.");
+		}
+		this.timeBudgetSeconds = timeBudgetSeconds;
+		return this;
+	}
+
+	/**
+	 * Returns the validation error rate at which bounded training stops.
+	 *
+	 * @return : The target error rate, or NaN for none.
+	 */
+	public double getTargetError() {
+		return targetError;
+	}
+
+	/**
+	 * Sets the validation error rate at which bounded training stops.
+	 *
+	 * @param targetError : The target error rate, between 0 and 1, or NaN for none.
+	 * @return : This config.
+	 */
+	public TrainingConfig setTargetError(double targetError) {
+		if (targetError < 0 || targetError > 1) {
+			throw new IllegalArgumentException("The target error must be between 0 and 1.");
+		}
+		this.targetError = targetError;
+		return this;
+	}
+
+	/**
+	 * Returns the file bounded training checkpoints its progress to after every round.
+	 *
+	 * @return : The checkpoint filepath, or null for no checkpoints.
+	 */
+	public String getCheckpointFilepath() {
+		return checkpointFilepath;
+	}
+
+	/**
+	 * Sets the file bounded training checkpoints its progress to after every round.
+	 *
+	 * @param checkpointFilepath : The checkpoint filepath, or null for no checkpoints.
+	 * @return : This config.
+	 */
+	public TrainingConfig setCheckpointFilepath(String checkpointFilepath) {
+		this.checkpointFilepath = checkpointFilepath;
+		return this;
+	}
+
+	/**
+	 * Returns whether bounded training continues from its checkpoint, if there is one.
+	 *
+	 * @return : True to resume.
+	 */
+	public boolean isResume() {
+		return resume;
+	}
+
+	/**
+	 * Sets whether bounded training continues from its checkpoint, if there is one.
+	 *
+	 * @param resume : True to resume.
+	 * @return : This config.
+	 */
+	public TrainingConfig setResume(boolean resume) {
+		this.resume = resume;
+		return this;
+	}
+
+	/**
+	 * Returns the file the best network is saved to when bounded training ends.
+	 *
+	 * @return : The output filepath.
+	 */
+	public String getOutputFilepath() {
+		return outputFilepath;
+	}
+
+	/**
+	 * Sets the file the best network is saved to when bounded training ends.
+	 *
+	 * @param outputFilepath : The output filepath.
+	 * @return : This config.
+	 */
+	public TrainingConfig setOutputFilepath(String outputFilepath) {
+		this.outputFilepath = outputFilepath;
+		return this;
+	}
+
+	/**
+	 * Returns the file per-epoch training metrics are written to as JSON lines.
+	 *
+	 * @return : The metrics log filepath, or null for no log.
+	 */
+	public String getMetricsLogFilepath() {
+		return metricsLogFilepath;
+	}
+
+	/**
+	 * Sets the file per-epoch training metrics are written to as JSON lines.
+	 *
+	 * @param metricsLogFilepath : The metrics log filepath, or null for no log.
+	 * @return : This config.
+	 */
+	public TrainingConfig setMetricsLogFilepath(String metricsLogFilepath) {
+		this.metricsLogFilepath = metricsLogFilepath;
+		return this;
+	}
+
+	/**
+	 * Returns whether training metrics are published as a JMX MBean.
+	 *
+	 * @return : True to publish the MBean.
+	 */
+	public boolean isJmx() {
+		return jmx;
+	}
+
+	/**
+	 * Sets whether training metrics are published as a JMX MBean while training runs.
+	 *
+	 * @param jmx : True to publish the MBean.
+	 * @return : This config.
+	 */
+	public TrainingConfig setJmx(boolean jmx) {
+		this.jmx = jmx;
+		return this;
+	}
+
+	/**
+	 * Returns whether any training metrics are collected. Training does no timing otherwise.
+	 *
+	 * @return : True if there is a metrics log or the MBean is published.
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsLogFilepath != null || jmx;
+	}
+
+	/**
+	 * Sets a training option given as a name and value, e.g. from the command line.
+	 *
+	 * @param name : The name of the option.
+	 * @param value : The value of the option.
+	 * @return : This config.
+	 * @throws IllegalArgumentException : if the option is unknown or its value is invalid.
+	 */
+	public TrainingConfig setOption(String name, String value) {
+		switch (name.toLowerCase()) {
+			case "parallelism":
+				return setParallelism(parseInt(name, value));
+
+			case "batch_size":
+				return setBatchSize(parseInt(name, value));
+
+			case "gradient_threads":
+				return setGradientThreads(parseInt(name, value));
+
+			case "hidden_layers":
+				return setHiddenLayers(parseInt(name, value));
+
+			case "hidden_perceptrons":
+				return setHiddenPerceptrons(parseInt(name, value));
+
+			case "activation":
+				try {
+					return setActivation(Activation.valueOf(value.toUpperCase()));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value), e);
+				}
+
+			case "initializer":
+				try {
+					return setInitializer(WeightInitializer.valueOf(value.toUpperCase()));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value), e);
+				}
+
+			case "seed":
+				try {
+					return setSeed(Long.parseLong(value));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value), e);
+				}
+
+			case "optimizer":
+				try {
+					return setOptimizer(Optimizer.valueOf(value.toUpperCase()));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value), e);
+				}
+
+			case "learning_rate":
+				return setLearningRate(parseDouble(name, value));
+
+			case "max_rounds":
+				return setMaxRounds(parseInt(name, value));
+
+			case "max_epochs":
+				return setMaxEpochs(parseInt(name, value));
+
+			case "patience":
+				return setPatience(parseInt(name, value));
+
+			case "time_budget":
+				return setTimeBudgetSeconds(parseInt(name, value));
+
+			case "target_error":
+				return setTargetError(parseDouble(name, value));
+
+			case "checkpoint":
+				return setCheckpointFilepath(value);
+
+			case "resume":
+				return setResume(parseBoolean(name, value));
+
+			case "output":
+				return setOutputFilepath(value);
+
+			case "metrics_log":
+				return setMetricsLogFilepath(value);
+
+			case "jmx":
+				return setJmx(parseBoolean(name, value));
+
+			default:
+				throw new IllegalArgumentException("Unknown training option: " + name);
+		}
+	}
+
+	/**
+	 * Parses the integer value of an option.
+	 */
+	private static int parseInt(String name, String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value), e);
+		}
+	}
+
+	/**
+	 * Parses the decimal value of an option.
+	 */
+	private static double parseDouble(String name, String value) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value), e);
+		}
+	}
+
+	/**
+	 * Parses the true or false value of an option.
+	 */
+	private static boolean parseBoolean(String name, String value) {
+		if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+			throw new IllegalArgumentException(String.format("Invalid value for %s: %s", name, value));
+		}
+		return Boolean.parseBoolean(value);
+	}
+}
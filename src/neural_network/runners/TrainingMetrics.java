@@ -0,0 +1,277 @@
+package neural_network.runners;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import neural_network.NeuralNetworkException;
+
+/**
+ * Collects per-epoch and per-phase timings of training and validation, and
+ * publishes them over JMX and/or as a JSON-lines log.
+ *
+ * Training code only holds a metrics object when metrics are enabled, so the
+ * disabled case costs one null check per epoch and per validation. When enabled,
+ * online training reads the clock twice per datapoint to split forward and
+ * backward passes; mini-batch training counts whole batches as backprop.
+ *
+ * Each finished epoch is one line of the log, e.g.
+ *   {"event":"epoch","time":1792300000000,"round":1,"fold":3,"epoch":2,"samples":3680,
+ *    "epoch_ms":12.41,"samples_per_sec":296534.3,"forward_ms":3.10,"backprop_ms":7.92,
+ *    "evaluation_ms":1.39,"test_error":0.0812,"validation_error":0.1217}
+ * and a "summary" line holding the totals is written when the metrics are closed.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class TrainingMetrics implements TrainingMetricsMBean, AutoCloseable {
+
+	// indices of the phases in the arrays handed to recordEpoch
+	public static final int FORWARD = 0;
+	public static final int BACKPROP = 1;
+	public static final int EVALUATION = 2;
+	public static final int NUM_PHASES = 3;
+
+	public static final String OBJECT_NAME = "neural_network:type=TrainingMetrics";
+
+	private final long startNanos = System.nanoTime();
+	private BufferedWriter log;
+	private final ObjectName objectName;
+
+	private int rounds;
+	private long epochs;
+	private long samplesTrained;
+	private long lastEpochNanos;
+	private double lastSamplesPerSecond;
+	private double lastTestError = Double.NaN;
+	private double lastValidationError = Double.NaN;
+	private double bestValidationError = Double.NaN;
+	private final long[] phaseNanos = new long[NUM_PHASES];
+	private long validations;
+	private long validationForwardNanos;
+	private long validationEvaluationNanos;
+
+	/**
+	 * Construct training metrics and start publishing them.
+	 *
+	 * @param logFilepath : The file to write JSON lines to, or null for no log.
+	 * @param jmx : Should the metrics be registered with the platform MBean server?
+	 * @throws NeuralNetworkException : if the log cannot be created or the MBean cannot be registered.
+	 */
+	public TrainingMetrics(String logFilepath, boolean jmx) throws NeuralNetworkException {
+		try {
+			log = logFilepath == null ? null : Files.newBufferedWriter(Paths.get(logFilepath), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error creating metrics log: %s", logFilepath), e);
+		}
+
+		if (jmx) {
+			try {
+				objectName = new ObjectName(OBJECT_NAME);
+				ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			} catch (JMException e) {
+				closeLog();
+				throw new NeuralNetworkException("Error registering training metrics MBean: " + e.getMessage(), e);
+			}
+		} else {
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Records one finished epoch of one fold and logs it.
+	 *
+	 * @param round : The round of the fold, counting from 1.
+	 * @param fold : The index of the fold used as test data.
+	 * @param epoch : The epoch of the fold, counting from 1.
+	 * @param samples : The number of datapoints trained on in the epoch.
+	 * @param epochNanos : The wall clock time of the epoch, including evaluation.
+	 * @param epochPhaseNanos : The time of each phase of the epoch, indexed by FORWARD, BACKPROP and EVALUATION.
+	 * @param testError : The testing error after the epoch.
+	 * @param validationError : The validation error after the epoch, or NaN if it was not validated.
+	 */
+	public synchronized void recordEpoch(int round, int fold, int epoch, int samples, long epochNanos,
+			long[] epochPhaseNanos, double testError, double validationError) {
+		rounds = Math.max(rounds, round);
+		epochs++;
+		samplesTrained += samples;
+		lastEpochNanos = epochNanos;
+		long trainingNanos = epochPhaseNanos[FORWARD] + epochPhaseNanos[BACKPROP];
+		lastSamplesPerSecond = trainingNanos > 0 ? samples * 1e9 / trainingNanos : Double.NaN;
+		lastTestError = testError;
+		lastValidationError = validationError;
+		if (validationError < bestValidationError || Double.isNaN(bestValidationError)) {
+			bestValidationError = validationError;
+		}
+		for (int phase = 0; phase < NUM_PHASES; phase++) {
+			phaseNanos[phase] += epochPhaseNanos[phase];
+		}
+
+		if (log != null) {
+			writeLine(String.format(Locale.ROOT,
+					"{\"event\":\"epoch\",\"time\":%d,\"round\":%d,\"fold\":%d,\"epoch\":%d,\"samples\":%d,"
+					+ "\"epoch_ms\":%.3f,\"samples_per_sec\":%s,\"forward_ms\":%.3f,\"backprop_ms\":%.3f,"
+					+ "\"evaluation_ms\":%.3f,\"test_error\":%s,\"validation_error\":%s}",
+					System.currentTimeMillis(), round, fold + 1, epoch, samples, epochNanos / 1e6,
+					json(lastSamplesPerSecond), epochPhaseNanos[FORWARD] / 1e6, epochPhaseNanos[BACKPROP] / 1e6,
+					epochPhaseNanos[EVALUATION] / 1e6, json(testError), json(validationError)));
+		}
+	}
+
+	/**
+	 * Records one test of a network against the validation data.
+	 *
+	 * @param forwardNanos : The time spent classifying the validation data.
+	 * @param evaluationNanos : The time spent tallying the confusion matrix.
+	 */
+	public synchronized void recordValidation(long forwardNanos, long evaluationNanos) {
+		validations++;
+		validationForwardNanos += forwardNanos;
+		validationEvaluationNanos += evaluationNanos;
+	}
+
+	@Override
+	public synchronized int getRounds() {
+		return rounds;
+	}
+
+	@Override
+	public synchronized long getEpochs() {
+		return epochs;
+	}
+
+	@Override
+	public synchronized long getSamplesTrained() {
+		return samplesTrained;
+	}
+
+	@Override
+	public synchronized double getSamplesPerSecond() {
+		return samplesTrained * 1e9 / (System.nanoTime() - startNanos);
+	}
+
+	@Override
+	public synchronized double getLastEpochMillis() {
+		return lastEpochNanos / 1e6;
+	}
+
+	@Override
+	public synchronized double getLastSamplesPerSecond() {
+		return lastSamplesPerSecond;
+	}
+
+	@Override
+	public synchronized double getLastTestError() {
+		return lastTestError;
+	}
+
+	@Override
+	public synchronized double getLastValidationError() {
+		return lastValidationError;
+	}
+
+	@Override
+	public synchronized double getBestValidationError() {
+		return bestValidationError;
+	}
+
+	@Override
+	public synchronized double getForwardMillis() {
+		return phaseNanos[FORWARD] / 1e6;
+	}
+
+	@Override
+	public synchronized double getBackpropMillis() {
+		return phaseNanos[BACKPROP] / 1e6;
+	}
+
+	@Override
+	public synchronized double getEvaluationMillis() {
+		return phaseNanos[EVALUATION] / 1e6;
+	}
+
+	@Override
+	public synchronized long getValidations() {
+		return validations;
+	}
+
+	@Override
+	public synchronized double getValidationForwardMillis() {
+		return validationForwardNanos / 1e6;
+	}
+
+	@Override
+	public synchronized double getValidationEvaluationMillis() {
+		return validationEvaluationNanos / 1e6;
+	}
+
+	/**
+	 * Logs the totals, closes the log and unregisters the MBean.
+	 */
+	@Override
+	public synchronized void close() {
+		if (log != null) {
+			writeLine(String.format(Locale.ROOT,
+					"{\"event\":\"summary\",\"time\":%d,\"elapsed_ms\":%.3f,\"rounds\":%d,\"epochs\":%d,"
+					+ "\"samples\":%d,\"samples_per_sec\":%s,\"forward_ms\":%.3f,\"backprop_ms\":%.3f,"
+					+ "\"evaluation_ms\":%.3f,\"best_validation_error\":%s,\"validations\":%d,"
+					+ "\"validation_forward_ms\":%.3f,\"validation_evaluation_ms\":%.3f}",
+					System.currentTimeMillis(), (System.nanoTime() - startNanos) / 1e6, rounds, epochs,
+					samplesTrained, json(getSamplesPerSecond()), getForwardMillis(), getBackpropMillis(),
+					getEvaluationMillis(), json(bestValidationError), validations, getValidationForwardMillis(),
+					getValidationEvaluationMillis()));
+			closeLog();
+		}
+		if (objectName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			try {
+				server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				// already unregistered
+			}
+		}
+	}
+
+	/**
+	 * Writes one line to the log. A log that fails is reported once and then dropped,
+	 * since losing metrics should not stop training.
+	 */
+	private void writeLine(String line) {
+		try {
+			log.write(line);
+			log.newLine();
+			log.flush();
+		} catch (IOException e) {
+			System.err.println("Error writing metrics log: " + e.getMessage());
+			closeLog();
+		}
+	}
+
+	/**
+	 * Closes the log, ignoring errors.
+	 */
+	private void closeLog() {
+		try {
+			if (log != null) {
+				log.close();
+			}
+		} catch (IOException e) {
+			// nothing more can be written either way
+		}
+		log = null;
+	}
+
+	/**
+	 * Formats a number as JSON, where NaN and infinities are null.
+	 */
+	private static String json(double value) {
+		return Double.isFinite(value) ? String.format(Locale.ROOT, "%.6g", value) : "null";
+	}
+}
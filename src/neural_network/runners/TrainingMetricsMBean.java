@@ -0,0 +1,87 @@
+package neural_network.runners;
+
+/**
+ * The training metrics exposed over JMX, as neural_network:type=TrainingMetrics.
+ *
+ * Times are summed over every fold, so with several folds training at once
+ * they can add up to more than the wall clock time.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public interface TrainingMetricsMBean {
+
+	/**
+	 * @return : The highest round any fold has finished an epoch in.
+	 */
+	int getRounds();
+
+	/**
+	 * @return : The number of epochs finished over every fold.
+	 */
+	long getEpochs();
+
+	/**
+	 * @return : The number of datapoints trained on over every fold.
+	 */
+	long getSamplesTrained();
+
+	/**
+	 * @return : The datapoints trained on per second of wall clock time since training started.
+	 */
+	double getSamplesPerSecond();
+
+	/**
+	 * @return : The wall clock time of the last finished epoch, in milliseconds.
+	 */
+	double getLastEpochMillis();
+
+	/**
+	 * @return : The datapoints trained on per second by the fold of the last finished epoch.
+	 */
+	double getLastSamplesPerSecond();
+
+	/**
+	 * @return : The testing error after the last finished epoch.
+	 */
+	double getLastTestError();
+
+	/**
+	 * @return : The validation error after the last finished epoch, or NaN if it was not validated.
+	 */
+	double getLastValidationError();
+
+	/**
+	 * @return : The lowest validation error of any epoch, or NaN if none was validated.
+	 */
+	double getBestValidationError();
+
+	/**
+	 * @return : The time spent running training datapoints forward, in milliseconds.
+	 */
+	double getForwardMillis();
+
+	/**
+	 * @return : The time spent backpropagating and updating weights, in milliseconds.
+	 */
+	double getBackpropMillis();
+
+	/**
+	 * @return : The time spent computing testing and validation errors, in milliseconds.
+	 */
+	double getEvaluationMillis();
+
+	/**
+	 * @return : The number of networks tested against the validation data.
+	 */
+	long getValidations();
+
+	/**
+	 * @return : The time the Tester spent classifying validation data, in milliseconds.
+	 */
+	double getValidationForwardMillis();
+
+	/**
+	 * @return : The time the Tester spent tallying confusion matrices, in milliseconds.
+	 */
+	double getValidationEvaluationMillis();
+}
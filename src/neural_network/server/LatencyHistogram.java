@@ -0,0 +1,117 @@
+package neural_network.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, for reporting percentiles.
+ *
+ * Values below 32 get a bucket each. Larger values are bucketed by their
+ * power of two, with 32 linear sub-buckets per power, so any recorded value
+ * is reported within about 3% of itself while the whole range of a long fits
+ * in under 2,000 counters.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int NUM_BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one latency.
+	 *
+	 * @param nanos: The latency in nanoseconds. Negative values are recorded as zero.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketIndex(value));
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 *
+	 * @return: The total count.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			count += counts.get(bucket);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the largest latency recorded.
+	 *
+	 * @return: The maximum in nanoseconds, or zero if nothing was recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the latency at or below which a percentage of recorded latencies fall.
+	 * Values recorded while this runs may or may not be counted.
+	 *
+	 * @param percentile: A percentage between 0 and 100.
+	 * @return: The upper bound of the bucket holding the percentile, in nanoseconds,
+	 * or zero if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+		}
+		long[] snapshot = new long[NUM_BUCKETS];
+		long total = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+			total += snapshot[bucket];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			seen += snapshot[bucket];
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(bucket), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Returns the bucket a value is counted in.
+	 */
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the largest value counted in a bucket.
+	 */
+	private static long bucketUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+		// the top bucket's bound overflows
+		return upper < 0 ? Long.MAX_VALUE : upper;
+	}
+}
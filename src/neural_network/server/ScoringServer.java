@@ -0,0 +1,393 @@
+package neural_network.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import neural_network.Data;
+import neural_network.InferenceModel;
+import neural_network.NeuralNetworkException;
+import neural_network.OnlineLearner;
+
+/**
+ * A resident HTTP server that scores feature vectors with a loaded model.
+ * The server only listens on the loopback interface.
+ *
+ * POST /score takes one feature vector per line, comma-separated, and
+ * answers with one line per vector holding the model's comma-separated outputs.
+ * All vectors in a request are scored as one batch.
+ * GET /stats answers with request counts and latency percentiles, one
+ * "name value" pair per line.
+ * When serving an OnlineLearner, POST /feedback takes one labeled feature
+ * vector per line, the features followed by the classification as in a data
+ * file, and learns them in order. Scoring goes on with the weights from before
+ * the feedback until all of it has been learned.
+ *
+ * Requests are limited to MAX_REQUEST_BYTES and MAX_REQUEST_LINES; larger
+ * ones are answered with 413.
+ *
+ * Connections are handled on virtual threads when the JVM has them (Java 21+),
+ * and on a cached thread pool otherwise.
+ *
+ * @author Michael Yachanin (mry1294)
+ */
+public class ScoringServer {
+
+	public static final int MAX_REQUEST_BYTES = 16 << 20;
+	public static final int MAX_REQUEST_LINES = 10_000;
+	private static final double[] REPORTED_PERCENTILES = { 50, 90, 99, 99.9 };
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+	private final InferenceModel model;
+	private final OnlineLearner learner;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong samplesScored = new AtomicLong();
+	private final AtomicLong failedRequests = new AtomicLong();
+	private final AtomicLong feedbackRequests = new AtomicLong();
+
+	/**
+	 * Construct a scoring server bound to a port on the loopback interface.
+	 *
+	 * @param model: The model to score feature vectors with.
+	 * @param port: The port to listen on, or 0 for any free port.
+	 * @throws NeuralNetworkException: if the port cannot be bound.
+	 */
+	public ScoringServer(InferenceModel model, int port) throws NeuralNetworkException {
+		this(model, null, port);
+	}
+
+	/**
+	 * Construct a scoring server that also learns from feedback, bound to a port
+	 * on the loopback interface.
+	 *
+	 * @param learner: The online learner to score feature vectors with and send feedback to.
+	 * @param port: The port to listen on, or 0 for any free port.
+	 * @throws NeuralNetworkException: if the port cannot be bound.
+	 */
+	public ScoringServer(OnlineLearner learner, int port) throws NeuralNetworkException {
+		this(learner, learner, port);
+	}
+
+	private ScoringServer(InferenceModel model, OnlineLearner learner, int port) throws NeuralNetworkException {
+		this.model = model;
+		this.learner = learner;
+		try {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException e) {
+			throw new NeuralNetworkException(String.format("Error binding scoring server to port %d", port), e);
+		}
+		executor = createExecutor();
+		server.setExecutor(executor);
+		server.createContext("/score", this::handleScore);
+		server.createContext("/stats", this::handleStats);
+		if (learner != null) {
+			server.createContext("/feedback", this::handleFeedback);
+		}
+	}
+
+	/**
+	 * Creates a virtual thread per task executor if the JVM supports it,
+	 * without requiring Java 21 to compile.
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests and waits up to a given time for running requests to finish.
+	 *
+	 * @param delaySeconds: The longest time to wait.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the port this server listens on.
+	 *
+	 * @return: The bound port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the latencies of scoring requests handled so far.
+	 *
+	 * @return: The latency histogram.
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Scores the feature vectors in the body of a request.
+	 */
+	private void handleScore(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				sendText(exchange, 405, "Use POST to score feature vectors.\n");
+				failedRequests.incrementAndGet();
+				return;
+			}
+
+			byte[] body;
+			try (InputStream in = exchange.getRequestBody()) {
+				body = in.readNBytes(MAX_REQUEST_BYTES + 1);
+			}
+			if (body.length > MAX_REQUEST_BYTES) {
+				sendText(exchange, 413, String.format("Requests are limited to %d bytes.%n", MAX_REQUEST_BYTES));
+				failedRequests.incrementAndGet();
+				return;
+			}
+
+			String text = new String(body, StandardCharsets.US_ASCII);
+			if (countLines(text) > MAX_REQUEST_LINES) {
+				sendText(exchange, 413, String.format("Requests are limited to %d lines.%n", MAX_REQUEST_LINES));
+				failedRequests.incrementAndGet();
+				return;
+			}
+			String[] lines = text.split("\n");
+			String response;
+			try {
+				response = score(lines);
+			} catch (IllegalArgumentException e) {
+				sendText(exchange, 400, e.getMessage() + "\n");
+				failedRequests.incrementAndGet();
+				return;
+			}
+			sendText(exchange, 200, response);
+		} finally {
+			exchange.close();
+			latencies.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Parses feature vectors, scores them as one batch and formats the outputs.
+	 *
+	 * @throws IllegalArgumentException: if a line is not a feature vector of the right length.
+	 */
+	private String score(String[] lines) {
+		int numVectors = 0;
+		for (String line : lines) {
+			if (!line.trim().isEmpty()) {
+				numVectors++;
+			}
+		}
+		int numInputs = model.getNumInputs();
+		double[] inputs = new double[numVectors * numInputs];
+		int numSamples = 0;
+		for (int line = 0; line < lines.length; line++) {
+			String vector = lines[line].trim();
+			if (vector.isEmpty()) {
+				continue;
+			}
+			String[] fields = vector.split(",");
+			if (fields.length != numInputs) {
+				throw new IllegalArgumentException(String.format("Line %d has %d features, expected %d.",
+						line + 1, fields.length, numInputs));
+			}
+			parseFields(fields, numInputs, line, inputs, numSamples * numInputs);
+			numSamples++;
+		}
+		if (numSamples == 0) {
+			throw new IllegalArgumentException("The request holds no feature vectors.");
+		}
+
+		int numOutputs = model.getNumOutputs();
+		double[] outputs = model.classifyBatch(inputs, numSamples);
+		StringBuilder response = new StringBuilder(numSamples * numOutputs * 20);
+		for (int sample = 0; sample < numSamples; sample++) {
+			for (int i = 0; i < numOutputs; i++) {
+				if (i > 0) {
+					response.append(',');
+				}
+				response.append(outputs[sample * numOutputs + i]);
+			}
+			response.append('\n');
+		}
+		samplesScored.addAndGet(numSamples);
+		return response.toString();
+	}
+
+	/**
+	 * Learns from the labeled feature vectors in the body of a request.
+	 */
+	private void handleFeedback(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				sendText(exchange, 405, "Use POST to send labeled feature vectors.\n");
+				return;
+			}
+
+			byte[] body;
+			try (InputStream in = exchange.getRequestBody()) {
+				body = in.readNBytes(MAX_REQUEST_BYTES + 1);
+			}
+			if (body.length > MAX_REQUEST_BYTES) {
+				sendText(exchange, 413, String.format("Requests are limited to %d bytes.%n", MAX_REQUEST_BYTES));
+				return;
+			}
+
+			String text = new String(body, StandardCharsets.US_ASCII);
+			if (countLines(text) > MAX_REQUEST_LINES) {
+				sendText(exchange, 413, String.format("Requests are limited to %d lines.%n", MAX_REQUEST_LINES));
+				return;
+			}
+			List<Data> feedback;
+			try {
+				feedback = parseFeedback(text.split("\n"));
+			} catch (IllegalArgumentException e) {
+				sendText(exchange, 400, e.getMessage() + "\n");
+				return;
+			}
+			learner.learn(feedback);
+			feedbackRequests.incrementAndGet();
+			sendText(exchange, 200, String.format("learned %d%nupdates %d%n", feedback.size(), learner.getUpdates()));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Parses labeled feature vectors: the features followed by one value per output.
+	 * Features must be finite, since one NaN or infinity learned would spread to every weight.
+	 *
+	 * @throws IllegalArgumentException: if a line is not a labeled feature vector of the right length
+	 * with finite features.
+	 */
+	private List<Data> parseFeedback(String[] lines) {
+		int numInputs = model.getNumInputs();
+		int numOutputs = model.getNumOutputs();
+		List<Data> feedback = new ArrayList<>();
+		for (int line = 0; line < lines.length; line++) {
+			String vector = lines[line].trim();
+			if (vector.isEmpty()) {
+				continue;
+			}
+			String[] fields = vector.split(",");
+			if (fields.length != numInputs + numOutputs) {
+				throw new IllegalArgumentException(String.format("Line %d has %d fields, expected %d features and %d labels.",
+						line + 1, fields.length, numInputs, numOutputs));
+			}
+			double[] inputs = new double[numInputs];
+			parseFields(fields, numInputs, line, inputs, 0);
+			for (int i = 0; i < numInputs; i++) {
+				if (!Double.isFinite(inputs[i])) {
+					throw new IllegalArgumentException(String.format("Feature \"%s\" on line %d is not finite.",
+							fields[i].trim(), line + 1));
+				}
+			}
+			int[] classification = new int[numOutputs];
+			for (int i = 0; i < numOutputs; i++) {
+				String label = fields[numInputs + i].trim();
+				if (!label.equals("0") && !label.equals("1")) {
+					throw new IllegalArgumentException(String.format("Invalid label \"%s\" on line %d, expected 0 or 1.",
+							label, line + 1));
+				}
+				classification[i] = label.equals("1") ? 1 : 0;
+			}
+			feedback.add(new Data(inputs, classification));
+		}
+		if (feedback.isEmpty()) {
+			throw new IllegalArgumentException("The request holds no labeled feature vectors.");
+		}
+		return feedback;
+	}
+
+	/**
+	 * Counts the lines of a request body, blank ones included, before it is
+	 * split, so a body of mostly empty lines is refused before anything is
+	 * allocated per line.
+	 */
+	private static int countLines(String text) {
+		int lines = text.isEmpty() || text.endsWith("\n") ? 0 : 1;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				lines++;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Parses the first count fields of a line as numbers.
+	 *
+	 * @throws IllegalArgumentException: if a field is not a number.
+	 */
+	private static void parseFields(String[] fields, int count, int line, double[] values, int offset) {
+		for (int i = 0; i < count; i++) {
+			try {
+				values[offset + i] = Double.parseDouble(fields[i]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(String.format("Invalid number \"%s\" on line %d.",
+						fields[i].trim(), line + 1));
+			}
+		}
+	}
+
+	/**
+	 * Reports request counts and scoring latency percentiles in microseconds.
+	 */
+	private void handleStats(HttpExchange exchange) throws IOException {
+		try {
+			StringBuilder stats = new StringBuilder();
+			stats.append("requests ").append(latencies.getCount()).append('\n');
+			stats.append("failed_requests ").append(failedRequests.get()).append('\n');
+			stats.append("samples ").append(samplesScored.get()).append('\n');
+			if (learner != null) {
+				stats.append("feedback_requests ").append(feedbackRequests.get()).append('\n');
+				stats.append("feedback_samples ").append(learner.getUpdates()).append('\n');
+			}
+			for (int i = 0; i < REPORTED_PERCENTILES.length; i++) {
+				stats.append(String.format("latency_%s_us %.1f%n", PERCENTILE_NAMES[i],
+						latencies.getPercentile(REPORTED_PERCENTILES[i]) / 1e3));
+			}
+			stats.append(String.format("latency_max_us %.1f%n", latencies.getMax() / 1e3));
+			sendText(exchange, 200, stats.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Sends a plain text response.
+	 */
+	private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}